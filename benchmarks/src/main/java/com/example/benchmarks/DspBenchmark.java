@@ -0,0 +1,51 @@
+package com.example.benchmarks;
+
+import com.example.audio.SignalConditioner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link SignalConditioner} pass over a 128 ms chunk with the scalar loop
+ * and with the Vector API. The chunk is conditioned in place over and over;
+ * the pass has no data-dependent branches, so that does not change its cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DspBenchmark {
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private final byte[] chunk = VoskSamples.chunk();
+    private SignalConditioner conditioner;
+
+    @Setup
+    public void setUp() {
+        boolean vector = kernel.equals("vector");
+        conditioner = new SignalConditioner(16000, vector, true);
+        if (conditioner.isVectorized() != vector) {
+            throw new IllegalStateException("Vector API not available: " + conditioner);
+        }
+    }
+
+    @Benchmark
+    public int conditionChunk() {
+        conditioner.process(chunk, chunk.length);
+        return conditioner.getLevel();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.benchmarks;
+
+import com.example.speech.ResultExtractor;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of text from recognizer JSON, done for every decoded chunk. The
+ * {@code orgJson*} benchmarks are the previous {@link JSONObject} based
+ * approach and serve as the baseline for {@link ResultExtractor}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private static final String OTHER_PARTIAL = "{\n  \"partial\" : \"the quick brown fox jumps\"\n}";
+
+    private final ResultExtractor extractor = new ResultExtractor();
+    private boolean flip;
+
+    @Benchmark
+    public String orgJsonPartial() {
+        return new JSONObject(VoskSamples.PARTIAL).optString("partial");
+    }
+
+    @Benchmark
+    public String orgJsonResult() {
+        return new JSONObject(VoskSamples.RESULT).optString("text");
+    }
+
+    @Benchmark
+    public String orgJsonResultWithWords() {
+        return new JSONObject(VoskSamples.RESULT_WITH_WORDS).optString("text");
+    }
+
+    /** The common case: the partial did not change since the last chunk. */
+    @Benchmark
+    public boolean extractPartialUnchanged() {
+        return extractor.parsePartial(VoskSamples.PARTIAL);
+    }
+
+    /** A changed partial, including the string handed to the UI. */
+    @Benchmark
+    public String extractPartialChanged() {
+        flip = !flip;
+        extractor.parsePartial(flip ? VoskSamples.PARTIAL : OTHER_PARTIAL);
+        return extractor.text();
+    }
+
+    @Benchmark
+    public String extractResult() {
+        extractor.parseResult(VoskSamples.RESULT);
+        return extractor.text();
+    }
+
+    @Benchmark
+    public float extractResultWithWords() {
+        extractor.parseResult(VoskSamples.RESULT_WITH_WORDS);
+        return extractor.getWordEnd(extractor.getWordCount() - 1);
+    }
+}
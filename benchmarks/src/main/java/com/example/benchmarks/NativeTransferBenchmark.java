@@ -0,0 +1,68 @@
+package com.example.benchmarks;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What it costs to hand one 128 ms chunk to native code, without a model:
+ * a direct-mapped C function that ignores its data ({@code memchr} with a
+ * length of 0) called with the chunk as {@code byte[]}, as
+ * {@code Recognizer.acceptWaveForm} does, and with a native block the chunk
+ * was written into, as {@code NativeWaveform} does. Run with {@code -t N} to
+ * see N streams at once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeTransferBenchmark {
+    /** The array is copied to a temporary native buffer and back around each call. */
+    static final class ArrayBinding {
+        static {
+            Native.register(ArrayBinding.class, Platform.C_LIBRARY_NAME);
+        }
+
+        static native Pointer memchr(byte[] data, int c, long n);
+    }
+
+    /** Only the address is passed. */
+    static final class PointerBinding {
+        static {
+            Native.register(PointerBinding.class, Platform.C_LIBRARY_NAME);
+        }
+
+        static native Pointer memchr(Pointer data, int c, long n);
+    }
+
+    private final byte[] chunk = VoskSamples.chunk();
+    private final Memory block = new Memory(chunk.length);
+    private final ByteBuffer view = block.getByteBuffer(0, chunk.length);
+
+    @Benchmark
+    public Pointer byteArray() {
+        return ArrayBinding.memchr(chunk, 0, 0);
+    }
+
+    @Benchmark
+    public Pointer nativeBlock() {
+        view.put(0, chunk, 0, chunk.length);
+        return PointerBinding.memchr(block, 0, 0);
+    }
+}
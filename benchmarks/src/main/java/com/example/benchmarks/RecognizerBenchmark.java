@@ -0,0 +1,94 @@
+package com.example.benchmarks;
+
+import com.example.speech.ModelHolder;
+import com.example.speech.NativeWaveform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code acceptWaveForm} on one 128 ms chunk for each input type the binding
+ * offers, and through {@link NativeWaveform}'s native block. Needs a model on
+ * disk: {@code -p model=/path/to/vosk-model}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecognizerBenchmark {
+    @Param("models/vosk-model-en-us-0.22")
+    public String model;
+
+    private Recognizer recognizer;
+    private NativeWaveform waveform;
+    private final byte[] bytes = VoskSamples.chunk();
+    private final short[] shorts = new short[bytes.length / 2];
+    private final float[] floats = new float[bytes.length / 2];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File dir = ModelHolder.locateModelPath(new File(model));
+        if (!new File(dir, "am").exists()) {
+            throw new IllegalStateException("No model at " + dir + ", pass -p model=<dir>");
+        }
+        Model loaded = ModelHolder.get(dir);
+        recognizer = new Recognizer(loaded, 16000.0f);
+        waveform = new NativeWaveform(recognizer);
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = (short) ((bytes[2 * i + 1] << 8) | (bytes[2 * i] & 0xff));
+            floats[i] = shorts[i];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        waveform.close();
+        recognizer.close();
+        ModelHolder.release();
+    }
+
+    @Benchmark
+    public void acceptBytes(Blackhole bh) {
+        bh.consume(result(recognizer.acceptWaveForm(bytes, bytes.length)));
+    }
+
+    @Benchmark
+    public void acceptDirect(Blackhole bh) {
+        bh.consume(result(waveform.accept(bytes, bytes.length)));
+    }
+
+    @Benchmark
+    public void acceptShorts(Blackhole bh) {
+        bh.consume(result(recognizer.acceptWaveForm(shorts, shorts.length)));
+    }
+
+    @Benchmark
+    public void acceptFloats(Blackhole bh) {
+        bh.consume(result(recognizer.acceptWaveForm(floats, floats.length)));
+    }
+
+    /** Fetch the result the way the capture loop does after every chunk. */
+    private String result(boolean complete) {
+        return complete ? recognizer.getResult() : recognizer.getPartialResult();
+    }
+}
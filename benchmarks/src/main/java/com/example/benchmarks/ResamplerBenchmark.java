@@ -0,0 +1,65 @@
+package com.example.benchmarks;
+
+import com.example.audio.Resampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting one 128 ms chunk ({@link VoskSamples#chunk()} at 16 kHz) from a
+ * device's native format. The score divided by 128 ms is the share of a core
+ * one stream spends resampling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResamplerBenchmark {
+    /** Native rate in Hz. */
+    @Param({"48000", "44100"})
+    public int rate;
+
+    @Param({"2"})
+    public int channels;
+
+    private Resampler resampler;
+    private byte[] input;
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        byte[] mono = VoskSamples.chunk();
+        output = new byte[mono.length];
+        AudioFormat format = new AudioFormat(rate, 16, channels, true, false);
+        resampler = new Resampler(format, 16000, output.length);
+        input = new byte[resampler.inputBytesFor(output.length)];
+        // The 16 kHz sample played at the native rate, on every channel.
+        int frameBytes = 2 * channels;
+        for (int f = 0; f < input.length / frameBytes; f++) {
+            int s = (f * 2) % mono.length;
+            for (int c = 0; c < channels; c++) {
+                input[f * frameBytes + 2 * c] = mono[s];
+                input[f * frameBytes + 2 * c + 1] = mono[s + 1];
+            }
+        }
+    }
+
+    @Benchmark
+    public int resampleChunk() {
+        return resampler.process(input, input.length, output);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.benchmarks;
+
+import com.example.speech.SrtWriter;
+import com.example.vostts.TextWrap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Display wrapping and the SRT output path run for every recognised segment. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+    private static final String TEXT = "the quick brown fox jumps over the lazy dog and keeps on running";
+
+    private long time;
+    private SrtWriter nullSrt;
+    private Path file;
+    private SrtWriter fileSrt;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        nullSrt = new SrtWriter(Writer.nullWriter());
+        file = Files.createTempFile("bench-", ".srt");
+        fileSrt = new SrtWriter(new FileWriter(file.toFile()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileSrt.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String wrapDisplay() {
+        return TextWrap.wrap(TEXT, 35);
+    }
+
+    @Benchmark
+    public String formatSrtTime() {
+        time += 1237;
+        return SrtWriter.formatTime(time);
+    }
+
+    /** Formatting cost of one SRT entry without any I/O. */
+    @Benchmark
+    public void srtEntry() throws IOException {
+        long start = time;
+        time += 2500;
+        nullSrt.write(start, time, TEXT);
+    }
+
+    /** One SRT entry written and flushed to disk, as the live session does. */
+    @Benchmark
+    public void writeLineFlushed() throws IOException {
+        long start = time;
+        time += 2500;
+        fileSrt.write(start, time, TEXT);
+        fileSrt.flush();
+    }
+}
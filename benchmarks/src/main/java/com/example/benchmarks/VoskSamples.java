@@ -0,0 +1,41 @@
+package com.example.benchmarks;
+
+/** Representative documents and audio used by the benchmarks. */
+final class VoskSamples {
+    private VoskSamples() {}
+
+    /** A partial result as returned by {@code getPartialResult()}. */
+    static final String PARTIAL = "{\n  \"partial\" : \"the quick brown fox jumps over\"\n}";
+
+    /** A final result as returned by {@code getResult()}. */
+    static final String RESULT = "{\n  \"text\" : \"the quick brown fox jumps over the lazy dog\"\n}";
+
+    /** A final result with word timings, as returned when words are enabled. */
+    static final String RESULT_WITH_WORDS;
+
+    static {
+        String[] words = {"the", "quick", "brown", "fox", "jumps", "over", "the", "lazy", "dog"};
+        StringBuilder sb = new StringBuilder("{\n  \"result\" : [");
+        double t = 0.87;
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(String.format("{\n      \"conf\" : 1.000000,\n      \"end\" : %.6f,\n"
+                    + "      \"start\" : %.6f,\n      \"word\" : \"%s\"\n    }", t + 0.24, t, words[i]));
+            t += 0.3;
+        }
+        sb.append("],\n  \"text\" : \"the quick brown fox jumps over the lazy dog\"\n}");
+        RESULT_WITH_WORDS = sb.toString();
+    }
+
+    /** 128 ms of 16 kHz speech-like PCM, the chunk size used by the capture loop. */
+    static byte[] chunk() {
+        byte[] pcm = new byte[4096];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            double env = 0.5 + 0.5 * Math.sin(i * 2 * Math.PI / 2048);
+            int v = (int) (env * (6000 * Math.sin(i * 0.07) + 2500 * Math.sin(i * 0.31)));
+            pcm[2 * i] = (byte) v;
+            pcm[2 * i + 1] = (byte) (v >> 8);
+        }
+        return pcm;
+    }
+}
@@ -2,23 +2,39 @@ package com.example;
 
 import org.vosk.Model;
 import org.vosk.Recognizer;
-import org.json.JSONObject;
 
 import javax.sound.sampled.*;
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
 import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.example.logging.LoggingConfig;
+import com.example.audio.AudioCapture;
+import com.example.audio.AudioDevices;
+import com.example.audio.AudioRing;
+import com.example.audio.CaptureSettings;
+import com.example.audio.SignalConditioner;
+import com.example.audio.VoiceGate;
+import com.example.metrics.MetricsEndpoint;
+import com.example.metrics.PipelineEvents;
+import com.example.metrics.RecognitionMetrics;
+import com.example.speech.ModelDownloader;
+import com.example.speech.NativeWaveform;
+import com.example.speech.SampleClock;
+import com.example.speech.Segment;
+import com.example.speech.TranscriptJournal;
+import com.example.speech.ResultExtractor;
+import com.example.ui.DisplayMailbox;
 
 public class TranscriberApp extends JFrame {
     private static final Logger LOG = Logger.getLogger(TranscriberApp.class.getName());
@@ -30,14 +46,22 @@ public class TranscriberApp extends JFrame {
     private final JComboBox<String> modelComboBox = new JComboBox<>();
     private final File modelsBaseDir = new File("models");
     private File currentModelDir;
-    private final File outputFile = new File("transcript.srt");
+    /** Directory holding one sub-directory per session, relative to the working directory. */
+    private static final Path SESSIONS_DIR = Paths.get("sessions");
+    private static final DateTimeFormatter SESSION_ID = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    /** Segments of the current session; transcript.srt and .vtt are rendered next to it. */
+    private volatile Path journalFile;
     private final JButton startStopButton = new JButton("Start");
     private volatile boolean running = false;
     private Thread recognitionThread;
     private boolean modelReady = false;
     private long sessionStart;
-    private long lastSegment;
-    private int srtIndex;
+    /** Places final results on the session timeline. Recognition thread only. */
+    private SampleClock clock;
+    private ResultExtractor results;
+    private volatile DisplayMailbox display = new DisplayMailbox();
+    /** Applies pending display updates at most once per ~60 Hz frame. */
+    private final Timer frameTimer = new Timer(16, e -> applyDisplayUpdates(display));
 
     private static class ModelInfo {
         final String url;
@@ -114,26 +138,13 @@ public class TranscriberApp extends JFrame {
             SwingWorker<Void, Integer> worker = new SwingWorker<Void, Integer>() {
                 @Override
                 protected Void doInBackground() throws Exception {
-                    String url = info.url;
-                    modelsBaseDir.mkdirs();
-                    Path zipPath = modelsBaseDir.toPath().resolve(info.dirName + ".zip");
-                    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-                    int length = conn.getContentLength();
-                    try (InputStream in = conn.getInputStream();
-                         FileOutputStream out = new FileOutputStream(zipPath.toFile())) {
-                        byte[] buffer = new byte[4096];
-                        int bytesRead;
-                        long total = 0;
-                        while ((bytesRead = in.read(buffer)) != -1) {
-                            out.write(buffer, 0, bytesRead);
-                            total += bytesRead;
-                            if (length > 0) {
-                                publish((int) (total * 100 / length));
-                            }
-                        }
-                    }
-                    unzip(zipPath.toFile(), currentModelDir);
-                    Files.delete(zipPath);
+                    new ModelDownloader(URI.create(info.url), currentModelDir.toPath(), null)
+                            .setListener((downloaded, total) -> {
+                                if (total > 0) {
+                                    publish((int) (downloaded * 100 / total));
+                                }
+                            })
+                            .download();
                     return null;
                 }
 
@@ -157,29 +168,6 @@ public class TranscriberApp extends JFrame {
         }
     }
 
-    private static void unzip(File zipFile, File targetDir) throws IOException {
-        targetDir.mkdirs();
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-            ZipEntry entry;
-            byte[] buffer = new byte[4096];
-            while ((entry = zis.getNextEntry()) != null) {
-                File newFile = new File(targetDir, entry.getName());
-                if (entry.isDirectory()) {
-                    newFile.mkdirs();
-                } else {
-                    newFile.getParentFile().mkdirs();
-                    try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
-                        }
-                    }
-                }
-                zis.closeEntry();
-            }
-        }
-    }
-
     private File locateModelPath(File dir) {
         if (new File(dir, "am").exists()) {
             return dir;
@@ -201,13 +189,8 @@ public class TranscriberApp extends JFrame {
 
     private void loadInputDevices() {
         deviceComboBox.removeAllItems();
-        AudioFormat format = new AudioFormat(16000.0f, 16, 1, true, false);
-        DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-        for (Mixer.Info mi : AudioSystem.getMixerInfo()) {
-            Mixer mixer = AudioSystem.getMixer(mi);
-            if (mixer.isLineSupported(info)) {
-                deviceComboBox.addItem(mi);
-            }
+        for (Mixer.Info mi : AudioDevices.listInputDevices()) {
+            deviceComboBox.addItem(mi);
         }
         deviceComboBox.setRenderer(new DefaultListCellRenderer() {
             @Override
@@ -234,49 +217,92 @@ public class TranscriberApp extends JFrame {
             LOG.warning("Attempted to start recognition but model not ready or already running");
             return;
         }
+        DisplayMailbox mailbox = new DisplayMailbox();
+        display = mailbox;
+        frameTimer.start();
         recognitionThread = new Thread(() -> {
-            try (Model model = new Model(locateModelPath(currentModelDir).getAbsolutePath());
-                 FileWriter writer = new FileWriter(outputFile, true)) {
+            PipelineEvents.Session session = new PipelineEvents.Session();
+            session.begin();
+            journalFile = null;
+            try (Model model = loadModel(locateModelPath(currentModelDir));
+                 TranscriptJournal journal = new TranscriptJournal(newSessionJournal())) {
                 LOG.info("Recognition thread started");
+                results = new ResultExtractor();
                 Recognizer recognizer = new Recognizer(model, 16000.0f);
+                recognizer.setWords(true);
+                NativeWaveform waveform = new NativeWaveform(recognizer);
                 sessionStart = System.currentTimeMillis();
-                lastSegment = 0;
-                srtIndex = 1;
-                AudioFormat format = new AudioFormat(16000.0f, 16, 1, true, false);
-                DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+                AudioFormat format = AudioDevices.TARGET_FORMAT;
                 Mixer.Info selected = (Mixer.Info) deviceComboBox.getSelectedItem();
-                TargetDataLine line;
-                if (selected != null) {
-                    Mixer mixer = AudioSystem.getMixer(selected);
-                    line = (TargetDataLine) mixer.getLine(info);
-                } else {
-                    line = (TargetDataLine) AudioSystem.getLine(info);
-                }
-                line.open(format);
-                line.start();
-                byte[] buffer = new byte[4096];
-                running = true;
-                SwingUtilities.invokeLater(() -> startStopButton.setText("Stop"));
-                while (running && !Thread.currentThread().isInterrupted()) {
-                    int n = line.read(buffer, 0, buffer.length);
-                    if (n < 0) break;
-                    final int level = calculateVolumeLevel(buffer, n);
-                    SwingUtilities.invokeLater(() -> volumeBar.setValue(level));
-                    if (recognizer.acceptWaveForm(buffer, n)) {
-                        String result = recognizer.getResult();
-                        handleResult(result, writer);
-                    } else {
-                        String partial = recognizer.getPartialResult();
-                        handlePartial(partial);
+                CaptureSettings settings = CaptureSettings.fromProperties();
+                TargetDataLine line = AudioDevices.openLine(selected, settings);
+                LOG.info("Capturing " + line.getFormat());
+                AudioRing ring = new AudioRing(settings.getRingChunks(), settings.getChunkBytes(format),
+                        format.getFrameSize());
+                SignalConditioner dsp = new SignalConditioner(format.getSampleRate());
+                VoiceGate gate = new VoiceGate(format.getSampleRate());
+                clock = new SampleClock(format.getSampleRate());
+                VoiceGate.Sink decoder = (pcm, length) -> {
+                    clock.fed(gate.getFeedOffset(), length);
+                    PipelineEvents.Decode event = new PipelineEvents.Decode();
+                    event.begin();
+                    boolean complete = waveform.accept(pcm, length);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.bytes = length;
+                        event.complete = complete;
+                        event.commit();
                     }
+                    if (complete) {
+                        handleResult(recognizer.getResult(), journal);
+                        return true;
+                    }
+                    handlePartial(recognizer.getPartialResult());
+                    return false;
+                };
+                try (waveform;
+                     AudioCapture capture = new AudioCapture(line, ring, format);
+                     RecognitionMetrics.Session metrics = RecognitionMetrics.get()
+                             .openSession(selected != null ? selected.getName() : "default",
+                                     format.getSampleRate() * format.getFrameSize())) {
+                    capture.start();
+                    running = true;
+                    SwingUtilities.invokeLater(() -> startStopButton.setText("Stop"));
+                    while (running && !Thread.currentThread().isInterrupted() && !ring.isDrained()) {
+                        AudioRing.Chunk chunk = ring.poll(100, TimeUnit.MILLISECONDS);
+                        if (chunk == null) continue;
+                        try {
+                            long t0 = System.nanoTime();
+                            dsp.process(chunk.getData(), chunk.getLength());
+                            gate.process(chunk.getData(), chunk.getLength(), decoder);
+                            metrics.chunk(chunk.getLength(), System.nanoTime() - t0, ring.size() - 1,
+                                    ring.getDroppedFrames());
+                            mailbox.publishLevel(dsp.getLevel());
+                        } finally {
+                            ring.release();
+                        }
+                    }
+                    LOG.info("Capture statistics: " + capture);
+                    LOG.info("Voice gate: " + gate);
+                    LOG.info("Signal conditioner: " + dsp);
                 }
-                line.stop();
-                line.close();
+                session.segments = journal.getSegmentCount();
             } catch (Exception ex) {
                 LOG.log(Level.SEVERE, "Recognition error", ex);
             } finally {
                 running = false;
+                renderSubtitles();
+                session.end();
+                if (session.shouldCommit()) {
+                    session.id = Instant.ofEpochMilli(sessionStart).toString();
+                    session.commit();
+                }
                 SwingUtilities.invokeLater(() -> {
+                    applyDisplayUpdates(mailbox);
+                    if (display == mailbox) {
+                        frameTimer.stop();
+                    }
+                    LOG.info("Display updates: " + mailbox);
                     startStopButton.setText("Start");
                     volumeBar.setValue(0);
                 });
@@ -295,62 +321,143 @@ public class TranscriberApp extends JFrame {
         SwingUtilities.invokeLater(() -> volumeBar.setValue(0));
     }
 
-    private int calculateVolumeLevel(byte[] audio, int length) {
-        long sum = 0;
-        for (int i = 0; i < length; i += 2) {
-            int sample = (audio[i + 1] << 8) | (audio[i] & 0xff);
-            sum += sample * sample;
+    /** Load the model in {@code dir}, recorded as a flight recorder event. */
+    private static Model loadModel(File dir) throws IOException {
+        PipelineEvents.ModelLoad event = new PipelineEvents.ModelLoad();
+        event.begin();
+        long t0 = System.nanoTime();
+        try {
+            Model model = new Model(dir.getAbsolutePath());
+            RecognitionMetrics.get().recordModelLoad(System.nanoTime() - t0);
+            event.succeeded = true;
+            return model;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = dir.getPath();
+                event.commit();
+            }
         }
-        double rms = Math.sqrt(sum / (length / 2.0));
-        return (int) Math.min(100, rms * 100 / 32768);
     }
 
-    private void handleResult(String json, FileWriter writer) throws IOException {
-        JSONObject obj = new JSONObject(json);
-        String text = obj.optString("text");
-        if (!text.isEmpty()) {
+    private void handleResult(String json, TranscriptJournal journal) throws IOException {
+        if (parse(json, true)) {
+            String text = results.text();
             LOG.fine(() -> "Recognised: " + text);
-            appendText(text, writer);
+            appendText(clock.segment(results), journal);
         }
     }
 
     private void handlePartial(String json) {
-        JSONObject obj = new JSONObject(json);
-        String partial = obj.optString("partial");
-        if (!partial.isEmpty()) {
-            lastWordsLabel.setText(partial);
+        if (parse(json, false) && !results.isEmpty()) {
+            display.publishPartial(results.text());
         }
     }
 
-    private void appendText(String text, FileWriter writer) throws IOException {
-        lastWordsLabel.setText(text);
-        long end = System.currentTimeMillis() - sessionStart;
-        writer.write(Integer.toString(srtIndex++));
-        writer.write(System.lineSeparator());
-        writer.write(formatSrtTime(lastSegment) + " --> " + formatSrtTime(end));
-        writer.write(System.lineSeparator());
-        writer.write(text);
-        writer.write(System.lineSeparator());
-        writer.write(System.lineSeparator());
-        writer.flush();
-        lastSegment = end;
-        SwingUtilities.invokeLater(() -> {
-            textArea.append(text + System.lineSeparator());
-            textArea.setCaretPosition(textArea.getDocument().getLength());
-        });
+    /** Parse a final or partial result; true if it has new text. */
+    private boolean parse(String json, boolean finalResult) {
+        PipelineEvents.ResultParse event = new PipelineEvents.ResultParse();
+        event.begin();
+        boolean changed = finalResult ? results.parseResult(json) : results.parsePartial(json);
+        event.end();
+        if (event.shouldCommit()) {
+            event.finalResult = finalResult;
+            event.changed = changed;
+            event.commit();
+        }
+        return changed;
+    }
+
+    /** Show a final result and journal it with the times of its words. */
+    private void appendText(Segment segment, TranscriptJournal journal) throws IOException {
+        display.publishFinal(segment.getText());
+        journal.append(segment.getStartMs(), segment.getEndMs(), segment.getText());
+    }
+
+    /**
+     * Create a directory for a new session below {@link #SESSIONS_DIR}, named
+     * after the time it started so no session overwrites an earlier one, and
+     * return the journal path in it.
+     */
+    private Path newSessionJournal() throws IOException {
+        String id = LocalDateTime.now().format(SESSION_ID);
+        Files.createDirectories(SESSIONS_DIR);
+        Path dir = SESSIONS_DIR.resolve(id);
+        for (int n = 2; ; n++) {
+            try {
+                Files.createDirectory(dir);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                dir = SESSIONS_DIR.resolve(id + "_" + n);
+            }
+        }
+        LOG.info("Writing transcript to " + dir.toAbsolutePath());
+        journalFile = dir.resolve(TranscriptJournal.FILE_NAME);
+        return journalFile;
+    }
+
+    /**
+     * Render the subtitles from the closed journal. Stop interrupts this
+     * thread, which would close the file channels, so the interrupt is held
+     * back until the files are written.
+     */
+    private void renderSubtitles() {
+        Path journalFile = this.journalFile;
+        if (journalFile == null || !Files.exists(journalFile)) return;
+        boolean interrupted = Thread.interrupted();
+        try {
+            TranscriptJournal.render(journalFile);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to render subtitles, they will be recovered on next start", e);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
-    private static String formatSrtTime(long ms) {
-        long h = ms / 3_600_000;
-        long m = (ms % 3_600_000) / 60_000;
-        long s = (ms % 60_000) / 1000;
-        long milli = ms % 1000;
-        return String.format("%02d:%02d:%02d,%03d", h, m, s, milli);
+    /** Show everything the recognition thread published since the last frame. */
+    private void applyDisplayUpdates(DisplayMailbox mailbox) {
+        PipelineEvents.UiDispatch event = new PipelineEvents.UiDispatch();
+        event.begin();
+        String last = null;
+        String text;
+        int finals = 0;
+        while ((text = mailbox.pollFinal()) != null) {
+            textArea.append(text + System.lineSeparator());
+            last = text;
+            finals++;
+        }
+        if (last != null) {
+            textArea.setCaretPosition(textArea.getDocument().getLength());
+        }
+        String partial = mailbox.takePartial();
+        if (partial != null) {
+            lastWordsLabel.setText(partial);
+        } else if (last != null) {
+            lastWordsLabel.setText(last);
+        }
+        int level = mailbox.takeLevel();
+        if (level >= 0) {
+            volumeBar.setValue(level);
+        }
+        event.end();
+        // Most frames have nothing to show; only record those that did.
+        if ((finals > 0 || partial != null) && event.shouldCommit()) {
+            event.finals = finals;
+            event.partial = partial != null;
+            event.commit();
+        }
     }
 
     public static void main(String[] args) {
         LoggingConfig.configure();
         LOG.info("Launching TranscriberApp");
+        MetricsEndpoint.startFromProperty();
+        int recovered = TranscriptJournal.recoverSessions(SESSIONS_DIR);
+        if (recovered > 0) {
+            LOG.info("Recovered " + recovered + " interrupted sessions in " + SESSIONS_DIR.toAbsolutePath());
+        }
         SwingUtilities.invokeLater(() -> new TranscriberApp().setVisible(true));
     }
 }
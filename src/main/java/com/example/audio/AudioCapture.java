@@ -0,0 +1,135 @@
+package com.example.audio;
+
+import com.example.metrics.PipelineEvents;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.TargetDataLine;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated capture thread that reads a {@link TargetDataLine} into an
+ * {@link AudioRing}. Reading never waits for the decoder, so a slow decode
+ * shows up as dropped frames in the ring rather than as a silent overrun of
+ * the sound driver's buffer. A line opened in another format than the ring's
+ * is converted on this thread by a {@link Resampler}, so the ring and the
+ * decoder only ever see the recognizer's format.
+ */
+public final class AudioCapture implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(AudioCapture.class.getName());
+
+    private final TargetDataLine line;
+    private final AudioRing ring;
+    /** Converts the line's format to the ring's, {@code null} if they are the same. */
+    private final Resampler resampler;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile long lineOverruns;
+
+    /** Create a capture stage for an already opened line in the ring's format. */
+    public AudioCapture(TargetDataLine line, AudioRing ring) {
+        this(line, ring, line.getFormat());
+    }
+
+    /**
+     * Create a capture stage for an already opened line that fills the ring
+     * with {@code format}, resampling if the line was opened in another.
+     * Resampled audio is 16-bit mono.
+     */
+    public AudioCapture(TargetDataLine line, AudioRing ring, AudioFormat format) {
+        this.line = line;
+        this.ring = ring;
+        AudioFormat lineFormat = line.getFormat();
+        this.resampler = lineFormat.matches(format) ? null
+                : new Resampler(lineFormat, format.getSampleRate(), ring.getChunkBytes());
+        this.thread = new Thread(this::run, "audio-capture");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MAX_PRIORITY);
+    }
+
+    /** Start the line and the capture thread. */
+    public void start() {
+        running = true;
+        line.start();
+        thread.start();
+    }
+
+    private void run() {
+        byte[] scratch = new byte[ring.getChunkBytes()];
+        byte[] input = resampler != null ? new byte[resampler.inputBytesFor(ring.getChunkBytes())] : null;
+        int bufferSize = line.getBufferSize();
+        LOG.fine(() -> "Capture started, line buffer " + bufferSize + " bytes"
+                + (resampler != null ? ", resampling " + line.getFormat() + " " + resampler : ""));
+        try {
+            while (running) {
+                if (line.available() >= bufferSize) {
+                    // The driver buffer filled up before we got back to it,
+                    // so the device has already discarded audio.
+                    lineOverruns++;
+                }
+                AudioRing.Chunk chunk = ring.claim();
+                byte[] target = chunk != null ? chunk.getData() : scratch;
+                PipelineEvents.ChunkRead event = new PipelineEvents.ChunkRead();
+                event.begin();
+                int n = input != null ? line.read(input, 0, input.length) : line.read(target, 0, target.length);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.bytes = n;
+                    event.dropped = chunk == null;
+                    event.commit();
+                }
+                if (n <= 0) {
+                    if (!line.isOpen()) break;
+                    continue;
+                }
+                if (input != null) {
+                    // Even dropped audio passes the filter so it stays continuous.
+                    n = resampler.process(input, n, target);
+                    if (n == 0) continue;
+                }
+                if (chunk != null) {
+                    ring.publish(n, System.nanoTime());
+                } else {
+                    ring.drop(n);
+                    if (ring.getOverruns() == 1) {
+                        LOG.warning("Decoder is falling behind, dropping captured audio");
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Capture failed", e);
+        } finally {
+            ring.close();
+            LOG.fine("Capture stopped");
+        }
+    }
+
+    /** The conversion from the line's format, {@code null} if it is captured as is. */
+    public Resampler getResampler() {
+        return resampler;
+    }
+
+    /** Number of times the sound driver's buffer was found full. */
+    public long getLineOverruns() {
+        return lineOverruns;
+    }
+
+    /** Stop capturing and close the line. */
+    @Override
+    public void close() {
+        running = false;
+        line.stop();
+        line.close();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ring.close();
+    }
+
+    @Override
+    public String toString() {
+        return ring + " lineOverruns=" + lineOverruns + (resampler != null ? " resampling " + resampler : "");
+    }
+}
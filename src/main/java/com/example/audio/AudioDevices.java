@@ -0,0 +1,123 @@
+package com.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds input devices and the format to capture them in. Devices that offer
+ * the recognizer's {@link #TARGET_FORMAT} are read in it directly; others,
+ * such as USB microphones and interfaces that only run at 44.1 or 48 kHz in
+ * stereo, are read in their native format and converted by a
+ * {@link Resampler} in {@link AudioCapture}.
+ */
+public final class AudioDevices {
+    /** 16 kHz 16-bit mono, the format the recognizer is fed. */
+    public static final AudioFormat TARGET_FORMAT = new AudioFormat(16000.0f, 16, 1, true, false);
+    /** System property that, set to {@code false}, offers only devices capturing {@link #TARGET_FORMAT}. */
+    public static final String RESAMPLE_PROPERTY = "vosstt.capture.resample";
+    /** Native rates tried in order of preference; exact multiples of 16 kHz first. */
+    private static final float[] RATES = {48000, 32000, 44100, 96000, 88200, 22050, 24000};
+
+    private AudioDevices() {
+    }
+
+    /** Input devices that can capture {@link #TARGET_FORMAT}, directly or through a resampler. */
+    public static List<Mixer.Info> listInputDevices() {
+        List<Mixer.Info> list = new ArrayList<>();
+        for (Mixer.Info mi : AudioSystem.getMixerInfo()) {
+            if (captureFormat(AudioSystem.getMixer(mi)) != null) {
+                list.add(mi);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Open a line of {@code device}, {@code null} for the system default, in
+     * the format it should be captured in, with the buffer from
+     * {@code settings}. The line's {@link TargetDataLine#getFormat() format}
+     * tells whether it needs resampling.
+     */
+    public static TargetDataLine openLine(Mixer.Info device, CaptureSettings settings)
+            throws LineUnavailableException {
+        AudioFormat format;
+        TargetDataLine line;
+        DataLine.Info target = new DataLine.Info(TargetDataLine.class, TARGET_FORMAT);
+        if (device == null && AudioSystem.isLineSupported(target)) {
+            format = TARGET_FORMAT;
+            line = (TargetDataLine) AudioSystem.getLine(target);
+        } else {
+            if (device == null) {
+                List<Mixer.Info> devices = listInputDevices();
+                if (devices.isEmpty()) {
+                    throw new LineUnavailableException("No input device can capture " + TARGET_FORMAT);
+                }
+                device = devices.get(0);
+            }
+            Mixer mixer = AudioSystem.getMixer(device);
+            format = captureFormat(mixer);
+            if (format == null) {
+                throw new LineUnavailableException(device.getName() + " cannot capture " + TARGET_FORMAT);
+            }
+            line = (TargetDataLine) mixer.getLine(new DataLine.Info(TargetDataLine.class, format));
+        }
+        settings.open(line, format);
+        return line;
+    }
+
+    /**
+     * The format to capture {@code mixer} in: {@link #TARGET_FORMAT} if it is
+     * supported, otherwise the best supported signed PCM format by rate, then
+     * sample width, then fewest channels. {@code null} if there is none.
+     */
+    public static AudioFormat captureFormat(Mixer mixer) {
+        if (supports(mixer, TARGET_FORMAT)) return TARGET_FORMAT;
+        if (!Boolean.parseBoolean(System.getProperty(RESAMPLE_PROPERTY, "true"))) return null;
+        AudioFormat best = null;
+        int bestRank = Integer.MAX_VALUE;
+        for (Line.Info li : mixer.getTargetLineInfo()) {
+            if (!(li instanceof DataLine.Info) || !TargetDataLine.class.isAssignableFrom(li.getLineClass())) continue;
+            for (AudioFormat f : ((DataLine.Info) li).getFormats()) {
+                if (!AudioFormat.Encoding.PCM_SIGNED.equals(f.getEncoding())) continue;
+                int bits = f.getSampleSizeInBits();
+                if (bits != 16 && bits != 24 && bits != 32) continue;
+                int channels = f.getChannels() == AudioSystem.NOT_SPECIFIED ? 1 : f.getChannels();
+                for (int r = 0; r < RATES.length; r++) {
+                    float rate = f.getSampleRate() == AudioSystem.NOT_SPECIFIED ? RATES[r] : f.getSampleRate();
+                    int rateRank = f.getSampleRate() == AudioSystem.NOT_SPECIFIED ? r : rank(rate);
+                    if (rateRank < 0) break;
+                    int rank = (rateRank * 4 + (bits / 8 - 2)) * 16 + Math.min(channels, 15);
+                    if (rank < bestRank) {
+                        AudioFormat candidate = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, bits, channels,
+                                channels * bits / 8, rate, f.isBigEndian());
+                        if (supports(mixer, candidate)) {
+                            best = candidate;
+                            bestRank = rank;
+                        }
+                    }
+                    if (f.getSampleRate() != AudioSystem.NOT_SPECIFIED) break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Preference of a fixed rate; unlisted rates of at least 16 kHz come last, lower ones are -1. */
+    private static int rank(float rate) {
+        for (int i = 0; i < RATES.length; i++) {
+            if (RATES[i] == rate) return i;
+        }
+        return rate >= TARGET_FORMAT.getSampleRate() && rate == Math.rint(rate) ? RATES.length : -1;
+    }
+
+    private static boolean supports(Mixer mixer, AudioFormat format) {
+        return mixer.isLineSupported(new DataLine.Info(TargetDataLine.class, format));
+    }
+}
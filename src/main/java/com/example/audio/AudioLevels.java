@@ -0,0 +1,39 @@
+package com.example.audio;
+
+/** Level computations on 16-bit little endian PCM. */
+public final class AudioLevels {
+    /** Level shown as an empty meter. */
+    private static final double METER_FLOOR_DB = -60;
+
+    private AudioLevels() {}
+
+    /** Return the RMS of the samples in the given range, in 16-bit sample units. */
+    public static double rms(byte[] audio, int offset, int length) {
+        int samples = length / 2;
+        if (samples == 0) return 0;
+        long sum = 0;
+        int end = offset + samples * 2;
+        for (int i = offset; i < end; i += 2) {
+            int sample = (audio[i + 1] << 8) | (audio[i] & 0xff);
+            sum += sample * sample;
+        }
+        return Math.sqrt(sum / (double) samples);
+    }
+
+    /** Return the RMS of the chunk scaled to a 0-100 volume level. */
+    public static int volumeLevel(byte[] audio, int length) {
+        return volumeLevel(rms(audio, 0, length));
+    }
+
+    /** Scale an RMS in 16-bit sample units to a 0-100 volume level. */
+    public static int volumeLevel(double rms) {
+        return (int) Math.min(100, rms * 100 / 32768);
+    }
+
+    /** Scale an RMS in 16-bit sample units to a 0-100 meter level, -60 dBFS to full scale. */
+    public static int meterLevel(double rms) {
+        if (rms <= 0) return 0;
+        double db = 20 * Math.log10(rms / 32768);
+        return (int) Math.max(0, Math.min(100, (db - METER_FLOOR_DB) * 100 / -METER_FLOOR_DB));
+    }
+}
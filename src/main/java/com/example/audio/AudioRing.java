@@ -0,0 +1,190 @@
+package com.example.audio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer/single-consumer ring of PCM chunks.
+ * <p>
+ * The capture thread {@link #claim() claims} a free slot, reads the line
+ * straight into it and {@link #publish(int, long) publishes} it. The decode
+ * thread {@link #poll(long, TimeUnit) polls} published chunks and
+ * {@link #release() releases} them once processed. Neither side ever blocks
+ * the other: when the decoder falls behind and the ring is full, the producer
+ * records an overrun and the audio it had to read anyway is counted as
+ * dropped frames.
+ */
+public final class AudioRing {
+    /** A slot in the ring holding one chunk of captured audio. */
+    public static final class Chunk {
+        private final byte[] data;
+        private int length;
+        private long captureNanos;
+
+        private Chunk(int size) {
+            this.data = new byte[size];
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        /** Number of valid bytes in {@link #getData()}. */
+        public int getLength() {
+            return length;
+        }
+
+        /** {@link System#nanoTime()} at which the chunk was read from the line. */
+        public long getCaptureNanos() {
+            return captureNanos;
+        }
+    }
+
+    private final Chunk[] slots;
+    private final int mask;
+    private final int chunkBytes;
+    private final int frameBytes;
+    /** Sequence of the next chunk to be consumed. Written by the consumer only. */
+    private final AtomicLong head = new AtomicLong();
+    /** Sequence of the next chunk to be published. Written by the producer only. */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong highWater = new AtomicLong();
+    private volatile Thread waiter;
+    private volatile boolean closed;
+
+    /**
+     * Create a ring of {@code capacity} chunks of {@code chunkBytes} each.
+     * The capacity is rounded up to a power of two.
+     *
+     * @param frameBytes size of one audio frame, used to count dropped frames
+     */
+    public AudioRing(int capacity, int chunkBytes, int frameBytes) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Chunk[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Chunk(chunkBytes);
+        }
+        this.mask = size - 1;
+        this.chunkBytes = chunkBytes;
+        this.frameBytes = Math.max(1, frameBytes);
+    }
+
+    // ---- producer side ----
+
+    /**
+     * Return the next free slot for the producer to fill, or {@code null} if
+     * the consumer has not caught up and the ring is full.
+     */
+    public Chunk claim() {
+        long t = tail.get();
+        if (t - head.get() >= slots.length) {
+            return null;
+        }
+        return slots[(int) (t & mask)];
+    }
+
+    /** Publish the slot returned by the last {@link #claim()}. */
+    public void publish(int length, long captureNanos) {
+        long t = tail.get();
+        Chunk c = slots[(int) (t & mask)];
+        c.length = length;
+        c.captureNanos = captureNanos;
+        tail.set(t + 1);
+        long fill = t + 1 - head.get();
+        if (fill > highWater.get()) {
+            highWater.set(fill);
+        }
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    /** Record that {@code bytes} of audio were read while the ring was full. */
+    public void drop(int bytes) {
+        overruns.incrementAndGet();
+        droppedFrames.addAndGet(bytes / frameBytes);
+    }
+
+    /** Signal end of stream; the consumer drains what is left and stops. */
+    public void close() {
+        closed = true;
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    // ---- consumer side ----
+
+    /**
+     * Return the oldest published chunk, waiting up to the given time for one
+     * to arrive. Returns {@code null} on timeout, interrupt or once the ring
+     * is closed and drained.
+     */
+    public Chunk poll(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long h = head.get();
+        while (tail.get() == h) {
+            long remaining = deadline - System.nanoTime();
+            if (closed || remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            waiter = Thread.currentThread();
+            if (tail.get() == h && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waiter = null;
+        }
+        return slots[(int) (h & mask)];
+    }
+
+    /** Hand the chunk returned by the last {@link #poll} back to the producer. */
+    public void release() {
+        head.set(head.get() + 1);
+    }
+
+    // ---- statistics ----
+
+    /** Return true once {@link #close()} was called and every chunk consumed. */
+    public boolean isDrained() {
+        return closed && tail.get() == head.get();
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /** Number of chunks published but not yet released by the consumer. */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /** Largest fill level seen since the ring was created. */
+    public long getHighWaterMark() {
+        return highWater.get();
+    }
+
+    /** Number of times the producer found the ring full. */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /** Number of audio frames discarded because the ring was full. */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("fill=%d/%d peak=%d overruns=%d dropped=%d frames",
+                size(), slots.length, getHighWaterMark(), getOverruns(), getDroppedFrames());
+    }
+}
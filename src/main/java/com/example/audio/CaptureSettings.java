@@ -0,0 +1,122 @@
+package com.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * How audio is read from the line: the size of each chunk handed to the
+ * recognizer and the size of the sound driver's buffer. Small chunks lower the
+ * delay before a word shows up as a partial result at the cost of more decoder
+ * calls; large chunks and a large line buffer decode more efficiently and
+ * survive longer stalls.
+ */
+public final class CaptureSettings {
+    /** Ready-made trade-offs between latency and throughput. */
+    public enum Preset {
+        LOW_LATENCY("Low latency", 40, 100),
+        BALANCED("Balanced", 128, 0),
+        THROUGHPUT("Throughput", 256, 1000);
+
+        private final String label;
+        private final int chunkMs;
+        private final int lineBufferMs;
+
+        Preset(String label, int chunkMs, int lineBufferMs) {
+            this.label = label;
+            this.chunkMs = chunkMs;
+            this.lineBufferMs = lineBufferMs;
+        }
+
+        public CaptureSettings getSettings() {
+            return new CaptureSettings(chunkMs, lineBufferMs);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** System property with the default preset name, e.g. {@code low_latency}. */
+    public static final String PRESET_PROPERTY = "vosstt.capture.preset";
+    /** System property overriding the default chunk length in milliseconds. */
+    public static final String CHUNK_PROPERTY = "vosstt.capture.chunkMs";
+    /** System property overriding the default line buffer in milliseconds; 0 keeps the driver's. */
+    public static final String LINE_BUFFER_PROPERTY = "vosstt.capture.lineBufferMs";
+    private static final int MIN_CHUNK_MS = 10;
+    private static final int MAX_CHUNK_MS = 1000;
+    private static final int MAX_LINE_BUFFER_MS = 5000;
+    /** Audio the capture ring can hold while the decoder is busy. */
+    private static final int RING_MS = 4000;
+
+    private final int chunkMs;
+    private final int lineBufferMs;
+
+    /** Chunks of {@code chunkMs} and a line buffer of {@code lineBufferMs}, 0 for the driver default. */
+    public CaptureSettings(int chunkMs, int lineBufferMs) {
+        this.chunkMs = Math.max(MIN_CHUNK_MS, Math.min(MAX_CHUNK_MS, chunkMs));
+        this.lineBufferMs = Math.max(0, Math.min(MAX_LINE_BUFFER_MS, lineBufferMs));
+    }
+
+    /** Balanced settings, adjusted by {@link #PRESET_PROPERTY}, {@link #CHUNK_PROPERTY} and {@link #LINE_BUFFER_PROPERTY}. */
+    public static CaptureSettings fromProperties() {
+        CaptureSettings base = Preset.BALANCED.getSettings();
+        String preset = System.getProperty(PRESET_PROPERTY);
+        if (preset != null) {
+            try {
+                base = Preset.valueOf(preset.trim().toUpperCase()).getSettings();
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return new CaptureSettings(Integer.getInteger(CHUNK_PROPERTY, base.chunkMs),
+                Integer.getInteger(LINE_BUFFER_PROPERTY, base.lineBufferMs));
+    }
+
+    public int getChunkMs() {
+        return chunkMs;
+    }
+
+    /** Line buffer length in milliseconds, 0 for the driver default. */
+    public int getLineBufferMs() {
+        return lineBufferMs;
+    }
+
+    /** The preset these settings equal, or {@code null} if they are custom. */
+    public Preset getPreset() {
+        for (Preset p : Preset.values()) {
+            if (p.chunkMs == chunkMs && p.lineBufferMs == lineBufferMs) return p;
+        }
+        return null;
+    }
+
+    /** Chunk size in bytes for {@code format}, a whole number of frames. */
+    public int getChunkBytes(AudioFormat format) {
+        return toBytes(chunkMs, format);
+    }
+
+    /** Number of ring slots needed to hold a few seconds of chunks. */
+    public int getRingChunks() {
+        return Math.max(8, RING_MS / chunkMs);
+    }
+
+    /** Open {@code line} with the configured buffer size. */
+    public void open(TargetDataLine line, AudioFormat format) throws LineUnavailableException {
+        if (lineBufferMs > 0) {
+            // The driver needs room for at least two reads.
+            line.open(format, Math.max(toBytes(lineBufferMs, format), 2 * getChunkBytes(format)));
+        } else {
+            line.open(format);
+        }
+    }
+
+    private static int toBytes(int ms, AudioFormat format) {
+        int frames = Math.max(1, Math.round(format.getFrameRate() * ms / 1000f));
+        return frames * format.getFrameSize();
+    }
+
+    @Override
+    public String toString() {
+        return "chunk " + chunkMs + " ms, line buffer " + (lineBufferMs > 0 ? lineBufferMs + " ms" : "default");
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.audio;
+
+import java.nio.ByteOrder;
+import java.util.logging.Logger;
+
+/**
+ * The per-sample loop of {@link SignalConditioner}: one pass over 16-bit
+ * little-endian PCM that converts to float, subtracts a DC offset, sums,
+ * squares and takes the peak of the result, applies a gain ramp and writes
+ * the conditioned samples back in place.
+ */
+abstract class DspKernel {
+    private static final Logger LOG = Logger.getLogger(DspKernel.class.getName());
+    /** Slots of the statistics array filled by {@link #process}. */
+    static final int SUM = 0, SUM_SQUARES = 1, PEAK = 2;
+
+    /**
+     * Condition {@code samples} samples of {@code pcm} in place: sample i
+     * becomes {@code (x - dc) * (gain + i * gainStep)}, saturated to 16 bits
+     * and truncated. The sum, sum of squares and largest magnitude of
+     * {@code x - dc} are stored in {@code stats}.
+     */
+    abstract void process(byte[] pcm, int samples, float dc, float gain, float gainStep, float[] stats);
+
+    /** Short description for logs. */
+    abstract String describe();
+
+    /**
+     * The Vector API kernel if {@code vector} is set and the JVM runs with
+     * {@code --add-modules jdk.incubator.vector} on a little-endian platform,
+     * otherwise the scalar one.
+     */
+    static DspKernel create(boolean vector) {
+        if (!vector) return new ScalarDspKernel();
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            LOG.fine("jdk.incubator.vector not loaded, using the scalar DSP kernel");
+            return new ScalarDspKernel();
+        }
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            return new ScalarDspKernel();
+        }
+        try {
+            return new VectorDspKernel();
+        } catch (LinkageError | UnsupportedOperationException | IllegalArgumentException e) {
+            // No vector shape fits, e.g. without SIMD support.
+            LOG.fine(() -> "Vector API unusable, using the scalar DSP kernel: " + e);
+            return new ScalarDspKernel();
+        }
+    }
+}
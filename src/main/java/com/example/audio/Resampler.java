@@ -0,0 +1,228 @@
+package com.example.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Arrays;
+
+/**
+ * Converts signed PCM at a device's native rate, width and channel count to
+ * 16-bit little-endian mono at the recognizer's rate, so devices that only
+ * offer e.g. 48 kHz stereo can be captured without the driver converting.
+ * <p>
+ * Channels are averaged, then a polyphase FIR filter resamples by the
+ * rational factor L/M, e.g. 1/3 for 48 kHz and 160/441 for 44.1 kHz to
+ * 16 kHz. The prototype low-pass is a Kaiser-windowed sinc cut off just below
+ * the output Nyquist frequency, with about 80 dB stop-band attenuation from
+ * it on. Each output sample reads only its own phase of the filter,
+ * {@value #BASE_TAPS} taps times the decimation ratio M/L (about 190 taps
+ * from 48 or 44.1 kHz), so the transition band has the same width whatever
+ * the input rate. All buffers are allocated up front; {@link #process}
+ * allocates only if called with more input than announced.
+ * <p>
+ * Not thread-safe; one instance per stream.
+ */
+public final class Resampler {
+    /** Filter taps per polyphase branch without decimation. */
+    static final int BASE_TAPS = 64;
+    /** Kaiser window shape for about 80 dB stop-band attenuation. */
+    private static final double KAISER_BETA = 8.0;
+    /** Pass band edge relative to the output Nyquist frequency. */
+    private static final double ROLLOFF = 0.9;
+
+    private final int channels;
+    private final int sampleBytes;
+    private final int frameBytes;
+    private final boolean bigEndian;
+    private final int up;
+    private final int down;
+    /** Filter taps per polyphase branch. */
+    private final int taps;
+    /** Coefficients by phase, oldest input first: {@code coef[p * taps + taps - 1]} applies to the newest. */
+    private final float[] coef;
+    /** Input samples still needed: at least the last {@code taps - 1}, then any not yet consumed. */
+    private float[] history;
+    /** Samples held in {@link #history}. */
+    private int held;
+    /** Position of the next output in prototype units (input index times {@code up}). */
+    private long position;
+
+    /**
+     * A resampler from {@code in} to mono at {@code outRate}. Calls with the
+     * {@link #inputBytesFor input} for up to {@code maxOutputBytes} are
+     * handled without allocating.
+     *
+     * @throws IllegalArgumentException if {@code in} is not 8 to 32-bit signed PCM at a whole number of Hz
+     */
+    public Resampler(AudioFormat in, float outRate, int maxOutputBytes) {
+        if (!AudioFormat.Encoding.PCM_SIGNED.equals(in.getEncoding())
+                || in.getSampleSizeInBits() % 8 != 0 || in.getSampleSizeInBits() > 32 || in.getChannels() < 1) {
+            throw new IllegalArgumentException("Unsupported capture format " + in);
+        }
+        int inHz = Math.round(in.getSampleRate());
+        int outHz = Math.round(outRate);
+        if (inHz <= 0 || outHz <= 0 || inHz != in.getSampleRate() || outHz != outRate) {
+            throw new IllegalArgumentException("Unsupported sample rates " + in.getSampleRate() + " -> " + outRate);
+        }
+        this.channels = in.getChannels();
+        this.sampleBytes = in.getSampleSizeInBits() / 8;
+        this.frameBytes = sampleBytes * channels;
+        this.bigEndian = in.isBigEndian();
+        int g = gcd(inHz, outHz);
+        this.up = outHz / g;
+        this.down = inHz / g;
+        // A multiple of four, for the unrolled inner loop.
+        this.taps = ((int) Math.ceil(BASE_TAPS * Math.max(1.0, (double) down / up)) + 3) & ~3;
+        this.coef = design(up, down, taps);
+        this.history = new float[taps - 1 + inputBytesFor(maxOutputBytes) / frameBytes];
+        this.held = taps - 1;
+        this.position = (long) held * up;
+    }
+
+    /** Filter taps per polyphase branch, the multiply-adds per output sample. */
+    public int getTaps() {
+        return taps;
+    }
+
+    /** Interpolation factor L. */
+    public int getUpFactor() {
+        return up;
+    }
+
+    /** Decimation factor M. */
+    public int getDownFactor() {
+        return down;
+    }
+
+    /** Whole input frames that produce at most {@code outputBytes} of output, in bytes. */
+    public int inputBytesFor(int outputBytes) {
+        long outFrames = outputBytes / 2;
+        return (int) Math.max(1, outFrames * down / up) * frameBytes;
+    }
+
+    /**
+     * Resample {@code length} bytes of whole input frames into {@code out}
+     * and return the number of bytes written. Input from earlier calls is
+     * remembered, so consecutive calls produce a continuous signal; output
+     * that does not fit into {@code out} is produced by the next call.
+     */
+    public int process(byte[] in, int length, byte[] out) {
+        int frames = length / frameBytes;
+        int taps = this.taps;
+        int keep = taps - 1;
+        if (held + frames > history.length) {
+            history = Arrays.copyOf(history, held + frames);
+        }
+        decode(in, frames, history, held);
+        int available = held + frames;
+        float[] x = history;
+        int written = 0;
+        int limit = out.length - 1;
+        long pos = position;
+        // An output at prototype time pos needs inputs base-taps+1 .. base.
+        while (written < limit) {
+            int base = (int) (pos / up);
+            if (base >= available) break;
+            int phase = (int) (pos - (long) base * up);
+            int c = phase * taps;
+            int first = base - keep;
+            // Four independent sums keep the multiply-adds from waiting on each other.
+            float a0 = 0, a1 = 0, a2 = 0, a3 = 0;
+            for (int k = 0; k < taps; k += 4) {
+                a0 += coef[c + k] * x[first + k];
+                a1 += coef[c + k + 1] * x[first + k + 1];
+                a2 += coef[c + k + 2] * x[first + k + 2];
+                a3 += coef[c + k + 3] * x[first + k + 3];
+            }
+            int v = Math.round((a0 + a1) + (a2 + a3));
+            if (v > Short.MAX_VALUE) v = Short.MAX_VALUE;
+            else if (v < Short.MIN_VALUE) v = Short.MIN_VALUE;
+            out[written++] = (byte) v;
+            out[written++] = (byte) (v >> 8);
+            pos += down;
+        }
+        // Keep what the next output needs and move the clock with it.
+        int drop = (int) Math.min(available - keep, pos / up - keep);
+        held = available - drop;
+        System.arraycopy(x, drop, x, 0, held);
+        position = pos - (long) drop * up;
+        return written;
+    }
+
+    /** Average the channels of each frame into {@code dst} from {@code offset}, in 16-bit units. */
+    private void decode(byte[] in, int frames, float[] dst, int offset) {
+        float scale = (float) (1 / (channels * Math.pow(2, 8 * sampleBytes - 16)));
+        if (sampleBytes == 2 && !bigEndian) {
+            // The common case, kept free of the generic byte loop.
+            for (int f = 0, i = 0; f < frames; f++) {
+                int sum = 0;
+                for (int c = 0; c < channels; c++, i += 2) {
+                    sum += (short) ((in[i] & 0xff) | (in[i + 1] << 8));
+                }
+                dst[offset + f] = sum * scale;
+            }
+            return;
+        }
+        for (int f = 0, i = 0; f < frames; f++) {
+            long sum = 0;
+            for (int c = 0; c < channels; c++, i += sampleBytes) {
+                sum += sample(in, i);
+            }
+            dst[offset + f] = sum * scale;
+        }
+    }
+
+    private int sample(byte[] in, int i) {
+        int v = 0;
+        for (int b = 0; b < sampleBytes; b++) {
+            int octet = in[bigEndian ? i + b : i + sampleBytes - 1 - b] & 0xff;
+            v = (v << 8) | octet;
+        }
+        int shift = 32 - 8 * sampleBytes;
+        return (v << shift) >> shift;
+    }
+
+    /** Polyphase branches of a Kaiser-windowed sinc for resampling by up/down. */
+    private static float[] design(int up, int down, int taps) {
+        int n = taps * up;
+        double center = (n - 1) / 2.0;
+        // Cut-off in cycles per prototype sample, below both Nyquist limits.
+        double fc = ROLLOFF * 0.5 / Math.max(up, down);
+        double i0Beta = besselI0(KAISER_BETA);
+        float[] coef = new float[n];
+        for (int i = 0; i < n; i++) {
+            double t = i - center;
+            double sinc = t == 0 ? 1 : Math.sin(2 * Math.PI * fc * t) / (2 * Math.PI * fc * t);
+            double r = t / (center + 1);
+            double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / i0Beta;
+            double h = 2 * fc * up * sinc * window;
+            // Prototype tap i belongs to phase i mod up, as the (i / up)-th most recent input.
+            coef[(i % up) * taps + taps - 1 - i / up] = (float) h;
+        }
+        return coef;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        for (int k = 1; k < 50; k++) {
+            term *= (x / (2 * k)) * (x / (2 * k));
+            sum += term;
+            if (term < 1e-12 * sum) break;
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d polyphase, %d taps per phase, %d channel(s), %d-bit", up, down, taps,
+                channels, sampleBytes * 8);
+    }
+}
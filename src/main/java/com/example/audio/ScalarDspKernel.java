@@ -0,0 +1,37 @@
+package com.example.audio;
+
+/**
+ * {@link DspKernel} one sample at a time, for JVMs without the Vector API.
+ * The statistics are summed exactly on the integer samples and corrected for
+ * the DC offset afterwards, which keeps floating point out of the loop's
+ * dependency chains.
+ */
+final class ScalarDspKernel extends DspKernel {
+    @Override
+    void process(byte[] pcm, int samples, float dc, float gain, float gainStep, float[] stats) {
+        long sum = 0;
+        long squares = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0, b = 0; i < samples; i++, b += 2) {
+            int x = (short) ((pcm[b] & 0xff) | (pcm[b + 1] << 8));
+            sum += x;
+            squares += x * x;
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+            int v = (int) ((x - dc) * (gain + i * gainStep));
+            v = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+            pcm[b] = (byte) v;
+            pcm[b + 1] = (byte) (v >> 8);
+        }
+        // Sums of x - dc from the sums of x.
+        stats[SUM] = (float) (sum - (double) samples * dc);
+        stats[SUM_SQUARES] = (float) (squares - 2.0 * dc * sum + (double) samples * dc * dc);
+        stats[PEAK] = Math.max(max - dc, dc - min);
+    }
+
+    @Override
+    String describe() {
+        return "scalar";
+    }
+}
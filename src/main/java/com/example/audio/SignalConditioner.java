@@ -0,0 +1,137 @@
+package com.example.audio;
+
+import java.util.logging.Logger;
+
+/**
+ * Conditions each chunk of 16-bit mono PCM in place before the voice gate
+ * and the recognizer, in a single pass: the samples are converted to float,
+ * the DC offset of cheap microphones is removed, the RMS and peak level are
+ * measured for the level meter, and a slowly adapting gain brings quiet
+ * speakers up towards normal speech level. The gain follows only chunks
+ * clearly above the noise floor and holds through pauses, so silence is not
+ * amplified and speech after a pause is not clipped by a gain that rose
+ * during it.
+ * <p>
+ * The pass runs on {@code jdk.incubator.vector} when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}, and falls back to a scalar loop
+ * otherwise. DC offset and gain are estimated from earlier chunks, and the
+ * gain rises in a ramp across the chunk, so nothing needs a second pass.
+ * It falls at once when louder speech arrives, which clips at most the chunk
+ * that brought it.
+ * <p>
+ * Not thread-safe; one instance per stream.
+ */
+public final class SignalConditioner {
+    private static final Logger LOG = Logger.getLogger(SignalConditioner.class.getName());
+    /** System property that, set to {@code false}, forces the scalar loop. */
+    public static final String VECTOR_PROPERTY = "vosstt.dsp.vector";
+    /** System property that, set to {@code false}, keeps the input gain at 1. */
+    public static final String NORMALIZE_PROPERTY = "vosstt.dsp.normalize";
+    /** RMS that gain normalization aims at, about -20 dBFS. */
+    private static final double TARGET_RMS = 3277;
+    /** Most the input is amplified (+12 dB); louder input is never attenuated. */
+    private static final double MAX_GAIN = 4;
+    /** Time constant of the DC offset estimate. */
+    private static final double DC_SECONDS = 1;
+    /** Time constant of the speech level estimate falling to a quieter speaker. */
+    private static final double LEVEL_SECONDS = 5;
+    /** Time constant of the noise floor rising to louder surroundings. */
+    private static final double FLOOR_SECONDS = 5;
+    /** RMS above the noise floor (about +10 dB) and above {@link #MIN_ACTIVE_RMS} that counts as speech. */
+    private static final double ACTIVE_FACTOR = 3;
+    private static final double MIN_ACTIVE_RMS = 160;
+
+    private final DspKernel kernel;
+    private final double sampleRate;
+    private final boolean normalize;
+    private final float[] stats = new float[3];
+
+    private double dc;
+    private double gain = 1;
+    private double targetGain = 1;
+    /** RMS of speech, followed over chunks above the noise floor. */
+    private double speechLevel = TARGET_RMS;
+    private double noiseFloor = -1;
+    private double rms;
+    private double peak;
+
+    /** A conditioner for {@code sampleRate}, configured by {@link #VECTOR_PROPERTY} and {@link #NORMALIZE_PROPERTY}. */
+    public SignalConditioner(float sampleRate) {
+        this(sampleRate, !"false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY)),
+                !"false".equalsIgnoreCase(System.getProperty(NORMALIZE_PROPERTY)));
+    }
+
+    /**
+     * A conditioner for {@code sampleRate} using the Vector API if
+     * {@code vector} is set and it is available, and normalizing the gain if
+     * {@code normalize} is set.
+     */
+    public SignalConditioner(float sampleRate, boolean vector, boolean normalize) {
+        this.kernel = DspKernel.create(vector);
+        this.sampleRate = sampleRate;
+        this.normalize = normalize;
+        LOG.fine(() -> "Signal conditioner: " + kernel.describe());
+    }
+
+    /** Condition {@code length} bytes of {@code pcm} in place and measure their level. */
+    public void process(byte[] pcm, int length) {
+        int samples = length / 2;
+        if (samples == 0) return;
+        if (targetGain < gain) gain = targetGain;
+        kernel.process(pcm, samples, (float) dc, (float) gain, (float) ((targetGain - gain) / samples), stats);
+        gain = targetGain;
+        double mean = stats[DspKernel.SUM] / samples;
+        rms = Math.sqrt(stats[DspKernel.SUM_SQUARES] / samples);
+        peak = stats[DspKernel.PEAK];
+        double seconds = samples / sampleRate;
+        dc += mean * Math.min(1, seconds / DC_SECONDS);
+        if (!normalize) return;
+        if (noiseFloor < 0 || rms < noiseFloor) {
+            noiseFloor = rms;
+        } else {
+            noiseFloor += (rms - noiseFloor) * Math.min(1, seconds / FLOOR_SECONDS);
+        }
+        // Rise at once with louder speech, fall slowly with quieter speech, hold through pauses.
+        if (rms > speechLevel) {
+            speechLevel = rms;
+        } else if (rms > Math.max(MIN_ACTIVE_RMS, noiseFloor * ACTIVE_FACTOR)) {
+            speechLevel += (rms - speechLevel) * Math.min(1, seconds / LEVEL_SECONDS);
+        }
+        targetGain = Math.max(1, Math.min(MAX_GAIN, TARGET_RMS / speechLevel));
+    }
+
+    /** Whether the pass runs on the Vector API. */
+    public boolean isVectorized() {
+        return kernel instanceof VectorDspKernel;
+    }
+
+    /** RMS of the last chunk before the gain, in 16-bit sample units. */
+    public double getRms() {
+        return rms;
+    }
+
+    /** Largest sample magnitude of the last chunk before the gain. */
+    public double getPeak() {
+        return peak;
+    }
+
+    /** Current DC offset estimate, in 16-bit sample units. */
+    public double getDcOffset() {
+        return dc;
+    }
+
+    /** Gain applied at the end of the last chunk. */
+    public double getGain() {
+        return gain;
+    }
+
+    /** Input level of the last chunk for a meter, 0-100 on a decibel scale. */
+    public int getLevel() {
+        return AudioLevels.meterLevel(rms);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, dc=%.0f gain=%.2f", kernel.describe(), dc, gain);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.audio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds silence boundaries in a 16-bit mono PCM stream so a long recording can
+ * be cut into chunks that are decoded independently. PCM is fed in arbitrary
+ * pieces; the RMS of every frame is kept (a few bytes per frame, so hours of
+ * audio cost well under a megabyte) and {@link #split()} then picks the cuts.
+ * <p>
+ * Each chunk is at least {@code minChunkMs} long. After that the first run of
+ * {@code minSilenceMs} below the silence threshold ends the chunk, cutting in
+ * the middle of the pause. If no pause is found before {@code maxChunkMs}, the
+ * quietest frame in the window is used instead.
+ */
+public final class SilenceSplitter {
+    /** A byte range of the PCM stream. */
+    public static final class Span {
+        private final long start;
+        private final long end;
+
+        Span(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start;
+        }
+    }
+
+    /** RMS below which audio always counts as silence (about -50 dBFS). */
+    private static final double MIN_THRESHOLD = 100;
+    /** Silence threshold relative to the measured noise floor. */
+    private static final double FLOOR_FACTOR = 2.0;
+
+    private final int frameBytes;
+    private final int frameMs;
+    private final int minSilenceFrames;
+    private final int minChunkFrames;
+    private final int maxChunkFrames;
+    private final byte[] partial;
+    private int partialLength;
+    private float[] frameRms = new float[1024];
+    private int frames;
+    private long totalBytes;
+
+    /**
+     * @param sampleRate PCM sample rate in Hz
+     * @param frameMs    analysis window length
+     */
+    public SilenceSplitter(float sampleRate, int frameMs, int minSilenceMs, int minChunkMs, int maxChunkMs) {
+        this.frameMs = frameMs;
+        this.frameBytes = (int) (sampleRate * frameMs / 1000) * 2;
+        this.minSilenceFrames = Math.max(1, minSilenceMs / frameMs);
+        this.minChunkFrames = Math.max(1, minChunkMs / frameMs);
+        this.maxChunkFrames = Math.max(minChunkFrames + 1, maxChunkMs / frameMs);
+        this.partial = new byte[frameBytes];
+    }
+
+    /** Analyse the next piece of the PCM stream. */
+    public void accept(byte[] pcm, int length) {
+        totalBytes += length;
+        int pos = 0;
+        if (partialLength > 0) {
+            int take = Math.min(length, frameBytes - partialLength);
+            System.arraycopy(pcm, 0, partial, partialLength, take);
+            partialLength += take;
+            pos = take;
+            if (partialLength < frameBytes) return;
+            addFrame(AudioLevels.rms(partial, 0, frameBytes));
+            partialLength = 0;
+        }
+        while (length - pos >= frameBytes) {
+            addFrame(AudioLevels.rms(pcm, pos, frameBytes));
+            pos += frameBytes;
+        }
+        partialLength = length - pos;
+        System.arraycopy(pcm, pos, partial, 0, partialLength);
+    }
+
+    private void addFrame(double rms) {
+        if (frames == frameRms.length) {
+            frameRms = Arrays.copyOf(frameRms, frames * 2);
+        }
+        frameRms[frames++] = (float) rms;
+    }
+
+    /** Total number of PCM bytes analysed. */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /** RMS level under which a frame counts as silence. */
+    public double getThreshold() {
+        if (frames == 0) return MIN_THRESHOLD;
+        float[] sorted = Arrays.copyOf(frameRms, frames);
+        Arrays.sort(sorted);
+        double floor = sorted[frames / 10];
+        return Math.max(MIN_THRESHOLD, floor * FLOOR_FACTOR);
+    }
+
+    /** Split everything analysed so far into consecutive chunks. */
+    public List<Span> split() {
+        double threshold = getThreshold();
+        List<Span> spans = new ArrayList<>();
+        int chunkStart = 0;
+        while (frames - chunkStart > maxChunkFrames) {
+            int cut = -1;
+            int run = 0;
+            int from = chunkStart + minChunkFrames;
+            int quietest = from;
+            for (int i = from; i < chunkStart + maxChunkFrames; i++) {
+                if (frameRms[i] < threshold) {
+                    if (++run >= minSilenceFrames) {
+                        cut = i - run / 2;
+                        break;
+                    }
+                } else {
+                    run = 0;
+                }
+                if (frameRms[i] < frameRms[quietest]) {
+                    quietest = i;
+                }
+            }
+            if (cut < 0) {
+                cut = quietest;
+            }
+            spans.add(new Span((long) chunkStart * frameBytes, (long) cut * frameBytes));
+            chunkStart = cut;
+        }
+        spans.add(new Span((long) chunkStart * frameBytes, totalBytes));
+        return spans;
+    }
+
+    /** Length of the analysis window in milliseconds. */
+    public int getFrameMs() {
+        return frameMs;
+    }
+}
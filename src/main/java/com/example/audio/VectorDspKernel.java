@@ -0,0 +1,68 @@
+package com.example.audio;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link DspKernel} on the preferred float vector width: each step loads the
+ * bytes of as many samples as there are float lanes, widens them to float,
+ * updates the running sum, square sum and peak vectors and narrows the
+ * conditioned samples back into the same bytes. Only loaded when the JVM runs
+ * with {@code jdk.incubator.vector}; see {@link DspKernel#create}.
+ */
+final class VectorDspKernel extends DspKernel {
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    /** Half the float width: as many 16-bit lanes as {@link #F} has float lanes. */
+    private static final VectorSpecies<Byte> B =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(F.vectorBitSize() / 2));
+    private static final VectorSpecies<Short> S =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(F.vectorBitSize() / 2));
+    /** Lane indexes 0, 1, 2, ... for the gain ramp. */
+    private static final FloatVector IOTA = FloatVector.zero(F).addIndex(1);
+
+    @Override
+    void process(byte[] pcm, int samples, float dc, float gain, float gainStep, float[] stats) {
+        int lanes = F.length();
+        int bound = F.loopBound(samples);
+        FloatVector offset = FloatVector.broadcast(F, dc);
+        FloatVector sum = FloatVector.zero(F);
+        FloatVector squares = FloatVector.zero(F);
+        FloatVector peak = FloatVector.zero(F);
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            ShortVector x = ByteVector.fromArray(B, pcm, 2 * i).reinterpretAsShorts();
+            FloatVector d = ((FloatVector) x.convertShape(VectorOperators.S2F, F, 0)).sub(offset);
+            sum = sum.add(d);
+            squares = d.fma(d, squares);
+            peak = peak.max(d.abs());
+            // gain + (i + lane) * gainStep, rounded as the scalar kernel rounds it.
+            FloatVector g = IOTA.add(i).mul(gainStep).add(gain);
+            FloatVector y = d.mul(g).max(Short.MIN_VALUE).min(Short.MAX_VALUE);
+            ((ShortVector) y.convertShape(VectorOperators.F2S, S, 0)).reinterpretAsBytes().intoArray(pcm, 2 * i);
+        }
+        float s = sum.reduceLanes(VectorOperators.ADD);
+        float q = squares.reduceLanes(VectorOperators.ADD);
+        float p = peak.reduceLanes(VectorOperators.MAX);
+        for (int b = 2 * i; i < samples; i++, b += 2) {
+            float d = (short) ((pcm[b] & 0xff) | (pcm[b + 1] << 8)) - dc;
+            s += d;
+            q += d * d;
+            p = Math.max(p, Math.abs(d));
+            int v = (int) Math.min(Short.MAX_VALUE, Math.max(Short.MIN_VALUE, d * (gain + i * gainStep)));
+            pcm[b] = (byte) v;
+            pcm[b + 1] = (byte) (v >> 8);
+        }
+        stats[SUM] = s;
+        stats[SUM_SQUARES] = q;
+        stats[PEAK] = p;
+    }
+
+    @Override
+    String describe() {
+        return "Vector API, " + F.vectorBitSize() + "-bit";
+    }
+}
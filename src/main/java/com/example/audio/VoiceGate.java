@@ -0,0 +1,222 @@
+package com.example.audio;
+
+import java.io.IOException;
+
+/**
+ * Energy-based voice activity gate between capture and the recognizer, so the
+ * decoder does not spend a core on a quiet room.
+ * <p>
+ * Each chunk is split into 10 ms frames; the chunk counts as voiced when its
+ * loudest frame is clearly above the noise floor, which follows the quietest
+ * frames. While the gate is closed, audio is kept in a short pre-roll buffer
+ * that is fed ahead of the first voiced chunk so word onsets are not clipped.
+ * After the last voiced chunk the gate stays open for a hangover period, then
+ * until the recognizer reports a final result for the utterance, up to a
+ * maximum trailing length. Only that much silence is decoded; the rest is
+ * skipped.
+ */
+public final class VoiceGate {
+    /** Receives the audio that passes the gate. */
+    public interface Sink {
+        /** Decode {@code length} bytes of {@code pcm}; return true if this completed an utterance. */
+        boolean accept(byte[] pcm, int length) throws IOException;
+    }
+
+    /** System property that turns the gate off when set to {@code false}. */
+    public static final String ENABLED_PROPERTY = "vosstt.vad";
+    /** RMS below which audio always counts as silence (about -46 dBFS). */
+    private static final double MIN_THRESHOLD = 160;
+    /** Voice threshold relative to the noise floor (about +10 dB). */
+    private static final double FLOOR_FACTOR = 3.0;
+    private static final int FRAME_MS = 10;
+    private static final int PRE_ROLL_MS = 300;
+    private static final int HANGOVER_MS = 500;
+    private static final int MAX_TAIL_MS = 1500;
+
+    private final boolean enabled;
+    private final int frameBytes;
+    private final int hangoverBytes;
+    private final int maxTailBytes;
+    private final byte[] preRoll;
+    private final byte[] scratch;
+    private int preRollStart;
+    private int preRollLength;
+
+    private boolean open;
+    private boolean finalized;
+    private long sinceVoice;
+    private double noiseFloor = -1;
+    private double lastRms;
+
+    private long totalBytes;
+    private long passedBytes;
+    private long feedOffset;
+    private long utterances;
+    private long decodeNanos;
+
+    /** Gate for 16-bit mono PCM at {@code sampleRate}, on unless {@link #ENABLED_PROPERTY} says otherwise. */
+    public VoiceGate(float sampleRate) {
+        this(sampleRate, !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY)));
+    }
+
+    /** A disabled gate passes all audio through but still keeps level and timing statistics. */
+    public VoiceGate(float sampleRate, boolean enabled) {
+        int bytesPerMs = Math.max(2, (int) (sampleRate / 1000) * 2);
+        this.enabled = enabled;
+        this.frameBytes = FRAME_MS * bytesPerMs;
+        this.hangoverBytes = HANGOVER_MS * bytesPerMs;
+        this.maxTailBytes = MAX_TAIL_MS * bytesPerMs;
+        this.preRoll = new byte[PRE_ROLL_MS * bytesPerMs];
+        this.scratch = new byte[preRoll.length];
+    }
+
+    /** Pass the chunk, preceded by the pre-roll at an onset, to {@code sink} if the gate is open. */
+    public void process(byte[] pcm, int length, Sink sink) throws IOException {
+        long offset = totalBytes;
+        totalBytes += length;
+        boolean voiced = analyse(pcm, length);
+        if (!enabled) {
+            feed(pcm, length, offset, sink);
+            return;
+        }
+        if (voiced) {
+            if (!open) {
+                open = true;
+                utterances++;
+                feedPreRoll(offset, sink);
+            }
+            sinceVoice = 0;
+            finalized = false;
+            feed(pcm, length, offset, sink);
+        } else if (open) {
+            sinceVoice += length;
+            feed(pcm, length, offset, sink);
+            if (sinceVoice >= hangoverBytes && (finalized || sinceVoice >= maxTailBytes)) {
+                open = false;
+            }
+        } else {
+            remember(pcm, length);
+        }
+    }
+
+    /** Whether audio is currently passed to the recognizer. */
+    public boolean isOpen() {
+        return !enabled || open;
+    }
+
+    /**
+     * Offset of the audio being passed to the sink, in bytes of all audio
+     * given to {@link #process}. Lets the sink place what it decodes on the
+     * input timeline, including the pre-roll.
+     */
+    public long getFeedOffset() {
+        return feedOffset;
+    }
+
+    /** RMS of the last chunk, in 16-bit sample units. */
+    public double getLastRms() {
+        return lastRms;
+    }
+
+    /** Current noise floor estimate, in 16-bit sample units. */
+    public double getNoiseFloor() {
+        return Math.max(0, noiseFloor);
+    }
+
+    /** Fraction of the audio that was not decoded. */
+    public double getSkippedFraction() {
+        return totalBytes == 0 ? 0 : 1 - Math.min(1.0, passedBytes / (double) totalBytes);
+    }
+
+    /** Number of times the gate opened. */
+    public long getUtterances() {
+        return utterances;
+    }
+
+    /** Time spent in the sink, i.e. decoding. */
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    /** Decoding time the skipped audio would have cost at the measured decode rate. */
+    public long getSavedNanos() {
+        if (passedBytes == 0) return 0;
+        return (long) ((double) decodeNanos / passedBytes * Math.max(0, totalBytes - passedBytes));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s skipped=%.1f%% utterances=%d decode=%d ms saved~%d ms floor=%.0f",
+                enabled ? "on" : "off", getSkippedFraction() * 100, utterances, decodeNanos / 1_000_000,
+                getSavedNanos() / 1_000_000, getNoiseFloor());
+    }
+
+    /** Update the level and noise floor from the chunk and return whether it is voiced. */
+    private boolean analyse(byte[] pcm, int length) {
+        double peak = 0;
+        double quietest = Double.MAX_VALUE;
+        double energy = 0;
+        int pos = 0;
+        while (pos < length) {
+            int n = Math.min(frameBytes, length - pos);
+            double rms = AudioLevels.rms(pcm, pos, n);
+            peak = Math.max(peak, rms);
+            if (n == frameBytes) quietest = Math.min(quietest, rms);
+            energy += rms * rms * n;
+            pos += n;
+        }
+        lastRms = length == 0 ? 0 : Math.sqrt(energy / length);
+        if (quietest == Double.MAX_VALUE) quietest = peak;
+        boolean voiced = peak > Math.max(MIN_THRESHOLD, getNoiseFloor() * FLOOR_FACTOR);
+        // Fall quickly to quieter surroundings, rise slowly so speech does not raise the floor.
+        if (noiseFloor < 0) {
+            noiseFloor = quietest;
+        } else if (quietest < noiseFloor) {
+            noiseFloor += (quietest - noiseFloor) * 0.3;
+        } else {
+            noiseFloor += (quietest - noiseFloor) * 0.02;
+        }
+        return voiced;
+    }
+
+    private void feed(byte[] pcm, int length, long offset, Sink sink) throws IOException {
+        if (length == 0) return;
+        feedOffset = offset;
+        long t0 = System.nanoTime();
+        if (sink.accept(pcm, length)) {
+            finalized = true;
+        }
+        decodeNanos += System.nanoTime() - t0;
+        passedBytes += length;
+    }
+
+    /** Keep the most recent skipped audio, oldest bytes overwritten first. */
+    private void remember(byte[] pcm, int length) {
+        int from = Math.max(0, length - preRoll.length);
+        for (int i = from; i < length; ) {
+            int end = (preRollStart + preRollLength) % preRoll.length;
+            int n = Math.min(length - i, preRoll.length - end);
+            System.arraycopy(pcm, i, preRoll, end, n);
+            i += n;
+            int overflow = preRollLength + n - preRoll.length;
+            if (overflow > 0) {
+                preRollStart = (preRollStart + overflow) % preRoll.length;
+                preRollLength = preRoll.length;
+            } else {
+                preRollLength += n;
+            }
+        }
+    }
+
+    /** Feed the pre-roll, which ends where the chunk at {@code chunkOffset} begins. */
+    private void feedPreRoll(long chunkOffset, Sink sink) throws IOException {
+        if (preRollLength == 0) return;
+        int first = Math.min(preRollLength, preRoll.length - preRollStart);
+        System.arraycopy(preRoll, preRollStart, scratch, 0, first);
+        System.arraycopy(preRoll, 0, scratch, first, preRollLength - first);
+        int n = preRollLength;
+        preRollStart = 0;
+        preRollLength = 0;
+        feed(scratch, n, chunkOffset - n, sink);
+    }
+}
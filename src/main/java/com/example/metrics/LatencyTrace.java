@@ -0,0 +1,90 @@
+package com.example.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * End-to-end latency of one session. Every audio chunk carries the
+ * {@link System#nanoTime()} at which it was read from the line; each stage
+ * that handles text derived from the chunk records the time since then in
+ * its own {@link LatencyHistogram}. A tag of 0 means "not traced" and is
+ * ignored.
+ */
+public final class LatencyTrace {
+    /** Summary written to the session directory. */
+    public static final String FILE_NAME = "latency.txt";
+
+    /** Points at which latency is measured, in pipeline order. */
+    public enum Stage {
+        /** The recognizer returned from decoding the chunk. */
+        DECODE("decode", "acceptWaveForm returned"),
+        /** A final result was parsed on the recognition thread. */
+        RESULT("result", "final result parsed"),
+        /** A changed partial result was taken by the UI thread. */
+        PARTIAL("partial", "partial result shown"),
+        /** A final result was taken by the UI thread. */
+        DISPLAY("display", "final result shown"),
+        /** A segment was written to the journal, and synced if the policy asks for it. */
+        DISK("disk", "segment written to journal");
+
+        private final String label;
+        private final String description;
+
+        Stage(String label, String description) {
+            this.label = label;
+            this.description = description;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+    public LatencyTrace() {
+        for (Stage s : Stage.values()) {
+            histograms.put(s, new LatencyHistogram());
+        }
+    }
+
+    /** Record the time from {@code captureNanos} to now at {@code stage}. */
+    public void record(Stage stage, long captureNanos) {
+        if (captureNanos != 0) {
+            histograms.get(stage).recordNanos(System.nanoTime() - captureNanos);
+        }
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    /** One line per stage that recorded anything: count, p50, p90, p99 and max in milliseconds. */
+    public String summary() {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %8s %9s %9s %9s %9s  %s%n",
+                "stage", "count", "p50", "p90", "p99", "max", "capture to"));
+        for (Stage s : Stage.values()) {
+            LatencyHistogram h = histograms.get(s);
+            if (h.getCount() == 0) continue;
+            sb.append(String.format("%-8s %8d %9.1f %9.1f %9.1f %9.1f  %s%n", s.getLabel(), h.getCount(),
+                    h.getPercentileNanos(50) / 1e6, h.getPercentileNanos(90) / 1e6,
+                    h.getPercentileNanos(99) / 1e6, h.getMaxNanos() / 1e6, s.getDescription()));
+        }
+        return sb.toString();
+    }
+
+    /** Write the {@link #summary()} to {@value #FILE_NAME} in {@code dir}. */
+    public Path write(Path dir) throws IOException {
+        Path file = dir.resolve(FILE_NAME);
+        Files.writeString(file, "# Latency from audio capture, milliseconds\n" + summary(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
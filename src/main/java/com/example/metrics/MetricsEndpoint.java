@@ -0,0 +1,135 @@
+package com.example.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves {@link RecognitionMetrics} in the Prometheus text format at
+ * {@code /metrics} on the loopback interface. Off unless
+ * {@value #PORT_PROPERTY} is set. Scrapes are rare, so one thread and
+ * {@code com.sun.net.httpserver} suffice.
+ */
+public final class MetricsEndpoint {
+    private static final Logger LOG = Logger.getLogger(MetricsEndpoint.class.getName());
+    /** System property with the port to listen on; 0 picks a free one. */
+    public static final String PORT_PROPERTY = "vosstt.metrics.port";
+
+    private final HttpServer server;
+
+    private MetricsEndpoint(HttpServer server) {
+        this.server = server;
+    }
+
+    /** Start the endpoint if {@value #PORT_PROPERTY} is set; returns {@code null} otherwise or on failure. */
+    public static MetricsEndpoint startFromProperty() {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) return null;
+        try {
+            return start(port);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to start metrics endpoint on port " + port, e);
+            return null;
+        }
+    }
+
+    /** Listen on {@code port} of the loopback interface. */
+    public static MetricsEndpoint start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", MetricsEndpoint::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-endpoint");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        LOG.info("Metrics endpoint listening on http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/metrics");
+        return new MetricsEndpoint(server);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render(RecognitionMetrics.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /** The metrics in the Prometheus text exposition format. */
+    static String render(RecognitionMetrics m) {
+        StringBuilder sb = new StringBuilder(2048);
+        metric(sb, "vosstt_real_time_factor", "gauge",
+                "Processing time per second of captured audio over the last 10-20 s", m.getRealTimeFactor());
+        sb.append("# HELP vosstt_stream_real_time_factor Processing time per second of audio of each active stream\n");
+        sb.append("# TYPE vosstt_stream_real_time_factor gauge\n");
+        for (RecognitionMetrics.Session s : m.getSessions()) {
+            sb.append("vosstt_stream_real_time_factor{stream=\"").append(escape(s.getLabel())).append("\"} ")
+                    .append(format(s.getRealTimeFactor())).append('\n');
+        }
+        metric(sb, "vosstt_chunks_per_second", "gauge",
+                "Audio chunks processed per second over the last 10-20 s", m.getChunksPerSecond());
+        metric(sb, "vosstt_chunks_total", "counter", "Audio chunks processed", m.getChunks());
+        metric(sb, "vosstt_audio_seconds_total", "counter", "Captured audio processed", m.getAudioSeconds());
+        metric(sb, "vosstt_decode_seconds_total", "counter", "Time spent processing captured audio",
+                m.getDecodeSeconds());
+        metric(sb, "vosstt_decode_backlog_chunks", "gauge", "Captured chunks waiting for a decoder",
+                m.getDecodeBacklog());
+        metric(sb, "vosstt_dropped_frames_total", "counter", "Audio frames dropped because a decoder fell behind",
+                m.getDroppedFrames());
+        LatencyHistogram writes = m.getTranscriptWriteHistogram();
+        sb.append("# HELP vosstt_transcript_write_seconds Transcript journal group commit time\n");
+        sb.append("# TYPE vosstt_transcript_write_seconds summary\n");
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            sb.append("vosstt_transcript_write_seconds{quantile=\"").append(q).append("\"} ")
+                    .append(format(writes.getPercentileNanos(q * 100) / 1e9)).append('\n');
+        }
+        sb.append("vosstt_transcript_write_seconds_sum ").append(format(m.getTranscriptWriteSeconds())).append('\n');
+        sb.append("vosstt_transcript_write_seconds_count ").append(writes.getCount()).append('\n');
+        metric(sb, "vosstt_transcript_write_max_seconds", "gauge", "Longest transcript journal group commit",
+                writes.getMaxNanos() / 1e9);
+        metric(sb, "vosstt_active_sessions", "gauge", "Recognition sessions running", m.getActiveSessions());
+        metric(sb, "vosstt_sessions_total", "counter", "Recognition sessions started", m.getSessionsStarted());
+        metric(sb, "vosstt_model_load_seconds", "gauge", "Duration of the last model load",
+                m.getModelLoadMillis() / 1e3);
+        return sb.toString();
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        sb.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value) : Double.toString(value);
+    }
+}
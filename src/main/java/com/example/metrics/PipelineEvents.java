@@ -0,0 +1,125 @@
+package com.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the recognition pipeline. They are off
+ * unless a recording enables them, e.g. with the bundled
+ * {@code jfr/vosstt.jfc}; a disabled event is a couple of field stores that
+ * the JIT usually removes, so they are emitted unconditionally around every
+ * stage:
+ * <pre>
+ * PipelineEvents.Decode e = new PipelineEvents.Decode();
+ * e.begin();
+ * ...
+ * if (e.shouldCommit()) { e.bytes = n; e.commit(); }
+ * </pre>
+ */
+public final class PipelineEvents {
+    private PipelineEvents() {
+    }
+
+    @Name("com.example.ChunkRead")
+    @Label("Chunk Read")
+    @Description("Reading one chunk from the audio line, including waiting for the audio")
+    @Category({"VosTTS", "Recognition"})
+    @StackTrace(false)
+    public static final class ChunkRead extends Event {
+        @Label("Bytes")
+        @DataAmount
+        public int bytes;
+
+        @Label("Dropped")
+        @Description("The ring was full and the chunk was discarded")
+        public boolean dropped;
+    }
+
+    @Name("com.example.Decode")
+    @Label("Decode")
+    @Description("One acceptWaveForm call")
+    @Category({"VosTTS", "Recognition"})
+    @StackTrace(false)
+    public static final class Decode extends Event {
+        @Label("Bytes")
+        @DataAmount
+        public int bytes;
+
+        @Label("Utterance Complete")
+        public boolean complete;
+    }
+
+    @Name("com.example.ResultParse")
+    @Label("Result Parse")
+    @Description("Extracting the text from a recognizer result")
+    @Category({"VosTTS", "Recognition"})
+    @StackTrace(false)
+    public static final class ResultParse extends Event {
+        @Label("Final")
+        public boolean finalResult;
+
+        @Label("Changed")
+        @Description("The result had new text")
+        public boolean changed;
+    }
+
+    @Name("com.example.UiDispatch")
+    @Label("UI Dispatch")
+    @Description("Applying pending recognition output on the UI thread")
+    @Category({"VosTTS", "UI"})
+    @StackTrace(false)
+    public static final class UiDispatch extends Event {
+        @Label("Finals")
+        public int finals;
+
+        @Label("Partial")
+        public boolean partial;
+    }
+
+    @Name("com.example.TranscriptWrite")
+    @Label("Transcript Write")
+    @Description("One group commit of the transcript journal")
+    @Category({"VosTTS", "Storage"})
+    @StackTrace(false)
+    public static final class TranscriptWrite extends Event {
+        @Label("Segments")
+        public int segments;
+
+        @Label("Bytes")
+        @DataAmount
+        public int bytes;
+
+        @Label("Synced")
+        public boolean synced;
+    }
+
+    @Name("com.example.Session")
+    @Label("Session")
+    @Description("A recognition session from start to stop")
+    @Category({"VosTTS"})
+    @StackTrace(false)
+    public static final class Session extends Event {
+        @Label("Session")
+        public String id;
+
+        @Label("Segments")
+        public int segments;
+    }
+
+    @Name("com.example.ModelLoad")
+    @Label("Model Load")
+    @Description("Loading a Vosk model, including warm-up")
+    @Category({"VosTTS"})
+    public static final class ModelLoad extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+}
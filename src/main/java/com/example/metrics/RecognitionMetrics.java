@@ -0,0 +1,246 @@
+package com.example.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide recognition metrics, fed by the recognition loops, the
+ * transcript writer and the model loader, and read over JMX or by
+ * {@link MetricsEndpoint}. Everything is cumulative except the rates, which
+ * cover the last 10 to 20 seconds so that a node that stops keeping up shows
+ * it quickly.
+ */
+public final class RecognitionMetrics implements RecognitionMetricsMBean {
+    private static final Logger LOG = Logger.getLogger(RecognitionMetrics.class.getName());
+    public static final String OBJECT_NAME = "com.example:type=RecognitionMetrics";
+    private static final long RATE_WINDOW_NANOS = 10_000_000_000L;
+
+    private static final RecognitionMetrics INSTANCE = register(new RecognitionMetrics());
+
+    /** Metrics of one recognition stream. Fed by its recognition thread. */
+    public final class Session implements AutoCloseable {
+        private final String label;
+        private final double bytesPerSecond;
+        private volatile int backlog;
+        private volatile long sessionAudioNanos;
+        private volatile long sessionDecodeNanos;
+        private long droppedFrames;
+        private boolean closed;
+
+        private Session(String label, double bytesPerSecond) {
+            this.label = label;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /**
+         * Record one captured chunk of {@code bytes} that took
+         * {@code processNanos} to handle, the chunks still waiting behind it
+         * and the ring's running total of dropped frames.
+         */
+        public void chunk(int bytes, long processNanos, int waiting, long ringDroppedFrames) {
+            long audio = (long) (bytes / bytesPerSecond * 1e9);
+            sessionAudioNanos += audio;
+            sessionDecodeNanos += processNanos;
+            audioNanos.addAndGet(audio);
+            decodeNanos.addAndGet(processNanos);
+            chunks.incrementAndGet();
+            backlog = waiting;
+            if (ringDroppedFrames > droppedFrames) {
+                RecognitionMetrics.this.droppedFrames.addAndGet(ringDroppedFrames - droppedFrames);
+                droppedFrames = ringDroppedFrames;
+            }
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /** Processing time per second of audio over the whole session. */
+        public double getRealTimeFactor() {
+            long audio = sessionAudioNanos;
+            return audio == 0 ? 0 : (double) sessionDecodeNanos / audio;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            sessions.remove(this);
+        }
+    }
+
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sessionsStarted = new AtomicLong();
+    private final AtomicLong audioNanos = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final LatencyHistogram writes = new LatencyHistogram();
+    private final AtomicLong writeNanosTotal = new AtomicLong();
+    private final AtomicLong modelLoadNanos = new AtomicLong();
+
+    // Rate window: counters at the start of the previous and current window.
+    private long[] previous = snapshot();
+    private long[] current = previous;
+
+    private RecognitionMetrics() {
+    }
+
+    /** The metrics of this process, registered with the platform MBean server. */
+    public static RecognitionMetrics get() {
+        return INSTANCE;
+    }
+
+    private static RecognitionMetrics register(RecognitionMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            LOG.log(Level.WARNING, "Failed to register recognition metrics with JMX", e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Start a stream of audio captured at {@code bytesPerSecond}, named
+     * {@code label} in per-stream figures; close the result when it ends.
+     */
+    public Session openSession(String label, double bytesPerSecond) {
+        Session s = new Session(label, bytesPerSecond);
+        sessions.add(s);
+        sessionsStarted.incrementAndGet();
+        return s;
+    }
+
+    /** Record one transcript journal group commit. */
+    public void recordWrite(long nanos) {
+        writes.recordNanos(nanos);
+        writeNanosTotal.addAndGet(nanos);
+    }
+
+    public void recordModelLoad(long nanos) {
+        modelLoadNanos.set(nanos);
+    }
+
+    private long[] snapshot() {
+        return new long[] {System.nanoTime(), audioNanos.get(), decodeNanos.get(), chunks.get()};
+    }
+
+    /** Counter increases since the start of the previous window, and the time they took. */
+    private synchronized long[] window() {
+        long[] now = snapshot();
+        if (now[0] - current[0] >= RATE_WINDOW_NANOS) {
+            previous = current;
+            current = now;
+        }
+        long[] delta = new long[now.length];
+        for (int i = 0; i < now.length; i++) {
+            delta[i] = now[i] - previous[i];
+        }
+        return delta;
+    }
+
+    @Override
+    public double getRealTimeFactor() {
+        long[] d = window();
+        return d[1] == 0 ? 0 : (double) d[2] / d[1];
+    }
+
+    @Override
+    public double getChunksPerSecond() {
+        long[] d = window();
+        return d[0] == 0 ? 0 : d[3] * 1e9 / d[0];
+    }
+
+    @Override
+    public int getDecodeBacklog() {
+        int sum = 0;
+        for (Session s : sessions) {
+            sum += s.backlog;
+        }
+        return sum;
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    @Override
+    public long getChunks() {
+        return chunks.get();
+    }
+
+    @Override
+    public double getAudioSeconds() {
+        return audioNanos.get() / 1e9;
+    }
+
+    @Override
+    public double getDecodeSeconds() {
+        return decodeNanos.get() / 1e9;
+    }
+
+    @Override
+    public double getTranscriptWriteP99Millis() {
+        return writes.getPercentileNanos(99) / 1e6;
+    }
+
+    @Override
+    public double getTranscriptWriteMaxMillis() {
+        return writes.getMaxNanos() / 1e6;
+    }
+
+    @Override
+    public long getTranscriptWrites() {
+        return writes.getCount();
+    }
+
+    /** Transcript write latency distribution since start. */
+    public LatencyHistogram getTranscriptWriteHistogram() {
+        return writes;
+    }
+
+    public double getTranscriptWriteSeconds() {
+        return writeNanosTotal.get() / 1e9;
+    }
+
+    /** Sessions currently running. */
+    public List<Session> getSessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    @Override
+    public String[] getStreamRealTimeFactors() {
+        List<Session> list = getSessions();
+        String[] values = new String[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            Session s = list.get(i);
+            values[i] = String.format(Locale.ROOT, "%s=%.3f", s.getLabel(), s.getRealTimeFactor());
+        }
+        return values;
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    @Override
+    public long getSessionsStarted() {
+        return sessionsStarted.get();
+    }
+
+    @Override
+    public double getModelLoadMillis() {
+        return modelLoadNanos.get() / 1e6;
+    }
+}
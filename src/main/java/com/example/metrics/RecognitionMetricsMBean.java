@@ -0,0 +1,39 @@
+package com.example.metrics;
+
+/** Live recognition figures published over JMX as {@value RecognitionMetrics#OBJECT_NAME}. */
+public interface RecognitionMetricsMBean {
+    /** Processing time per second of captured audio over the last 10-20 s; above 1 the node falls behind. */
+    double getRealTimeFactor();
+
+    /** Chunks processed per second over the last 10-20 s. */
+    double getChunksPerSecond();
+
+    /** Captured chunks waiting for the decoder, summed over active sessions. */
+    int getDecodeBacklog();
+
+    /** Audio frames discarded because a decoder fell behind, since start. */
+    long getDroppedFrames();
+
+    long getChunks();
+
+    double getAudioSeconds();
+
+    double getDecodeSeconds();
+
+    /** 99th percentile of transcript journal group commits, including sync. */
+    double getTranscriptWriteP99Millis();
+
+    double getTranscriptWriteMaxMillis();
+
+    long getTranscriptWrites();
+
+    /** Session real-time factor of each active stream, as {@code label=factor}. */
+    String[] getStreamRealTimeFactors();
+
+    int getActiveSessions();
+
+    long getSessionsStarted();
+
+    /** Duration of the last model load, 0 if none finished yet. */
+    double getModelLoadMillis();
+}
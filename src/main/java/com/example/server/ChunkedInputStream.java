@@ -0,0 +1,70 @@
+package com.example.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes an HTTP/1.1 {@code Transfer-Encoding: chunked} body. Trailers after
+ * the last chunk are skipped. Closing this stream does not close the socket.
+ */
+class ChunkedInputStream extends InputStream {
+    private final InputStream in;
+    private long remaining;
+    private boolean eof;
+
+    ChunkedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (eof) return -1;
+        if (remaining == 0) {
+            remaining = Long.parseLong(stripExtensions(readLine(in)), 16);
+            if (remaining == 0) {
+                while (!readLine(in).isEmpty()) {
+                    // skip trailers
+                }
+                eof = true;
+                return -1;
+            }
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new EOFException("Connection closed inside chunk");
+        }
+        remaining -= n;
+        if (remaining == 0) {
+            readLine(in);
+        }
+        return n;
+    }
+
+    private static String stripExtensions(String line) {
+        int semi = line.indexOf(';');
+        return (semi >= 0 ? line.substring(0, semi) : line).trim();
+    }
+
+    /** Read a CRLF terminated header or chunk line. */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            if (b != '\r') sb.append((char) b);
+            if (sb.length() > 8192) {
+                throw new IOException("Line too long");
+            }
+        }
+        if (b < 0 && sb.length() == 0) {
+            throw new EOFException("Connection closed");
+        }
+        return sb.toString();
+    }
+}
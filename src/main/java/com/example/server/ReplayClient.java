@@ -0,0 +1,142 @@
+package com.example.server;
+
+import com.example.speech.BatchTranscriber;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test client for {@link TranscriptionServer}. Each WAV file given on the
+ * command line is streamed over its own connection, paced at real time unless
+ * {@code --fast} is given, and the JSON lines sent back are printed prefixed
+ * with the file name. Passing the same file several times simulates several
+ * concurrent speakers.
+ */
+public class ReplayClient {
+    private static final int CHUNK_BYTES = 4096;
+
+    private final int port;
+    private final boolean realTime;
+    private volatile int status;
+
+    public ReplayClient(int port, boolean realTime) {
+        this.port = port;
+        this.realTime = realTime;
+    }
+
+    /** Stream one file and print every response line. Returns the HTTP status. */
+    public int replay(Path file) throws Exception {
+        String tag = file.getFileName().toString();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             AudioInputStream audio = BatchTranscriber.openPcm16k(file)) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String head = "POST /transcribe HTTP/1.1\r\n"
+                    + "Host: localhost:" + port + "\r\n"
+                    + "Content-Type: application/octet-stream\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            Thread reader = Thread.ofVirtual().start(() -> printResponse(tag, in));
+            byte[] buffer = new byte[CHUNK_BYTES];
+            long start = System.nanoTime();
+            long sent = 0;
+            int n;
+            while ((n = audio.readNBytes(buffer, 0, buffer.length)) > 0) {
+                out.write((Integer.toHexString(n) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(buffer, 0, n);
+                out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                sent += n;
+                if (realTime) {
+                    long dueNanos = sent / 32 * 1_000_000L;
+                    long ahead = dueNanos - (System.nanoTime() - start);
+                    if (ahead > 0) {
+                        Thread.sleep(ahead / 1_000_000, (int) (ahead % 1_000_000));
+                    }
+                }
+            }
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            reader.join();
+            return status;
+        }
+    }
+
+    private void printResponse(String tag, InputStream in) {
+        try {
+            String[] statusLine = ChunkedInputStream.readLine(in).split(" ");
+            status = statusLine.length > 1 ? Integer.parseInt(statusLine[1]) : 0;
+            boolean chunked = false;
+            String header;
+            while (!(header = ChunkedInputStream.readLine(in)).isEmpty()) {
+                String h = header.toLowerCase(Locale.ROOT);
+                if (h.startsWith("transfer-encoding:") && h.contains("chunked")) {
+                    chunked = true;
+                }
+            }
+            if (status != 200) {
+                System.out.println(tag + ": HTTP " + status);
+                return;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    chunked ? new ChunkedInputStream(in) : in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                System.out.println(tag + ": " + line);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println(tag + ": " + e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 2700;
+        boolean realTime = true;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--fast" -> realTime = false;
+                default -> files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: ReplayClient [--port N] [--fast] FILE.wav...");
+            System.exit(2);
+        }
+        int failures = 0;
+        try (ExecutorService streams = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (Path file : files) {
+                ReplayClient client = new ReplayClient(port, realTime);
+                results.add(streams.submit(() -> client.replay(file)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    if (results.get(i).get() != 200) failures++;
+                } catch (ExecutionException e) {
+                    System.out.println(files.get(i).getFileName() + ": " + e.getCause());
+                    failures++;
+                }
+            }
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
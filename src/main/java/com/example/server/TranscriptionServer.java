@@ -0,0 +1,275 @@
+package com.example.server;
+
+import com.example.logging.LoggingConfig;
+import com.example.speech.ModelHolder;
+import com.example.speech.NativeWaveform;
+import com.example.speech.ResultExtractor;
+
+import org.json.JSONObject;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local streaming transcription server. Clients POST raw 16 kHz, 16-bit, mono,
+ * little endian PCM to {@code /transcribe}, preferably with chunked transfer
+ * encoding, and receive newline delimited JSON while they are still sending:
+ * <pre>
+ * {"type":"partial","text":"hello wor"}
+ * {"type":"result","text":"hello world"}
+ * {"type":"final","text":""}
+ * </pre>
+ * Every connection runs on its own virtual thread with its own
+ * {@link Recognizer} over one shared {@link Model}. The number of concurrent
+ * recognizers is capped; further connections are rejected with 503.
+ * <p>
+ * The small HTTP/1.1 handling is done here rather than with
+ * {@code com.sun.net.httpserver}, whose request streams read inside monitors
+ * and would pin a carrier thread for every open stream.
+ */
+public class TranscriptionServer {
+    private static final Logger LOG = Logger.getLogger(TranscriptionServer.class.getName());
+    /** Bytes of 16 kHz 16-bit audio per millisecond. */
+    private static final int BYTES_PER_MS = 32;
+
+    private final Model model;
+    private final Semaphore recognizers;
+    private final int maxStreams;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger streamIds = new AtomicInteger();
+    private ServerSocket serverSocket;
+
+    public TranscriptionServer(Model model, int maxStreams) {
+        this.model = model;
+        this.maxStreams = Math.max(1, maxStreams);
+        this.recognizers = new Semaphore(this.maxStreams);
+    }
+
+    /** Bind to the loopback interface and start accepting connections. */
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().name("transcription-acceptor").start(this::acceptLoop);
+        LOG.info("Transcription server listening on " + serverSocket.getLocalSocketAddress()
+                + ", max " + maxStreams + " streams");
+    }
+
+    /** Stop accepting connections. Streams in progress run to completion. */
+    public void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Error closing server socket", e);
+        }
+    }
+
+    /** Port the server is bound to. */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Number of streams currently being transcribed. */
+    public int getActiveStreams() {
+        return active.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("stream-connection").start(() -> handle(socket));
+            } catch (SocketException e) {
+                // server socket closed
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to accept connection", e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            String[] request = ChunkedInputStream.readLine(in).split(" ");
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while (!(line = ChunkedInputStream.readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                }
+            }
+            if (request.length < 2 || !request[1].startsWith("/transcribe")) {
+                respond(out, 404, "Not Found");
+                return;
+            }
+            if (!"POST".equals(request[0])) {
+                respond(out, 405, "Method Not Allowed");
+                return;
+            }
+            InputStream body;
+            if (headers.getOrDefault("transfer-encoding", "").toLowerCase(Locale.ROOT).contains("chunked")) {
+                body = new ChunkedInputStream(in);
+            } else if (headers.containsKey("content-length")) {
+                body = new LimitedInputStream(in, Long.parseLong(headers.get("content-length")));
+            } else {
+                respond(out, 411, "Length Required");
+                return;
+            }
+            if (!recognizers.tryAcquire()) {
+                LOG.warning("Rejecting stream, " + maxStreams + " recognizers busy");
+                respond(out, 503, "Service Unavailable");
+                return;
+            }
+            int id = streamIds.incrementAndGet();
+            active.incrementAndGet();
+            try {
+                LOG.fine(() -> "Stream " + id + " started from " + socket.getRemoteSocketAddress());
+                out.write(("HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/x-ndjson\r\n"
+                        + "Transfer-Encoding: chunked\r\n"
+                        + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                stream(id, body, out);
+                out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            } finally {
+                active.decrementAndGet();
+                recognizers.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.FINE, "Connection closed", e);
+        }
+    }
+
+    private void stream(int id, InputStream in, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long decodeNanos = 0;
+        long total = 0;
+        try (Recognizer recognizer = new Recognizer(model, 16000.0f);
+             NativeWaveform waveform = new NativeWaveform(recognizer)) {
+            byte[] buffer = new byte[4096];
+            ResultExtractor results = new ResultExtractor();
+            int n;
+            while ((n = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                total += n;
+                long t0 = System.nanoTime();
+                if (waveform.accept(buffer, n)) {
+                    boolean hasText = results.parseResult(recognizer.getResult());
+                    decodeNanos += System.nanoTime() - t0;
+                    if (hasText) {
+                        send(out, "result", results.text());
+                    }
+                } else {
+                    boolean changed = results.parsePartial(recognizer.getPartialResult());
+                    decodeNanos += System.nanoTime() - t0;
+                    if (changed) {
+                        send(out, "partial", results.text());
+                    }
+                }
+            }
+            results.parseResult(recognizer.getFinalResult());
+            send(out, "final", results.text());
+        } finally {
+            long audioMs = total / BYTES_PER_MS;
+            long wallMs = (System.nanoTime() - started) / 1_000_000;
+            double rtf = audioMs > 0 ? decodeNanos / 1e6 / audioMs : 0.0;
+            LOG.info(String.format("Stream %d finished: %.1f s audio in %.1f s, real-time factor %.2f",
+                    id, audioMs / 1000.0, wallMs / 1000.0, rtf));
+        }
+    }
+
+    private static void respond(OutputStream out, int status, String reason) throws IOException {
+        out.write(("HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /** Send one JSON line as an HTTP chunk. */
+    private static void send(OutputStream out, String type, String text) throws IOException {
+        JSONObject obj = new JSONObject();
+        obj.put("type", type);
+        obj.put("text", text);
+        byte[] line = (obj + "\n").getBytes(StandardCharsets.UTF_8);
+        out.write((Integer.toHexString(line.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(line);
+        out.write('\r');
+        out.write('\n');
+        out.flush();
+    }
+
+    /** Request body with a known {@code Content-Length}. */
+    private static final class LimitedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = in.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: TranscriptionServer [--model DIR] [--port N] [--max-streams N]");
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoggingConfig.configure();
+        File modelDir = new File("models/vosk-model-en-us-0.22");
+        int port = 2700;
+        int maxStreams = Runtime.getRuntime().availableProcessors() * 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model" -> modelDir = new File(args[++i]);
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--max-streams" -> maxStreams = Integer.parseInt(args[++i]);
+                default -> {
+                    usage();
+                    System.exit(2);
+                }
+            }
+        }
+        Model model = ModelHolder.get(ModelHolder.locateModelPath(modelDir));
+        TranscriptionServer server = new TranscriptionServer(model, maxStreams);
+        server.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        new CountDownLatch(1).await();
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.speech;
+
+import com.example.logging.LoggingConfig;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless transcription of recorded audio files. Files are decoded in
+ * parallel by a fixed number of workers, each owning one {@link Recognizer}
+ * on top of a single shared {@link Model}. Every input produces an SRT file
+ * in the same format as live sessions.
+ */
+public class BatchTranscriber {
+    private static final Logger LOG = Logger.getLogger(BatchTranscriber.class.getName());
+    /** Format expected by the recognizer: 16 kHz, 16-bit, mono, little endian. */
+    public static final AudioFormat PCM_16K = new AudioFormat(16000.0f, 16, 1, true, false);
+    /** Bytes of {@link #PCM_16K} audio per millisecond. */
+    public static final int BYTES_PER_MS = 32;
+
+    private final Model model;
+    private final int workers;
+    private final Path outputDir;
+    private final AtomicLong audioBytes = new AtomicLong();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param outputDir directory receiving the SRT files, or {@code null} to
+     *                  write each one next to its input file
+     */
+    public BatchTranscriber(Model model, int workers, Path outputDir) {
+        this.model = model;
+        this.workers = Math.max(1, workers);
+        this.outputDir = outputDir;
+    }
+
+    /** Transcribe all files and block until every worker is done. */
+    public void run(List<Path> files) throws InterruptedException {
+        Queue<Path> queue = new ConcurrentLinkedQueue<>(files);
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+                r -> new Thread(r, "batch-worker-" + threadId.incrementAndGet()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(pool.submit(() -> work(queue)));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    LOG.log(Level.SEVERE, "Batch worker failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void work(Queue<Path> queue) {
+        try (Recognizer recognizer = new Recognizer(model, 16000.0f)) {
+            Path file;
+            while ((file = queue.poll()) != null) {
+                Path out = srtPathFor(file);
+                try {
+                    long bytes = transcribe(recognizer, file, out);
+                    audioBytes.addAndGet(bytes);
+                    completed.incrementAndGet();
+                    LOG.info(() -> "Transcribed " + out);
+                } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    LOG.log(Level.WARNING, "Failed to transcribe " + file, e);
+                } finally {
+                    recognizer.reset();
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Failed to create recognizer", e);
+        }
+    }
+
+    /**
+     * Decode one file into an SRT file, timing segments by the amount of audio
+     * consumed. Returns the number of PCM bytes decoded.
+     */
+    static long transcribe(Recognizer recognizer, Path file, Path out)
+            throws IOException, UnsupportedAudioFileException {
+        List<Segment> segments = new ArrayList<>();
+        long total;
+        try (AudioInputStream in = openPcm16k(file)) {
+            total = decode(recognizer, in, segments);
+        }
+        try (SrtWriter srt = new SrtWriter(new FileWriter(out.toFile()))) {
+            for (Segment s : segments) {
+                srt.write(s.getStartMs(), s.getEndMs(), s.getText());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Feed a whole {@link #PCM_16K} stream to the recognizer and collect the
+     * recognised segments, timed from the start of the stream. Returns the
+     * number of bytes consumed.
+     */
+    public static long decode(Recognizer recognizer, InputStream in, List<Segment> out) throws IOException {
+        byte[] buffer = new byte[4096];
+        ResultExtractor results = new ResultExtractor();
+        long total = 0;
+        long segmentStart = 0;
+        int n;
+        while ((n = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+            total += n;
+            if (recognizer.acceptWaveForm(buffer, n)) {
+                if (results.parseResult(recognizer.getResult())) {
+                    long end = total / BYTES_PER_MS;
+                    out.add(new Segment(segmentStart, end, results.text()));
+                    segmentStart = end;
+                }
+            }
+        }
+        if (results.parseResult(recognizer.getFinalResult())) {
+            out.add(new Segment(segmentStart, total / BYTES_PER_MS, results.text()));
+        }
+        return total;
+    }
+
+    /** Open an audio file converted to the format the recognizer expects. */
+    public static AudioInputStream openPcm16k(Path file) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile());
+        if (in.getFormat().matches(PCM_16K)) {
+            return in;
+        }
+        try {
+            return AudioSystem.getAudioInputStream(PCM_16K, in);
+        } catch (IllegalArgumentException e) {
+            in.close();
+            throw new UnsupportedAudioFileException("Cannot convert " + in.getFormat() + " to " + PCM_16K);
+        }
+    }
+
+    private Path srtPathFor(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        Path dir = outputDir != null ? outputDir : file.toAbsolutePath().getParent();
+        return dir.resolve(base + ".srt");
+    }
+
+    public long getAudioMillis() {
+        return audioBytes.get() / BYTES_PER_MS;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /** Expand directories into the audio files they contain. */
+    static List<Path> collectInputs(List<String> args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path p = Paths.get(arg);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> walk = Files.walk(p)) {
+                    files.addAll(walk.filter(Files::isRegularFile)
+                            .filter(BatchTranscriber::isAudioFile)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(p)) {
+                files.add(p);
+            } else {
+                LOG.warning("Skipping missing input " + p);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isAudioFile(Path p) {
+        String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".wav") || name.endsWith(".aif") || name.endsWith(".aiff") || name.endsWith(".au");
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BatchTranscriber [--model DIR] [--workers N] [--out DIR] FILE|DIR...");
+    }
+
+    /** The value following the flag at {@code i}; prints usage and exits if there is none. */
+    private static String flagValue(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            usage();
+            System.exit(2);
+        }
+        return args[i + 1];
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoggingConfig.configure();
+        File modelDir = new File("models/vosk-model-en-us-0.22");
+        int workers = Runtime.getRuntime().availableProcessors();
+        Path outDir = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model" -> modelDir = new File(flagValue(args, i++));
+                case "--workers" -> workers = Integer.parseInt(flagValue(args, i++));
+                case "--out" -> outDir = Paths.get(flagValue(args, i++));
+                case "--help", "-h" -> {
+                    usage();
+                    return;
+                }
+                default -> inputs.add(args[i]);
+            }
+        }
+        List<Path> files = collectInputs(inputs);
+        if (files.isEmpty()) {
+            usage();
+            System.exit(2);
+        }
+        if (outDir != null) {
+            Files.createDirectories(outDir);
+        }
+        Model model = ModelHolder.get(ModelHolder.locateModelPath(modelDir));
+        BatchTranscriber batch = new BatchTranscriber(model, workers, outDir);
+        LOG.info("Transcribing " + files.size() + " files with " + batch.workers + " workers");
+        long start = System.nanoTime();
+        batch.run(files);
+        double wallHours = (System.nanoTime() - start) / 3.6e12;
+        double audioHours = batch.getAudioMillis() / 3.6e6;
+        System.out.printf("Transcribed %d files (%d failed): %.2f h of audio in %.1f s, %.1f audio hours per hour%n",
+                batch.getCompleted(), batch.getFailed(), audioHours, wallHours * 3600,
+                wallHours > 0 ? audioHours / wallHours : 0.0);
+        ModelHolder.release();
+        System.exit(batch.getFailed() == 0 ? 0 : 1);
+    }
+}
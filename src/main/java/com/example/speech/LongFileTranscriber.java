@@ -0,0 +1,197 @@
+package com.example.speech;
+
+import com.example.audio.SilenceSplitter;
+import com.example.logging.LoggingConfig;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+
+/**
+ * Offline transcription of a single long recording. The audio is cut at
+ * silences into chunks of about a minute which are decoded concurrently on a
+ * fork-join pool, each with its own {@link Recognizer} over the shared model.
+ * The chunk results are shifted to their position in the recording and
+ * written as one SRT file, so wall-clock time scales with the core count
+ * rather than with the length of the recording.
+ */
+public class LongFileTranscriber {
+    private static final Logger LOG = Logger.getLogger(LongFileTranscriber.class.getName());
+    private static final int FRAME_MS = 30;
+    private static final int MIN_SILENCE_MS = 300;
+    private static final int MIN_CHUNK_MS = 20_000;
+    private static final int MAX_CHUNK_MS = 90_000;
+
+    private final Model model;
+    private final ForkJoinPool pool;
+
+    public LongFileTranscriber(Model model, ForkJoinPool pool) {
+        this.model = model;
+        this.pool = pool;
+    }
+
+    /**
+     * Transcribe {@code file} into {@code out}. Returns the length of the
+     * recording in milliseconds.
+     */
+    public long transcribe(Path file, Path out) throws IOException, UnsupportedAudioFileException {
+        Path pcm = Files.createTempFile("vos-stt-", ".pcm");
+        try {
+            SilenceSplitter splitter = new SilenceSplitter(16000.0f, FRAME_MS, MIN_SILENCE_MS, MIN_CHUNK_MS, MAX_CHUNK_MS);
+            try (AudioInputStream in = BatchTranscriber.openPcm16k(file);
+                 OutputStream raw = Files.newOutputStream(pcm)) {
+                byte[] buffer = new byte[65536];
+                int n;
+                while ((n = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    splitter.accept(buffer, n);
+                    raw.write(buffer, 0, n);
+                }
+            }
+            List<SilenceSplitter.Span> spans = splitter.split();
+            LOG.info(() -> String.format("Split %s into %d chunks (silence threshold %.0f)",
+                    file.getFileName(), spans.size(), splitter.getThreshold()));
+            List<Segment> segments = decodeChunks(pcm, spans);
+            try (SrtWriter srt = new SrtWriter(new FileWriter(out.toFile()))) {
+                for (Segment s : segments) {
+                    srt.write(s.getStartMs(), s.getEndMs(), s.getText());
+                }
+            }
+            return splitter.getTotalBytes() / BatchTranscriber.BYTES_PER_MS;
+        } finally {
+            Files.deleteIfExists(pcm);
+        }
+    }
+
+    private List<Segment> decodeChunks(Path pcm, List<SilenceSplitter.Span> spans) throws IOException {
+        try (FileChannel channel = FileChannel.open(pcm, StandardOpenOption.READ)) {
+            List<ForkJoinTask<List<Segment>>> tasks = new ArrayList<>();
+            for (SilenceSplitter.Span span : spans) {
+                tasks.add(pool.submit(() -> decodeChunk(channel, span)));
+            }
+            // Stitch in recording order; the first segment of each chunk starts
+            // where the chunk starts, so timestamps stay contiguous.
+            List<Segment> all = new ArrayList<>();
+            for (ForkJoinTask<List<Segment>> task : tasks) {
+                all.addAll(task.join());
+            }
+            return all;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Segment> decodeChunk(FileChannel channel, SilenceSplitter.Span span) {
+        List<Segment> local = new ArrayList<>();
+        if (span.getLength() == 0) {
+            return local;
+        }
+        try (Recognizer recognizer = new Recognizer(model, 16000.0f)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, span.getStart(), span.getLength());
+            BatchTranscriber.decode(recognizer, new BufferInputStream(mapped), local);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long offsetMs = span.getStart() / BatchTranscriber.BYTES_PER_MS;
+        List<Segment> shifted = new ArrayList<>(local.size());
+        for (Segment s : local) {
+            shifted.add(s.shift(offsetMs));
+        }
+        return shifted;
+    }
+
+    /** Minimal stream over a mapped region of the PCM file. */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: LongFileTranscriber [--model DIR] [--threads N] [--out FILE] FILE");
+    }
+
+    /** The value following the flag at {@code i}; prints usage and exits if there is none. */
+    private static String flagValue(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            usage();
+            System.exit(2);
+        }
+        return args[i + 1];
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoggingConfig.configure();
+        File modelDir = new File("models/vosk-model-en-us-0.22");
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path out = null;
+        Path input = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model" -> modelDir = new File(flagValue(args, i++));
+                case "--threads" -> threads = Integer.parseInt(flagValue(args, i++));
+                case "--out" -> out = Paths.get(flagValue(args, i++));
+                case "--help", "-h" -> {
+                    usage();
+                    return;
+                }
+                default -> input = Paths.get(args[i]);
+            }
+        }
+        if (input == null || !Files.isRegularFile(input)) {
+            usage();
+            System.exit(2);
+        }
+        if (out == null) {
+            String name = input.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            out = input.toAbsolutePath().resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".srt");
+        }
+        Model model = ModelHolder.get(ModelHolder.locateModelPath(modelDir));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            long start = System.nanoTime();
+            long audioMs = new LongFileTranscriber(model, pool).transcribe(input, out);
+            double wallSec = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Transcribed %.2f h of audio in %.1f s on %d threads (%.1fx real time) to %s%n",
+                    audioMs / 3.6e6, wallSec, pool.getParallelism(),
+                    wallSec > 0 ? audioMs / 1000.0 / wallSec : 0.0, out);
+        } finally {
+            pool.shutdown();
+            ModelHolder.release();
+        }
+    }
+}
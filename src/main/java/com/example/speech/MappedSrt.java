@@ -0,0 +1,141 @@
+package com.example.speech;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only view of an SRT file that maps it into memory and keeps only the
+ * byte offset of each entry on the heap. Entries are decoded on demand, so
+ * the cost of showing a transcript depends on how much of it is visible, not
+ * on its length. When the file has a current {@link SrtIndex} sidecar the
+ * offsets and start times are read from it instead of scanning the file.
+ */
+public final class MappedSrt {
+    private final MappedByteBuffer buf;
+    /** Entry offsets from the sidecar, or {@code null} if the file was scanned. */
+    private final SrtIndex index;
+    /** Start of each entry, followed by the end of the last one, if scanned. */
+    private final int[] offsets;
+    private final int count;
+
+    private MappedSrt(MappedByteBuffer buf, SrtIndex index, int[] offsets, int count) {
+        this.buf = buf;
+        this.index = index;
+        this.offsets = offsets;
+        this.count = count;
+    }
+
+    /** Map {@code file} and locate its entries, from its sidecar index if it has a current one. */
+    public static MappedSrt open(Path file) throws IOException {
+        SrtIndex index = SrtIndex.open(file);
+        if (index == null) {
+            return scan(file);
+        }
+        return new MappedSrt(map(file), index, null, index.size());
+    }
+
+    /** Map {@code file} and locate its entries by scanning it. */
+    static MappedSrt scan(Path file) throws IOException {
+        MappedByteBuffer buf = map(file);
+        int[] offsets = new int[1024];
+        int count = 0;
+        int limit = buf.limit();
+        int p = 0;
+        while (p < limit) {
+            // Skip blank lines between entries.
+            byte b = buf.get(p);
+            if (b == '\n' || b == '\r') {
+                p++;
+                continue;
+            }
+            if (count + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[count++] = p;
+            // An entry ends at the first empty line.
+            boolean lineEmpty = false;
+            while (p < limit) {
+                b = buf.get(p++);
+                if (b == '\n') {
+                    if (lineEmpty) break;
+                    lineEmpty = true;
+                } else if (b != '\r') {
+                    lineEmpty = false;
+                }
+            }
+        }
+        offsets[count] = limit;
+        return new MappedSrt(buf, null, offsets, count);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Transcript too large to map: " + file);
+            }
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    /** Number of entries. */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decode entry {@code i}. An entry without a valid timing line yields
+     * times of -1 and its raw text.
+     */
+    public Segment get(int i) {
+        int start = getOffset(i);
+        int end = i + 1 < count ? getOffset(i + 1) : buf.limit();
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        buf.get(start, bytes);
+        String entry = new String(bytes, StandardCharsets.UTF_8).strip();
+        String[] lines = entry.split("\r?\n", 3);
+        int timing = lines.length > 1 && lines[1].contains("-->") ? 1 : lines[0].contains("-->") ? 0 : -1;
+        if (timing < 0) {
+            return new Segment(-1, -1, entry);
+        }
+        String line = lines[timing];
+        int arrow = line.indexOf("-->");
+        long startMs = SrtReader.parseTime(line.substring(0, arrow));
+        long endMs = SrtReader.parseTime(line.substring(arrow + 3));
+        String text = timing + 1 < lines.length ? String.join("\n", Arrays.copyOfRange(lines, timing + 1, lines.length)) : "";
+        return new Segment(startMs, endMs, text);
+    }
+
+    /** Byte offset of entry {@code i} in the file. */
+    int getOffset(int i) {
+        return index != null ? (int) Math.min(index.getOffset(i), buf.limit()) : offsets[i];
+    }
+
+    /**
+     * Index of the last entry starting at or before {@code ms}, or 0 if there
+     * is none. Entries are assumed to be in time order, as written by
+     * {@link SrtWriter}; without a sidecar O(log n) of them are decoded.
+     */
+    public int find(long ms) {
+        if (index != null) {
+            return index.find(ms);
+        }
+        int lo = 0;
+        int hi = count - 1;
+        int found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (get(mid).getStartMs() <= ms) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+}
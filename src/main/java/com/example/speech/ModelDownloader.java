@@ -0,0 +1,692 @@
+package com.example.speech;
+
+import com.example.logging.LoggingConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Downloads and unpacks a model archive.
+ * <p>
+ * The archive is fetched in fixed-size chunks by several HTTP Range requests
+ * at once into a preallocated {@code .part} file beside the target directory.
+ * Completed chunks are recorded in a small state file, so an interrupted
+ * download resumes where it stopped as long as the server still reports the
+ * same size and validator. Servers without range support, or that do not
+ * report the archive's size, are read with a single request.
+ * <p>
+ * While chunks arrive the calling thread reads the archive front to back as
+ * far as it is complete, unpacks entries into a staging directory and
+ * computes its SHA-256. The staging directory replaces the target only after
+ * the whole archive has been read and its checksum, if one is expected,
+ * matches; the {@code .part} and state files are then deleted.
+ */
+public final class ModelDownloader {
+    private static final Logger LOG = Logger.getLogger(ModelDownloader.class.getName());
+    /** System property overriding the model download URL. */
+    public static final String URL_PROPERTY = "vosstt.model.url";
+    /** System property with the expected SHA-256 of the model archive, in hex. */
+    public static final String SHA256_PROPERTY = "vosstt.model.sha256";
+    /** "VSD1" */
+    private static final int STATE_MAGIC = 0x56534431;
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ATTEMPTS = 3;
+
+    /** Receives progress from the thread calling {@link #download()}. */
+    public interface Listener {
+        /** {@code total} is -1 while unknown. */
+        void progress(long downloaded, long total);
+
+        /**
+         * Called instead of {@link #progress} when an archive left complete
+         * by an earlier attempt is unpacked without downloading.
+         */
+        default void unpacking(long extracted, long total) {
+        }
+    }
+
+    private final URI uri;
+    private final Path targetDir;
+    private final String expectedSha256;
+    private final Path partFile;
+    private final Path stateFile;
+    private final Path stagingDir;
+    private int connections = 4;
+    private Listener listener = (downloaded, total) -> { };
+
+    /**
+     * Download {@code uri} and unpack it into {@code targetDir}.
+     * {@code expectedSha256} may be {@code null} to skip verification.
+     */
+    public ModelDownloader(URI uri, Path targetDir, String expectedSha256) {
+        this.uri = uri;
+        this.targetDir = targetDir.toAbsolutePath();
+        this.expectedSha256 = expectedSha256;
+        String name = this.targetDir.getFileName().toString();
+        this.partFile = this.targetDir.resolveSibling(name + ".zip.part");
+        this.stateFile = this.targetDir.resolveSibling(name + ".zip.state");
+        this.stagingDir = this.targetDir.resolveSibling(name + ".extracting");
+    }
+
+    /**
+     * Downloader for {@code defaultUrl}, or the URL in {@link #URL_PROPERTY},
+     * verified against {@link #SHA256_PROPERTY} when that is set.
+     */
+    public static ModelDownloader forDefaultModel(String defaultUrl, Path targetDir) {
+        return new ModelDownloader(URI.create(System.getProperty(URL_PROPERTY, defaultUrl)), targetDir,
+                System.getProperty(SHA256_PROPERTY));
+    }
+
+    /** Number of parallel range requests, 4 by default. */
+    public ModelDownloader setConnections(int connections) {
+        this.connections = Math.max(1, connections);
+        return this;
+    }
+
+    public ModelDownloader setListener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Download, verify and unpack the archive. On failure or interruption the
+     * completed chunks are kept for the next attempt.
+     */
+    public void download() throws IOException, InterruptedException {
+        Files.createDirectories(targetDir.getParent());
+        deleteTree(stagingDir);
+        try (HttpClient client = HttpClient.newBuilder()
+                // One connection per range request; HTTP/2 would multiplex them onto one.
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(20))
+                .build()) {
+            HttpResponse<InputStream> probe = client.send(request().header("Range", "bytes=0-0").build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            checkStatus(probe);
+            try (FileChannel part = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+                try {
+                    transfer(client, probe, part, workers);
+                } finally {
+                    finish(workers);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            deleteTree(stagingDir);
+            if (e instanceof BadArchiveException) {
+                // Downloading the same bytes again will not help.
+                Files.deleteIfExists(partFile);
+                Files.deleteIfExists(stateFile);
+            }
+            throw e;
+        }
+        deleteTree(targetDir);
+        move(stagingDir, targetDir);
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(stateFile);
+        LOG.info(() -> "Model unpacked to " + targetDir);
+    }
+
+    /** Fetch the archive on {@code workers} while unpacking it on this thread. */
+    private void transfer(HttpClient client, HttpResponse<InputStream> probe, FileChannel part,
+                          ExecutorService workers) throws IOException, InterruptedException {
+        long total = probe.statusCode() == 206 ? parseTotal(probe) : -1;
+        Progress progress;
+        List<Future<?>> tasks = new ArrayList<>();
+        if (total > 0) {
+            probe.body().close();
+            String validator = probe.headers().firstValue("ETag")
+                    .or(() -> probe.headers().firstValue("Last-Modified")).orElse("");
+            progress = resume(part, total, validator);
+            if (progress.isComplete()) {
+                // Nothing left to wait for, so unpack on all cores instead of streaming.
+                LOG.info(() -> "Archive " + partFile + " already complete, unpacking");
+                verify(checksum(part));
+                try {
+                    ZipExtractor.extract(partFile, stagingDir, listener::unpacking);
+                } catch (ZipException e) {
+                    throw new BadArchiveException(e.getMessage());
+                }
+                return;
+            }
+            LOG.info(() -> "Downloading " + uri + " (" + total / (1024 * 1024) + " MB) with "
+                    + connections + " connections, " + progress.downloaded.get() / (1024 * 1024)
+                    + " MB already present");
+            AtomicInteger next = new AtomicInteger();
+            for (int i = 0; i < connections; i++) {
+                tasks.add(workers.submit(() -> fetchChunks(client, part, progress, next)));
+            }
+        } else {
+            LOG.info(() -> "Downloading " + uri + " with a single request, ranges not supported");
+            HttpResponse<InputStream> whole = probe;
+            if (probe.statusCode() == 206) {
+                // A range answered without the total size: the probe body holds only that range.
+                probe.body().close();
+                whole = client.send(request().build(), HttpResponse.BodyHandlers.ofInputStream());
+                checkStatus(whole);
+                if (whole.statusCode() != 200) {
+                    whole.body().close();
+                    throw new IOException("HTTP " + whole.statusCode() + " for a request without a range to " + uri);
+                }
+            }
+            part.truncate(0);
+            Files.deleteIfExists(stateFile);
+            InputStream body = whole.body();
+            progress = new Progress(whole.headers().firstValueAsLong("Content-Length").orElse(-1), null, 0);
+            tasks.add(workers.submit(() -> fetchStream(body, part, progress)));
+        }
+        byte[] sha256;
+        try {
+            sha256 = extract(part, progress);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // Stop the workers fetching chunks that would only be thrown away or kept unused.
+            progress.fail(e);
+            if (e instanceof BadArchiveException) {
+                workers.shutdownNow();
+            }
+            throw e;
+        }
+        try {
+            for (Future<?> t : tasks) {
+                t.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Download of " + uri + " failed", e.getCause());
+        }
+        verify(sha256);
+    }
+
+    private void verify(byte[] sha256) throws BadArchiveException {
+        String actual = HexFormat.of().formatHex(sha256);
+        LOG.info(() -> "Model archive SHA-256 " + actual);
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(actual)) {
+            throw new BadArchiveException("Checksum mismatch for " + uri + ": expected " + expectedSha256
+                    + ", got " + actual);
+        }
+    }
+
+    /**
+     * Let workers finish the chunks they are fetching, so they are kept for
+     * the next attempt, unless the download was interrupted.
+     */
+    private static void finish(ExecutorService workers) throws InterruptedException {
+        workers.shutdown();
+        if (Thread.currentThread().isInterrupted() || !workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private HttpRequest.Builder request() {
+        return HttpRequest.newBuilder(uri).timeout(Duration.ofMinutes(2));
+    }
+
+    private static void checkStatus(HttpResponse<?> response) throws IOException {
+        int status = response.statusCode();
+        if (status != 200 && status != 206) {
+            throw new IOException("HTTP " + status + " for " + response.uri());
+        }
+    }
+
+    /** Total length from a {@code Content-Range: bytes a-b/total} header, or -1. */
+    private static long parseTotal(HttpResponse<?> response) {
+        String range = response.headers().firstValue("Content-Range").orElse("");
+        int slash = range.lastIndexOf('/');
+        try {
+            return slash < 0 ? -1 : Long.parseLong(range.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ---- downloading ----
+
+    /** Chunks already in the part file, if it belongs to the same archive. */
+    private Progress resume(FileChannel part, long total, String validator) throws IOException {
+        int chunks = (int) ((total + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        BitSet done = new BitSet(chunks);
+        if (Files.exists(stateFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+                if (in.readInt() == STATE_MAGIC && in.readLong() == total && in.readUTF().equals(validator)
+                        && part.size() == total) {
+                    long[] words = new long[in.readInt()];
+                    for (int i = 0; i < words.length; i++) {
+                        words[i] = in.readLong();
+                    }
+                    done = BitSet.valueOf(words);
+                } else {
+                    LOG.info("Archive changed on the server, starting the download again");
+                }
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Ignoring unreadable download state " + stateFile, e);
+            }
+        }
+        if (done.isEmpty()) {
+            part.truncate(0);
+        }
+        if (part.size() < total) {
+            // Preallocate so chunks can be written in any order.
+            part.write(ByteBuffer.allocate(1), total - 1);
+        }
+        long present = 0;
+        for (int c = done.nextSetBit(0); c >= 0; c = done.nextSetBit(c + 1)) {
+            present += Math.min(CHUNK_SIZE, total - (long) c * CHUNK_SIZE);
+        }
+        Progress progress = new Progress(total, done, present);
+        progress.validator = validator;
+        return progress;
+    }
+
+    /** Worker loop: fetch chunks not yet present, in order, until none are left. */
+    private Void fetchChunks(HttpClient client, FileChannel part, Progress progress, AtomicInteger next)
+            throws IOException, InterruptedException {
+        int chunks = (int) ((progress.total + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        try {
+            int c;
+            while (!progress.isFailed() && (c = next.getAndIncrement()) < chunks) {
+                if (progress.isDone(c)) continue;
+                long start = (long) c * CHUNK_SIZE;
+                long end = Math.min(progress.total, start + CHUNK_SIZE) - 1;
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        fetchRange(client, part, progress, start, end, buf);
+                        break;
+                    } catch (IOException e) {
+                        if (attempt == ATTEMPTS) throw e;
+                        LOG.log(Level.FINE, "Retrying bytes " + start + "-" + end, e);
+                    }
+                }
+                progress.chunkDone(c, part, this);
+            }
+            return null;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            progress.fail(e);
+            throw e;
+        }
+    }
+
+    private void fetchRange(HttpClient client, FileChannel part, Progress progress, long start, long end,
+                            ByteBuffer buf) throws IOException, InterruptedException {
+        HttpRequest.Builder req = request().header("Range", "bytes=" + start + "-" + end);
+        if (!progress.validator.isEmpty() && !progress.validator.startsWith("W/")) {
+            req.header("If-Range", progress.validator);
+        }
+        HttpResponse<InputStream> response = client.send(req.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 206
+                    || !response.headers().firstValue("Content-Range").orElse("").startsWith("bytes " + start + "-")) {
+                throw new IOException("Server did not return bytes " + start + "-" + end + " of " + uri
+                        + " (HTTP " + response.statusCode() + ")");
+            }
+            long pos = start;
+            long written = 0;
+            try {
+                int n;
+                while (pos <= end && (n = in.read(buf.array(), 0, (int) Math.min(buf.capacity(), end + 1 - pos))) > 0) {
+                    buf.clear().limit(n);
+                    while (buf.hasRemaining()) {
+                        pos += part.write(buf, pos);
+                    }
+                    written += n;
+                    progress.downloaded.addAndGet(n);
+                }
+            } catch (IOException e) {
+                progress.downloaded.addAndGet(-written);
+                throw e;
+            }
+            if (pos != end + 1) {
+                progress.downloaded.addAndGet(-written);
+                throw new IOException("Connection closed after " + (pos - start) + " of " + (end + 1 - start)
+                        + " bytes");
+            }
+        }
+    }
+
+    /** Copy a whole response body to the part file, making bytes readable as they land. */
+    private Void fetchStream(InputStream body, FileChannel part, Progress progress) throws IOException {
+        try (InputStream in = body) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            long pos = 0;
+            int n;
+            while (!progress.isFailed() && (n = in.read(buf)) > 0) {
+                ByteBuffer b = ByteBuffer.wrap(buf, 0, n);
+                while (b.hasRemaining()) {
+                    pos += part.write(b, pos);
+                }
+                progress.downloaded.addAndGet(n);
+                progress.advance(pos, false);
+            }
+            if (!progress.isFailed()) {
+                progress.advance(pos, true);
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            progress.fail(e);
+            throw e;
+        }
+    }
+
+    private void saveState(Progress progress) throws IOException {
+        Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            long[] words = progress.done.toLongArray();
+            out.writeInt(STATE_MAGIC);
+            out.writeLong(progress.total);
+            out.writeUTF(progress.validator);
+            out.writeInt(words.length);
+            for (long w : words) {
+                out.writeLong(w);
+            }
+        }
+        move(tmp, stateFile);
+    }
+
+    // ---- unpacking ----
+
+    /**
+     * Unpack the archive into the staging directory, reading the part file
+     * only as far as it is complete. Returns the archive's SHA-256.
+     */
+    private byte[] extract(FileChannel part, Progress progress) throws IOException, InterruptedException {
+        MessageDigest sha256 = sha256();
+        Files.createDirectories(stagingDir);
+        Path root = stagingDir.toAbsolutePath().normalize();
+        long files = 0;
+        long bytes = 0;
+        try (PartInputStream archive = new PartInputStream(part, progress, sha256);
+             ZipInputStream zip = new ZipInputStream(archive)) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path out = root.resolve(entry.getName()).normalize();
+                if (!out.startsWith(root) || out.equals(root)) {
+                    throw new BadArchiveException("Archive entry outside the model directory: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(out);
+                    continue;
+                }
+                Files.createDirectories(out.getParent());
+                try (OutputStream os = Files.newOutputStream(out)) {
+                    int n;
+                    while ((n = zip.read(buf)) > 0) {
+                        os.write(buf, 0, n);
+                        bytes += n;
+                    }
+                }
+                files++;
+            }
+            // The central directory follows the entries; it is part of the checksum.
+            archive.drain();
+        }
+        long fileCount = files;
+        long byteCount = bytes;
+        LOG.info(() -> "Unpacked " + fileCount + " files, " + byteCount / (1024 * 1024) + " MB");
+        return sha256.digest();
+    }
+
+    /** SHA-256 of the complete part file. */
+    private static byte[] checksum(FileChannel part) throws IOException {
+        MessageDigest sha256 = sha256();
+        ByteBuffer buf = ByteBuffer.allocateDirect(1024 * 1024);
+        long pos = 0;
+        int n;
+        while ((n = part.read(buf.clear(), pos)) > 0) {
+            sha256.update(buf.flip());
+            pos += n;
+        }
+        return sha256.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sequential view of the part file that waits for bytes still being
+     * downloaded and feeds everything it returns to a digest.
+     */
+    private final class PartInputStream extends InputStream {
+        private final FileChannel part;
+        private final Progress progress;
+        private final MessageDigest digest;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private long pos;
+
+        PartInputStream(FileChannel part, Progress progress, MessageDigest digest) {
+            this.part = part;
+            this.progress = progress;
+            this.digest = digest;
+            buf.limit(0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!buf.hasRemaining() && !fill()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        void drain() throws IOException {
+            while (fill()) {
+                buf.position(buf.limit());
+            }
+        }
+
+        private boolean fill() throws IOException {
+            long available;
+            try {
+                available = progress.awaitAvailable(pos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download interrupted");
+            }
+            if (available <= pos) return false;
+            buf.clear().limit((int) Math.min(buf.capacity(), available - pos));
+            int n = part.read(buf, pos);
+            if (n <= 0) throw new IOException("Unexpected end of " + partFile);
+            buf.flip();
+            digest.update(buf.array(), 0, n);
+            pos += n;
+            listener.progress(progress.downloaded.get(), progress.total);
+            return true;
+        }
+    }
+
+    /**
+     * Which chunks are present and how much of the archive, from the start,
+     * can be read.
+     */
+    private static final class Progress {
+        final long total;
+        final BitSet done;
+        final AtomicLong downloaded;
+        String validator = "";
+        private long available;
+        private boolean finished;
+        private Throwable failure;
+
+        Progress(long total, BitSet done, long downloaded) {
+            this.total = total;
+            this.done = done;
+            this.downloaded = new AtomicLong(downloaded);
+            if (done != null) {
+                advanceChunks();
+            }
+        }
+
+        synchronized boolean isDone(int chunk) {
+            return done.get(chunk);
+        }
+
+        /** Make chunk {@code c} durable, record it and wake the reader. */
+        void chunkDone(int c, FileChannel part, ModelDownloader owner) throws IOException {
+            part.force(false);
+            synchronized (this) {
+                done.set(c);
+                owner.saveState(this);
+                advanceChunks();
+                notifyAll();
+            }
+        }
+
+        synchronized boolean isComplete() {
+            return finished;
+        }
+
+        private void advanceChunks() {
+            int firstMissing = done.nextClearBit(0);
+            available = Math.min(total, (long) firstMissing * CHUNK_SIZE);
+            finished = available == total;
+        }
+
+        synchronized void advance(long bytes, boolean end) {
+            available = bytes;
+            finished = end;
+            notifyAll();
+        }
+
+        synchronized void fail(Throwable t) {
+            if (failure == null) failure = t;
+            notifyAll();
+        }
+
+        synchronized boolean isFailed() {
+            return failure != null;
+        }
+
+        /** Wait until more than {@code pos} bytes are readable or the archive is complete. */
+        synchronized long awaitAvailable(long pos) throws IOException, InterruptedException {
+            while (available <= pos && !finished) {
+                if (failure != null) {
+                    throw new IOException("Download failed: " + failure, failure);
+                }
+                wait();
+            }
+            return available;
+        }
+    }
+
+    /** The archive is complete but unusable. */
+    private static final class BadArchiveException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BadArchiveException(String message) {
+            super(message);
+        }
+    }
+
+    // ---- files ----
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: ModelDownloader [--connections N] [--sha256 HEX] URL DIR");
+    }
+
+    /** The value following the flag at {@code i}; prints usage and exits if there is none. */
+    private static String flagValue(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            usage();
+            System.exit(2);
+        }
+        return args[i + 1];
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoggingConfig.configure();
+        int connections = 4;
+        String sha256 = null;
+        String url = null;
+        Path dir = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--connections" -> connections = Integer.parseInt(flagValue(args, i++));
+                case "--sha256" -> sha256 = flagValue(args, i++);
+                case "--help", "-h" -> {
+                    usage();
+                    return;
+                }
+                default -> {
+                    if (url == null) url = args[i];
+                    else dir = Paths.get(args[i]);
+                }
+            }
+        }
+        if (url == null || dir == null) {
+            usage();
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        new ModelDownloader(URI.create(url), dir, sha256).setConnections(connections).download();
+        System.out.printf("Downloaded and unpacked %s in %.1f s%n", url, (System.nanoTime() - start) / 1e9);
+    }
+}
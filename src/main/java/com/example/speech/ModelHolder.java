@@ -0,0 +1,141 @@
+package com.example.speech;
+
+import com.example.metrics.PipelineEvents;
+import com.example.metrics.RecognitionMetrics;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a single loaded Vosk {@link Model} shared by all recognition sessions.
+ * Loading a large model takes several seconds, so it is started in the
+ * background as early as possible and each session only creates a
+ * {@link Recognizer} on top of the warm model.
+ */
+public final class ModelHolder {
+    private static final Logger LOG = Logger.getLogger(ModelHolder.class.getName());
+    /** Half a second of 16 kHz 16-bit silence used to warm up the decoder. */
+    private static final int WARM_UP_BYTES = 16000;
+
+    private static File modelPath;
+    private static CompletableFuture<Model> future;
+
+    private ModelHolder() {}
+
+    /**
+     * Start loading the model at the given path on a background thread. Calling
+     * this again for the same path returns the pending or completed load.
+     */
+    public static synchronized CompletableFuture<Model> preload(File path) {
+        File dir = path.getAbsoluteFile();
+        if (future != null && dir.equals(modelPath)) {
+            return future;
+        }
+        release();
+        modelPath = dir;
+        CompletableFuture<Model> f = new CompletableFuture<>();
+        future = f;
+        Thread t = new Thread(() -> load(dir, f), "model-loader");
+        t.setDaemon(true);
+        t.start();
+        return f;
+    }
+
+    /**
+     * Return the loaded model, waiting for a pending background load if
+     * necessary.
+     */
+    public static Model get(File path) throws IOException {
+        CompletableFuture<Model> f = preload(path);
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            synchronized (ModelHolder.class) {
+                if (future == f) {
+                    future = null;
+                    modelPath = null;
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to load model from " + path, cause);
+        }
+    }
+
+    /**
+     * Return the directory holding the model files. Archives usually unpack
+     * into a single sub directory, which is detected here.
+     */
+    public static File locateModelPath(File dir) {
+        if (new File(dir, "am").exists()) {
+            return dir;
+        }
+        File[] subDirs = dir.listFiles(File::isDirectory);
+        if (subDirs != null && subDirs.length == 1) {
+            File candidate = subDirs[0];
+            if (new File(candidate, "am").exists()) {
+                return candidate;
+            }
+        }
+        return dir;
+    }
+
+    /** Return true if a model has finished loading and is ready for use. */
+    public static synchronized boolean isLoaded() {
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /** Free the loaded model. Sessions must not be running. */
+    public static synchronized void release() {
+        if (future == null) return;
+        CompletableFuture<Model> f = future;
+        future = null;
+        modelPath = null;
+        f.thenAccept(Model::close);
+    }
+
+    private static void load(File dir, CompletableFuture<Model> f) {
+        PipelineEvents.ModelLoad event = new PipelineEvents.ModelLoad();
+        event.begin();
+        try {
+            long t0 = System.nanoTime();
+            Model model = new Model(dir.getAbsolutePath());
+            long t1 = System.nanoTime();
+            warmUp(model);
+            long t2 = System.nanoTime();
+            RecognitionMetrics.get().recordModelLoad(t2 - t0);
+            LOG.info(String.format("Model loaded in %d ms, warm-up took %d ms",
+                    (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000));
+            event.succeeded = true;
+            f.complete(model);
+        } catch (Throwable e) {
+            LOG.log(Level.SEVERE, "Failed to load model from " + dir, e);
+            f.completeExceptionally(e);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = dir.getPath();
+                event.commit();
+            }
+        }
+    }
+
+    /** Run a short decode of silence so the first real session starts hot. */
+    private static void warmUp(Model model) throws IOException {
+        byte[] silence = new byte[4096];
+        try (Recognizer recognizer = new Recognizer(model, 16000.0f)) {
+            for (int fed = 0; fed < WARM_UP_BYTES; fed += silence.length) {
+                recognizer.acceptWaveForm(silence, silence.length);
+            }
+            recognizer.getFinalResult();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.speech;
+
+import com.example.audio.CaptureSettings;
+import com.example.logging.LoggingConfig;
+
+import org.vosk.Model;
+
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Several {@link RecognitionStream}s running at the same time over one loaded
+ * {@link Model}, such as one microphone per panelist. Every stream has its own
+ * capture and decode thread, so streams scale with the cores until the
+ * decoders saturate them; the number of streams is capped at the core count
+ * since beyond that every stream falls behind. Each stream writes its own
+ * track below the session directory.
+ */
+public final class MultiStreamSession implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(MultiStreamSession.class.getName());
+    /** Prefix of the track directories below a session directory, followed by the track number. */
+    public static final String TRACK_PREFIX = "track-";
+
+    private final Model model;
+    private final CaptureSettings settings;
+    private final RecognitionStream.Listener listener;
+    private final int maxStreams;
+    private final List<RecognitionStream> streams = new CopyOnWriteArrayList<>();
+
+    public MultiStreamSession(Model model, CaptureSettings settings, RecognitionStream.Listener listener) {
+        this(model, settings, listener, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** A session of at most {@code maxStreams} streams. */
+    public MultiStreamSession(Model model, CaptureSettings settings, RecognitionStream.Listener listener,
+                              int maxStreams) {
+        this.model = model;
+        this.settings = settings;
+        this.listener = listener;
+        this.maxStreams = Math.max(1, maxStreams);
+    }
+
+    /** Directory of track {@code number} in {@code sessionDir}. */
+    public static Path trackDirectory(Path sessionDir, int number) {
+        return sessionDir.resolve(TRACK_PREFIX + number);
+    }
+
+    /**
+     * Open and start a stream from {@code device} writing to {@code dir}.
+     * Returns {@code null} if the session already has as many streams as
+     * cores, or the device or the track's journal cannot be opened.
+     */
+    public RecognitionStream add(String label, Mixer.Info device, Path dir) {
+        if (streams.size() >= maxStreams) {
+            LOG.warning("Not captioning " + label + ": " + maxStreams + " streams already use every core");
+            return null;
+        }
+        RecognitionStream stream = new RecognitionStream(label, device, model, dir, settings, listener);
+        try {
+            stream.start();
+        } catch (LineUnavailableException | IOException | IllegalArgumentException e) {
+            LOG.log(Level.WARNING, "Cannot open " + (device != null ? device.getName() : "default device")
+                    + " for " + label, e);
+            return null;
+        }
+        streams.add(stream);
+        return stream;
+    }
+
+    /** Pause or resume every stream. */
+    public void setPaused(boolean paused) {
+        for (RecognitionStream s : streams) {
+            s.setPaused(paused);
+        }
+    }
+
+    public List<RecognitionStream> getStreams() {
+        return Collections.unmodifiableList(streams);
+    }
+
+    /** Segments recognised so far on all streams. */
+    public int getSegmentCount() {
+        int segments = 0;
+        for (RecognitionStream s : streams) {
+            segments += s.getSegmentCount();
+        }
+        return segments;
+    }
+
+    /** One line per stream with its real-time factor, and their sum in cores. */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        double total = 0;
+        for (RecognitionStream s : streams) {
+            double rtf = s.getRealTimeFactor();
+            total += rtf;
+            sb.append(String.format("%s: real-time factor %.2f, %d segments%n", s.getLabel(), rtf,
+                    s.getSegmentCount()));
+        }
+        sb.append(String.format("%d streams use %.2f of %d cores", streams.size(), total,
+                Runtime.getRuntime().availableProcessors()));
+        return sb.toString();
+    }
+
+    /** Stop every stream and finish its track. */
+    @Override
+    public void close() {
+        if (streams.isEmpty()) return;
+        String summary = report();
+        List<Thread> closers = new ArrayList<>();
+        // Close in parallel: each stream still has to decode what it captured.
+        for (RecognitionStream s : streams) {
+            Thread t = new Thread(() -> {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to finish stream " + s.getLabel(), e);
+                }
+            }, "close-" + s.getLabel());
+            t.start();
+            closers.add(t);
+        }
+        boolean interrupted = false;
+        for (Thread t : closers) {
+            while (t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.info("Multi-stream session finished:\n" + summary);
+    }
+
+    /**
+     * Caption several devices until Enter is pressed, printing each stream's
+     * real-time factor every ten seconds.
+     * Usage: {@code MultiStreamSession MODEL_DIR OUT_DIR [DEVICE_INDEX...]};
+     * without indexes every input device is used. {@code --list} prints the
+     * device indexes.
+     */
+    public static void main(String[] args) throws Exception {
+        LoggingConfig.configure();
+        List<Mixer.Info> devices = RecognitionStream.listInputDevices();
+        if (args.length == 1 && args[0].equals("--list")) {
+            for (int i = 0; i < devices.size(); i++) {
+                System.out.println(i + ": " + devices.get(i).getName() + " - " + devices.get(i).getDescription());
+            }
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: MultiStreamSession MODEL_DIR OUT_DIR [DEVICE_INDEX...] | --list");
+            System.exit(1);
+        }
+        List<Mixer.Info> selected = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            selected.add(devices.get(Integer.parseInt(args[i])));
+        }
+        if (selected.isEmpty()) {
+            selected.addAll(devices);
+        }
+        Path out = Paths.get(args[1]);
+        Model model = ModelHolder.get(ModelHolder.locateModelPath(new File(args[0])));
+        RecognitionStream.Listener printer = new RecognitionStream.Listener() {
+            @Override
+            public void partial(RecognitionStream stream, String text, long captureNanos) {
+            }
+
+            @Override
+            public void result(RecognitionStream stream, Segment segment, long captureNanos) {
+                System.out.println("[" + stream.getLabel() + "] " + segment.getText());
+            }
+        };
+        try (MultiStreamSession session = new MultiStreamSession(model, CaptureSettings.fromProperties(), printer)) {
+            for (int i = 0; i < selected.size(); i++) {
+                session.add(selected.get(i).getName(), selected.get(i), trackDirectory(out, i + 1));
+            }
+            Thread reporter = new Thread(() -> {
+                try {
+                    while (true) {
+                        Thread.sleep(10_000);
+                        System.out.println(session.report());
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }, "stream-report");
+            reporter.setDaemon(true);
+            reporter.start();
+            System.out.println("Captioning " + session.getStreams().size() + " streams, press Enter to stop");
+            new BufferedReader(new InputStreamReader(System.in)).readLine();
+            reporter.interrupt();
+        } finally {
+            ModelHolder.release();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.speech;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import org.vosk.Recognizer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Feeds a {@link Recognizer} from native memory. The binding's
+ * {@code acceptWaveForm(byte[], int)} has JNA allocate a temporary native
+ * copy of the array, pass it, copy it back and free it on every call. Here
+ * each stream borrows a block of native memory from a shared pool for its
+ * lifetime, each chunk is copied into it once through a direct
+ * {@link ByteBuffer} view, and the block's address goes straight to
+ * {@code vosk_recognizer_accept_waveform}, bound directly below.
+ * <p>
+ * Java Sound only reads into {@code byte[]}, and the voice gate and signal
+ * conditioner work on the array, so that one write is the only copy left
+ * between the line and the decoder. Falls back to the binding's own call if
+ * the direct binding cannot be made or {@link #ENABLED_PROPERTY} is
+ * {@code false}. Not thread-safe; use from the stream's decode thread.
+ */
+public final class NativeWaveform implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(NativeWaveform.class.getName());
+    /** System property that, set to {@code false}, passes {@code byte[]} through the binding instead. */
+    public static final String ENABLED_PROPERTY = "vosstt.native.direct";
+    /** Size of pooled blocks; holds a 1 s chunk at 16 kHz. */
+    static final int BLOCK_BYTES = 32 * 1024;
+    /** Blocks kept for reuse; more are freed by the garbage collector. */
+    private static final int MAX_POOLED = 64;
+    private static final ConcurrentLinkedQueue<Memory> POOL = new ConcurrentLinkedQueue<>();
+    private static final boolean BOUND = bind();
+
+    private final Recognizer recognizer;
+    private Memory block;
+    /** Direct buffer over {@link #block}, which copies without a JNI call. */
+    private ByteBuffer view;
+
+    /** Feed {@code recognizer}, with a block from the pool if the direct binding is available. */
+    public NativeWaveform(Recognizer recognizer) {
+        this.recognizer = recognizer;
+        if (BOUND) {
+            Memory m = POOL.poll();
+            use(m != null ? m : new Memory(BLOCK_BYTES));
+        }
+    }
+
+    /** Whether calls go through native memory rather than the binding's {@code byte[]} call. */
+    public static boolean isDirect() {
+        return BOUND;
+    }
+
+    /** Same as {@link Recognizer#acceptWaveForm(byte[], int)}: true when an utterance was completed. */
+    public boolean accept(byte[] pcm, int length) {
+        if (block == null) {
+            return recognizer.acceptWaveForm(pcm, length);
+        }
+        if (length > block.size()) {
+            // Rare, e.g. pre-roll and a long chunk at once; keep the larger block for this stream.
+            use(new Memory(length));
+        }
+        view.put(0, pcm, 0, length);
+        return vosk_recognizer_accept_waveform(recognizer.getPointer(), block, length);
+    }
+
+    private void use(Memory m) {
+        block = m;
+        view = m.getByteBuffer(0, m.size());
+    }
+
+    /** Return the block to the pool; the recognizer is not closed. */
+    @Override
+    public void close() {
+        Memory m = block;
+        block = null;
+        view = null;
+        if (m != null && m.size() == BLOCK_BYTES && POOL.size() < MAX_POOLED) {
+            POOL.offer(m);
+        }
+    }
+
+    private static native boolean vosk_recognizer_accept_waveform(Pointer recognizer, Pointer data, int length);
+
+    private static boolean bind() {
+        if ("false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY))) return false;
+        try {
+            // Let the binding load the library first. Registering by the same name from the
+            // same class loader reuses its instance; a second copy would crash on exit.
+            Class.forName("org.vosk.LibVosk");
+            Native.register(NativeWaveform.class, Platform.isWindows() ? "libvosk" : "vosk");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOG.log(Level.WARNING, "Cannot bind vosk_recognizer_accept_waveform directly, copying through JNA", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.speech;
+
+import com.example.audio.AudioCapture;
+import com.example.audio.AudioDevices;
+import com.example.audio.AudioRing;
+import com.example.audio.CaptureSettings;
+import com.example.audio.SignalConditioner;
+import com.example.audio.VoiceGate;
+import com.example.metrics.LatencyTrace;
+import com.example.metrics.PipelineEvents;
+import com.example.metrics.RecognitionMetrics;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Live transcription of one input device into its own track directory: a
+ * capture thread reading the line into an {@link AudioRing} and a decode
+ * thread running a {@link Recognizer} of its own over a shared {@link Model}.
+ * Segments are journalled to {@link TranscriptJournal#FILE_NAME} in the track
+ * directory, and the SRT and WebVTT files and the latency summary are written
+ * there when the stream is closed. Segment times come from the recognizer's
+ * word times through a {@link SampleClock}, relative to the start of the
+ * stream and without the time spent paused.
+ */
+public final class RecognitionStream implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(RecognitionStream.class.getName());
+    /** 16 kHz 16-bit mono, the format the recognizer is fed. */
+    public static final AudioFormat FORMAT = AudioDevices.TARGET_FORMAT;
+
+    /** Receives recognition output on the stream's decode thread. */
+    public interface Listener {
+        /** A changed partial result, decoded from audio captured at {@code captureNanos}. */
+        void partial(RecognitionStream stream, String text, long captureNanos);
+
+        /** A final result completed by audio captured at {@code captureNanos}. */
+        void result(RecognitionStream stream, Segment segment, long captureNanos);
+    }
+
+    private final String label;
+    private final Mixer.Info device;
+    private final Model model;
+    private final Path dir;
+    private final CaptureSettings settings;
+    private final Listener listener;
+    private final LatencyTrace trace = new LatencyTrace();
+
+    private TranscriptJournal journal;
+    private AudioRing ring;
+    private AudioCapture capture;
+    private Thread decoder;
+    private RecognitionMetrics.Session metrics;
+    /** Capture time of the chunk being decoded. Decode thread only. */
+    private long captureNanos;
+    private volatile boolean paused;
+    private boolean closed;
+
+    /**
+     * A stream from {@code device}, {@code null} for the system default, named
+     * {@code label} in logs and metrics. Nothing is opened until {@link #start()}.
+     */
+    public RecognitionStream(String label, Mixer.Info device, Model model, Path dir, CaptureSettings settings,
+                             Listener listener) {
+        this.label = label;
+        this.device = device;
+        this.model = model;
+        this.dir = dir;
+        this.settings = settings;
+        this.listener = listener;
+    }
+
+    /** Input devices that can capture {@link #FORMAT}, directly or resampled. */
+    public static List<Mixer.Info> listInputDevices() {
+        return AudioDevices.listInputDevices();
+    }
+
+    /** Open the device and the journal and start capturing and decoding. */
+    public void start() throws IOException, LineUnavailableException {
+        Files.createDirectories(dir);
+        TargetDataLine line = AudioDevices.openLine(device, settings);
+        try {
+            journal = new TranscriptJournal(dir.resolve(TranscriptJournal.FILE_NAME));
+        } catch (IOException e) {
+            line.close();
+            throw e;
+        }
+        journal.setLatencyTrace(trace);
+        ring = new AudioRing(settings.getRingChunks(), settings.getChunkBytes(FORMAT), FORMAT.getFrameSize());
+        metrics = RecognitionMetrics.get().openSession(label, FORMAT.getSampleRate() * FORMAT.getFrameSize());
+        capture = new AudioCapture(line, ring, FORMAT);
+        decoder = new Thread(this::decodeLoop, "decode-" + label);
+        capture.start();
+        decoder.start();
+        LOG.info(() -> "Stream " + label + " started on " + (device != null ? device.getName() : "default device")
+                + " in " + line.getFormat() + ", " + settings);
+    }
+
+    private void decodeLoop() {
+        ResultExtractor results = new ResultExtractor();
+        try (Recognizer recognizer = new Recognizer(model, FORMAT.getSampleRate());
+             NativeWaveform waveform = new NativeWaveform(recognizer)) {
+            recognizer.setWords(true);
+            SignalConditioner dsp = new SignalConditioner(FORMAT.getSampleRate());
+            VoiceGate gate = new VoiceGate(FORMAT.getSampleRate());
+            SampleClock clock = new SampleClock(FORMAT.getSampleRate());
+            VoiceGate.Sink sink = (pcm, length) -> {
+                clock.fed(gate.getFeedOffset(), length);
+                PipelineEvents.Decode event = new PipelineEvents.Decode();
+                event.begin();
+                boolean complete = waveform.accept(pcm, length);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.bytes = length;
+                    event.complete = complete;
+                    event.commit();
+                }
+                trace.record(LatencyTrace.Stage.DECODE, captureNanos);
+                if (complete) {
+                    emitResult(results, clock, recognizer.getResult());
+                } else if (results.parsePartial(recognizer.getPartialResult()) && !results.isEmpty()) {
+                    listener.partial(this, results.text(), captureNanos);
+                }
+                return complete;
+            };
+            while (!ring.isDrained()) {
+                AudioRing.Chunk chunk = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk == null) continue;
+                try {
+                    if (paused) continue;
+                    captureNanos = chunk.getCaptureNanos();
+                    long t0 = System.nanoTime();
+                    dsp.process(chunk.getData(), chunk.getLength());
+                    gate.process(chunk.getData(), chunk.getLength(), sink);
+                    metrics.chunk(chunk.getLength(), System.nanoTime() - t0, ring.size() - 1,
+                            ring.getDroppedFrames());
+                } finally {
+                    ring.release();
+                }
+            }
+            emitResult(results, clock, recognizer.getFinalResult());
+            LOG.info(() -> "Stream " + label + ": voice gate " + gate + ", " + dsp + ", capture " + capture);
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Stream " + label + " failed", e);
+        }
+    }
+
+    private void emitResult(ResultExtractor results, SampleClock clock, String json) throws IOException {
+        if (!results.parseResult(json)) return;
+        trace.record(LatencyTrace.Stage.RESULT, captureNanos);
+        Segment segment = clock.segment(results);
+        journal.append(segment.getStartMs(), segment.getEndMs(), segment.getText(), captureNanos);
+        listener.result(this, segment, captureNanos);
+    }
+
+    /** While paused, captured audio is discarded instead of decoded. */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /** The device, or {@code null} for the system default. */
+    public Mixer.Info getDevice() {
+        return device;
+    }
+
+    /** Directory holding this stream's journal and subtitles. */
+    public Path getDirectory() {
+        return dir;
+    }
+
+    /** Segments recognised so far. */
+    public int getSegmentCount() {
+        return journal != null ? journal.getSegmentCount() : 0;
+    }
+
+    /** Processing time per second of audio so far; 1 means this stream needs a whole core. */
+    public double getRealTimeFactor() {
+        return metrics != null ? metrics.getRealTimeFactor() : 0;
+    }
+
+    public LatencyTrace getLatencyTrace() {
+        return trace;
+    }
+
+    /**
+     * Stop capturing, decode what was captured, then render the subtitles and
+     * write the latency summary. Waits for the decode thread even if the
+     * calling thread is interrupted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed || capture == null) return;
+        closed = true;
+        boolean interrupted = Thread.interrupted();
+        try {
+            capture.close();
+            while (decoder.isAlive()) {
+                try {
+                    decoder.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            metrics.close();
+            journal.close();
+            TranscriptJournal.render(journal.getFile());
+            trace.write(dir);
+            LOG.info(() -> String.format("Stream %s: %d segments, real-time factor %.2f",
+                    label, journal.getSegmentCount(), metrics.getRealTimeFactor()));
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
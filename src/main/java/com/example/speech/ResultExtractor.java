@@ -0,0 +1,345 @@
+package com.example.speech;
+
+import java.util.Arrays;
+
+/**
+ * Reads the fields the application needs straight out of the JSON documents
+ * returned by the recognizer, without building a JSON tree. One extractor is
+ * kept per stream and its buffers are reused for every chunk, so a steady
+ * stream of partial results produces no garbage until the text actually
+ * changes and is turned into a {@link String}.
+ * <p>
+ * Understands {@code text}, {@code partial} and the {@code result} word array
+ * with {@code word}, {@code start}, {@code end} and {@code conf}. Any other
+ * member is skipped. Not thread safe.
+ */
+public final class ResultExtractor {
+    private static final int KEY_OTHER = 0;
+    private static final int KEY_TEXT = 1;
+    private static final int KEY_PARTIAL = 2;
+    private static final int KEY_RESULT = 3;
+    private static final int KEY_WORD = 4;
+    private static final int KEY_START = 5;
+    private static final int KEY_END = 6;
+    private static final int KEY_CONF = 7;
+
+    private String json;
+    private int pos;
+
+    private char[] text = new char[128];
+    private int textLength;
+    private char[] previous = new char[128];
+    private int previousLength;
+    private boolean lastWasPartial;
+
+    private int wordCount;
+    private float[] starts = new float[32];
+    private float[] ends = new float[32];
+    private float[] confs = new float[32];
+    private int[] wordBounds = new int[64];
+    private char[] wordChars = new char[256];
+    private int wordCharsLength;
+
+    /**
+     * Parse a result from {@code getResult()} or {@code getFinalResult()}.
+     * Returns true if it contains non-empty text. Also clears the remembered
+     * partial, since the next utterance starts from scratch.
+     */
+    public boolean parseResult(String json) {
+        parse(json, KEY_TEXT);
+        lastWasPartial = false;
+        return textLength > 0;
+    }
+
+    /**
+     * Parse a result from {@code getPartialResult()}. Returns true only if the
+     * partial text differs from the one seen by the previous call, so callers
+     * can skip redundant UI updates.
+     */
+    public boolean parsePartial(String json) {
+        char[] swap = previous;
+        previous = text;
+        previousLength = lastWasPartial ? textLength : 0;
+        text = swap;
+        parse(json, KEY_PARTIAL);
+        lastWasPartial = true;
+        return textLength != previousLength
+                || !Arrays.equals(text, 0, textLength, previous, 0, previousLength);
+    }
+
+    /** Return true if the last parsed document had empty text. */
+    public boolean isEmpty() {
+        return textLength == 0;
+    }
+
+    /** Length of the last extracted text. */
+    public int length() {
+        return textLength;
+    }
+
+    /** Return the last extracted text as a new string. */
+    public String text() {
+        return new String(text, 0, textLength);
+    }
+
+    /** Number of words in the {@code result} array of the last result. */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /** Start of word {@code i} in seconds of audio fed to the recognizer. */
+    public float getWordStart(int i) {
+        return starts[i];
+    }
+
+    /** End of word {@code i} in seconds of audio fed to the recognizer. */
+    public float getWordEnd(int i) {
+        return ends[i];
+    }
+
+    public float getWordConfidence(int i) {
+        return confs[i];
+    }
+
+    public String getWord(int i) {
+        return new String(wordChars, wordBounds[2 * i], wordBounds[2 * i + 1] - wordBounds[2 * i]);
+    }
+
+    // ---- parsing ----
+
+    private void parse(String json, int wanted) {
+        this.json = json;
+        this.pos = 0;
+        textLength = 0;
+        wordCount = 0;
+        wordCharsLength = 0;
+        skipWhitespace();
+        if (!consume('{')) return;
+        while (true) {
+            skipWhitespace();
+            if (pos >= json.length() || peek() != '"') break;
+            int key = readKey();
+            skipWhitespace();
+            if (!consume(':')) break;
+            skipWhitespace();
+            if (key == wanted && peek() == '"') {
+                textLength = readString(false);
+            } else if (key == KEY_RESULT && peek() == '[') {
+                readWords();
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            if (!consume(',')) break;
+        }
+        this.json = null;
+    }
+
+    private void readWords() {
+        pos++; // [
+        while (true) {
+            skipWhitespace();
+            if (!consume('{')) break;
+            ensureWordCapacity();
+            int i = wordCount;
+            starts[i] = 0;
+            ends[i] = 0;
+            confs[i] = 0;
+            wordBounds[2 * i] = wordCharsLength;
+            wordBounds[2 * i + 1] = wordCharsLength;
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') break;
+                int key = readKey();
+                skipWhitespace();
+                if (!consume(':')) return;
+                skipWhitespace();
+                switch (key) {
+                    case KEY_WORD -> {
+                        if (peek() == '"') {
+                            int start = wordCharsLength;
+                            wordCharsLength = start + readString(true);
+                            wordBounds[2 * i] = start;
+                            wordBounds[2 * i + 1] = wordCharsLength;
+                        } else {
+                            skipValue();
+                        }
+                    }
+                    case KEY_START -> starts[i] = (float) readNumber();
+                    case KEY_END -> ends[i] = (float) readNumber();
+                    case KEY_CONF -> confs[i] = (float) readNumber();
+                    default -> skipValue();
+                }
+                skipWhitespace();
+                if (!consume(',')) break;
+            }
+            consume('}');
+            wordCount++;
+            skipWhitespace();
+            if (!consume(',')) break;
+        }
+        skipWhitespace();
+        consume(']');
+    }
+
+    /** Read an object key and classify it without allocating. */
+    private int readKey() {
+        int start = ++pos;
+        while (pos < json.length() && json.charAt(pos) != '"') {
+            if (json.charAt(pos) == '\\') pos++;
+            pos++;
+        }
+        int len = pos - start;
+        pos++;
+        if (matches(start, len, "text")) return KEY_TEXT;
+        if (matches(start, len, "partial")) return KEY_PARTIAL;
+        if (matches(start, len, "result")) return KEY_RESULT;
+        if (matches(start, len, "word")) return KEY_WORD;
+        if (matches(start, len, "start")) return KEY_START;
+        if (matches(start, len, "end")) return KEY_END;
+        if (matches(start, len, "conf")) return KEY_CONF;
+        return KEY_OTHER;
+    }
+
+    private boolean matches(int start, int len, String key) {
+        return len == key.length() && json.regionMatches(start, key, 0, len);
+    }
+
+    /**
+     * Decode the string value at the current position into {@link #text}, or
+     * append it to {@link #wordChars} when {@code word} is set. Returns the
+     * number of characters decoded.
+     */
+    private int readString(boolean word) {
+        pos++; // opening quote
+        int n = 0;
+        int base = word ? wordCharsLength : 0;
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+            if (c == '"') break;
+            if (c == '\\' && pos < json.length()) {
+                char e = json.charAt(pos++);
+                switch (e) {
+                    case 'n' -> c = '\n';
+                    case 't' -> c = '\t';
+                    case 'r' -> c = '\r';
+                    case 'b' -> c = '\b';
+                    case 'f' -> c = '\f';
+                    case 'u' -> {
+                        c = (char) Integer.parseInt(json, pos, Math.min(pos + 4, json.length()), 16);
+                        pos += 4;
+                    }
+                    default -> c = e;
+                }
+            }
+            if (word) {
+                if (base + n == wordChars.length) {
+                    wordChars = Arrays.copyOf(wordChars, wordChars.length * 2);
+                }
+                wordChars[base + n] = c;
+            } else {
+                if (n == text.length) {
+                    text = Arrays.copyOf(text, text.length * 2);
+                }
+                text[n] = c;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /** Parse a plain decimal number such as {@code 1.230000} or {@code 1e-3}. */
+    private double readNumber() {
+        boolean negative = consume('-');
+        long mantissa = 0;
+        int scale = 0;
+        boolean fraction = false;
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                if (mantissa < 100_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) scale--;
+                } else if (!fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        if (pos < json.length() && (peek() == 'e' || peek() == 'E')) {
+            pos++;
+            boolean negExp = consume('-');
+            consume('+');
+            int exp = 0;
+            while (pos < json.length() && Character.isDigit(peek())) {
+                exp = exp * 10 + (json.charAt(pos++) - '0');
+            }
+            scale += negExp ? -exp : exp;
+        }
+        double value = scale >= 0 ? mantissa * Math.pow(10, scale) : mantissa / Math.pow(10, -scale);
+        return negative ? -value : value;
+    }
+
+    private void skipValue() {
+        if (pos >= json.length()) return;
+        char c = peek();
+        if (c == '"') {
+            pos++;
+            while (pos < json.length()) {
+                char d = json.charAt(pos++);
+                if (d == '\\') pos++;
+                else if (d == '"') return;
+            }
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            while (pos < json.length()) {
+                char d = json.charAt(pos);
+                if (d == '"') {
+                    skipValue();
+                    continue;
+                }
+                pos++;
+                if (d == '{' || d == '[') depth++;
+                else if ((d == '}' || d == ']') && --depth == 0) return;
+            }
+        } else {
+            while (pos < json.length()) {
+                char d = json.charAt(pos);
+                if (d == ',' || d == '}' || d == ']' || Character.isWhitespace(d)) return;
+                pos++;
+            }
+        }
+    }
+
+    private void ensureWordCapacity() {
+        if (wordCount == starts.length) {
+            int size = starts.length * 2;
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            confs = Arrays.copyOf(confs, size);
+            wordBounds = Arrays.copyOf(wordBounds, size * 2);
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char peek() {
+        return pos < json.length() ? json.charAt(pos) : 0;
+    }
+
+    private boolean consume(char c) {
+        if (pos < json.length() && json.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.speech;
+
+import java.util.Arrays;
+
+/**
+ * Places recognised words on the session timeline by counting samples rather
+ * than reading the wall clock, so subtitle times do not drift when decoding
+ * falls behind capture. The recognizer reports word times in seconds of the
+ * audio it was fed, which leaves out what the voice gate skipped and what
+ * arrived while paused. Each piece of fed audio is recorded here with its
+ * offset in the audio that reached the gate, and word times are mapped back
+ * through those spans. Paused audio never reaches the gate, so the timeline
+ * stops while paused, as the session timer does.
+ * <p>
+ * Expects 16-bit mono PCM. Not thread-safe; use from the decode thread.
+ */
+public final class SampleClock {
+    private final double bytesPerSecond;
+    /** Start of each span in fed audio and in gated input, in bytes, oldest first. */
+    private long[] fedStarts = new long[16];
+    private long[] inputStarts = new long[16];
+    private int spans;
+    private long fedBytes;
+    private long lastEndMs;
+
+    /** A clock for 16-bit mono audio at {@code sampleRate}. */
+    public SampleClock(float sampleRate) {
+        this.bytesPerSecond = sampleRate * 2.0;
+    }
+
+    /** Record that {@code length} bytes starting at {@code inputOffset} of the gated input were fed. */
+    public void fed(long inputOffset, int length) {
+        if (length <= 0) return;
+        // Consecutive chunks of one utterance extend the last span.
+        if (spans == 0 || inputStarts[spans - 1] + (fedBytes - fedStarts[spans - 1]) != inputOffset) {
+            if (spans == fedStarts.length) {
+                fedStarts = Arrays.copyOf(fedStarts, spans * 2);
+                inputStarts = Arrays.copyOf(inputStarts, spans * 2);
+            }
+            fedStarts[spans] = fedBytes;
+            inputStarts[spans] = inputOffset;
+            spans++;
+        }
+        fedBytes += length;
+    }
+
+    /** Session time in ms of {@code fedSeconds} into the audio fed to the recognizer. */
+    public long toSessionMillis(double fedSeconds) {
+        if (spans == 0) return lastEndMs;
+        long fed = Math.min(fedBytes, Math.max(0, Math.round(fedSeconds * bytesPerSecond)));
+        int i = spans - 1;
+        while (i > 0 && fedStarts[i] > fed) i--;
+        long input = inputStarts[i] + Math.max(0, fed - fedStarts[i]);
+        return (long) (input * 1000 / bytesPerSecond);
+    }
+
+    /** Session time in ms of the end of the audio fed so far. */
+    public long getFedEndMillis() {
+        return toSessionMillis(fedBytes / bytesPerSecond);
+    }
+
+    /**
+     * The segment for the result last parsed by {@code results}, from its
+     * first word's start to its last word's end. Without word times it runs
+     * from the previous segment's end to the end of the audio fed so far.
+     * Spans before the segment's end are then forgotten, since later words
+     * come after it.
+     */
+    public Segment segment(ResultExtractor results) {
+        int words = results.getWordCount();
+        long start = words > 0 ? toSessionMillis(results.getWordStart(0)) : lastEndMs;
+        long end = words > 0 ? toSessionMillis(results.getWordEnd(words - 1)) : getFedEndMillis();
+        start = Math.max(start, lastEndMs);
+        end = Math.max(end, start);
+        forgetBefore(words > 0 ? results.getWordEnd(words - 1) : fedBytes / bytesPerSecond);
+        lastEndMs = end;
+        return new Segment(start, end, results.text());
+    }
+
+    private void forgetBefore(double fedSeconds) {
+        long fed = Math.round(fedSeconds * bytesPerSecond);
+        int keep = spans - 1;
+        while (keep > 0 && fedStarts[keep] > fed) keep--;
+        if (keep > 0) {
+            System.arraycopy(fedStarts, keep, fedStarts, 0, spans - keep);
+            System.arraycopy(inputStarts, keep, inputStarts, 0, spans - keep);
+            spans -= keep;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.speech;
+
+/** A recognised piece of text with its position in the session. */
+public final class Segment {
+    private final long startMs;
+    private final long endMs;
+    private final String text;
+
+    public Segment(long startMs, long endMs, String text) {
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.text = text;
+    }
+
+    public long getStartMs() {
+        return startMs;
+    }
+
+    public long getEndMs() {
+        return endMs;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /** Return a copy shifted by the given number of milliseconds. */
+    public Segment shift(long offsetMs) {
+        return new Segment(startMs + offsetMs, endMs + offsetMs, text);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.speech;
+
+import com.example.logging.LoggingConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Sidecar file beside an SRT file mapping each entry's number and start time
+ * to its byte offset, so a position in a transcript can be found with a
+ * binary search instead of a scan from the top.
+ * <pre>
+ * header   magic, entry count, size of the SRT file it describes
+ * entries  per entry, in file order: start ms, byte offset (both longs)
+ * </pre>
+ * An index whose recorded SRT size does not match the SRT file is stale and
+ * is ignored.
+ */
+public final class SrtIndex {
+    /** "VSO1" */
+    private static final int MAGIC = 0x56534F31;
+    private static final int HEADER = 16;
+    private static final int ENTRY = 16;
+
+    private final MappedByteBuffer buf;
+    private final int count;
+
+    private SrtIndex(MappedByteBuffer buf, int count) {
+        this.buf = buf;
+        this.count = count;
+    }
+
+    /** Sidecar path for {@code srt}: {@code transcript.srt} becomes {@code transcript.idx}. */
+    public static Path sidecarOf(Path srt) {
+        String name = srt.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return srt.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".idx");
+    }
+
+    /** Open the sidecar of {@code srt}, or return {@code null} if it is missing, unreadable or stale. */
+    public static SrtIndex open(Path srt) throws IOException {
+        Path file = sidecarOf(srt);
+        if (!Files.exists(file) || !Files.exists(srt)) return null;
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER || ch.size() > Integer.MAX_VALUE) return null;
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        int count = buf.getInt(4);
+        if (buf.getInt(0) != MAGIC || count < 0 || buf.capacity() != HEADER + (long) count * ENTRY
+                || buf.getLong(8) != Files.size(srt)) {
+            return null;
+        }
+        return new SrtIndex(buf, count);
+    }
+
+    /** Number of entries. */
+    public int size() {
+        return count;
+    }
+
+    /** Start time of entry {@code i} (counted from 0), in milliseconds. */
+    public long getStartMs(int i) {
+        return buf.getLong(HEADER + i * ENTRY);
+    }
+
+    /** Byte offset of entry {@code i} in the SRT file. */
+    public long getOffset(int i) {
+        return buf.getLong(HEADER + i * ENTRY + 8);
+    }
+
+    /** Index of the last entry starting at or before {@code ms}, or 0 if there is none. */
+    public int find(long ms) {
+        int lo = 0;
+        int hi = count - 1;
+        int found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (getStartMs(mid) <= ms) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /** Collects entries while an SRT file is written, then writes its sidecar. */
+    public static final class Builder {
+        private long[] data = new long[256];
+        private int size;
+
+        /** Record the next entry, which starts at {@code startMs} and byte {@code offset}. */
+        public void add(long startMs, long offset) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = startMs;
+            data[size++] = offset;
+        }
+
+        /**
+         * Write the sidecar for an SRT file of {@code srtSize} bytes to
+         * {@code file}, via a temporary name so an existing index is always
+         * complete.
+         */
+        public void write(Path file, long srtSize) throws IOException {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(size / 2);
+                out.writeLong(srtSize);
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(data[i]);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /** Scan {@code srt} and write its sidecar. Returns the number of entries indexed. */
+    public static int rebuild(Path srt) throws IOException {
+        MappedSrt mapped = MappedSrt.scan(srt);
+        Builder builder = new Builder();
+        long last = 0;
+        for (int i = 0; i < mapped.size(); i++) {
+            long start = mapped.get(i).getStartMs();
+            // Keep the start times sorted even across a malformed entry.
+            last = Math.max(last, start);
+            builder.add(last, mapped.getOffset(i));
+        }
+        builder.write(sidecarOf(srt), Files.size(srt));
+        return mapped.size();
+    }
+
+    private static void usage() {
+        System.err.println("Usage: SrtIndex [--force] PATH...");
+        System.err.println("Writes the missing or stale .idx sidecars of the SRT files below each PATH.");
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoggingConfig.configure();
+        boolean force = false;
+        List<Path> roots = new ArrayList<>();
+        for (String arg : args) {
+            switch (arg) {
+                case "--force" -> force = true;
+                case "--help", "-h" -> {
+                    usage();
+                    return;
+                }
+                default -> roots.add(Paths.get(arg));
+            }
+        }
+        if (roots.isEmpty()) {
+            usage();
+            System.exit(2);
+        }
+        int built = 0;
+        int current = 0;
+        int failed = 0;
+        for (Path root : roots) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(p -> p.getFileName().toString().endsWith(".srt") && Files.isRegularFile(p)).toList();
+            }
+            for (Path srt : files) {
+                try {
+                    if (!force && open(srt) != null) {
+                        current++;
+                        continue;
+                    }
+                    int n = rebuild(srt);
+                    built++;
+                    System.out.println("Indexed " + n + " entries of " + srt);
+                } catch (IOException e) {
+                    failed++;
+                    System.err.println("Failed to index " + srt + ": " + e.getMessage());
+                }
+            }
+        }
+        System.out.printf("%d indexes written, %d already current, %d failed%n", built, current, failed);
+        if (failed > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.speech;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads the entries of an SRT file back into segments. */
+public final class SrtReader {
+    private SrtReader() {
+    }
+
+    /** Parse every well-formed entry of {@code file}; malformed entries are skipped. */
+    public static List<Segment> read(Path file) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int arrow = line.indexOf("-->");
+                if (arrow < 0) continue;
+                long start = parseTime(line.substring(0, arrow));
+                long end = parseTime(line.substring(arrow + 3));
+                StringBuilder text = new StringBuilder();
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    if (text.length() > 0) text.append('\n');
+                    text.append(line);
+                }
+                if (start >= 0 && end >= 0) {
+                    segments.add(new Segment(start, end, text.toString()));
+                }
+            }
+        }
+        return segments;
+    }
+
+    /** Parse {@code hh:mm:ss,mmm}; returns -1 if malformed. */
+    static long parseTime(String s) {
+        String t = s.trim().replace('.', ',');
+        String[] hms = t.split("[:,]");
+        if (hms.length != 4) return -1;
+        try {
+            return Long.parseLong(hms[0]) * 3_600_000 + Long.parseLong(hms[1]) * 60_000
+                    + Long.parseLong(hms[2]) * 1000 + Long.parseLong(hms[3]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
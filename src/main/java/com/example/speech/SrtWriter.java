@@ -0,0 +1,94 @@
+package com.example.speech;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/** Writes numbered subtitle entries in SRT format. */
+public class SrtWriter implements Closeable, Flushable {
+    private static final int NEWLINE_BYTES = System.lineSeparator().length();
+
+    private final BufferedWriter out;
+    private int index;
+    private long byteOffset;
+
+    /** Create a writer whose first entry is numbered 1. */
+    public SrtWriter(Writer out) {
+        this(out, 1);
+    }
+
+    /** Create a writer whose first entry gets the given number. */
+    public SrtWriter(Writer out, int firstIndex) {
+        this.out = out instanceof BufferedWriter ? (BufferedWriter) out : new BufferedWriter(out);
+        this.index = firstIndex;
+    }
+
+    /** Append one subtitle entry spanning the given session times. */
+    public void write(long startMs, long endMs, String text) throws IOException {
+        String number = Integer.toString(index++);
+        String timing = formatTime(startMs) + " --> " + formatTime(endMs);
+        out.write(number);
+        out.newLine();
+        out.write(timing);
+        out.newLine();
+        out.write(text);
+        out.newLine();
+        out.newLine();
+        byteOffset += number.length() + timing.length() + utf8Length(text) + 4 * NEWLINE_BYTES;
+    }
+
+    /** Number that will be given to the next entry. */
+    public int getNextIndex() {
+        return index;
+    }
+
+    /**
+     * Position in the output, in bytes, at which the next entry starts,
+     * assuming the underlying writer encodes UTF-8.
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /** Format the given milliseconds in SRT timestamp format. */
+    public static String formatTime(long ms) {
+        long h = ms / 3_600_000;
+        long m = (ms % 3_600_000) / 60_000;
+        long s = (ms % 60_000) / 1000;
+        long milli = ms % 1000;
+        return String.format("%02d:%02d:%02d,%03d", h, m, s, milli);
+    }
+
+    /** Number of bytes {@code s} takes in UTF-8; unpaired surrogates become one replacement byte. */
+    static int utf8Length(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                n++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.speech;
+
+import com.example.metrics.LatencyTrace;
+import com.example.metrics.PipelineEvents;
+import com.example.metrics.RecognitionMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, crash-safe journal of recognised segments.
+ * <p>
+ * {@link #append(long, long, String)} only queues the segment, so the decode
+ * thread never waits for the disk. A background writer drains whatever has
+ * accumulated, writes it with a single channel write (group commit) and syncs
+ * according to the {@link Sync} policy. Every record carries its length and a
+ * CRC32, so a torn write at the end of the file is detected and dropped when
+ * the journal is read back.
+ * <p>
+ * When the session ends the journal is closed with an end marker and the SRT
+ * and WebVTT files are rendered from it. Journals without an end marker, or
+ * without rendered subtitles, are left by a crash and are completed by
+ * {@link #recover(Path)}.
+ */
+public class TranscriptJournal implements Closeable {
+    private static final Logger LOG = Logger.getLogger(TranscriptJournal.class.getName());
+
+    public static final String FILE_NAME = "transcript.journal";
+    public static final String SRT_NAME = "transcript.srt";
+    public static final String VTT_NAME = "transcript.vtt";
+
+    /** "VSJ1" */
+    private static final int MAGIC = 0x56534a31;
+    private static final byte TYPE_SEGMENT = 1;
+    private static final byte TYPE_CLOSE = 2;
+    /** Record length and CRC preceding every payload. */
+    private static final int RECORD_HEADER = 8;
+    /** Type byte and the two timestamps at the start of a segment payload. */
+    private static final int SEGMENT_HEADER = 17;
+    /** Queued after the last segment to tell the writer to finish. */
+    private static final Pending END = new Pending(null, 0);
+
+    /** When the writer forces journal data to the storage device. */
+    public enum Sync {
+        /** Leave it to the operating system. Survives an application crash only. */
+        NONE,
+        /** After every group commit. */
+        COMMIT,
+        /** After a group commit if the last sync is older than the sync interval. */
+        INTERVAL;
+
+        /**
+         * Policy named by the {@code vosstt.journal.sync} system property,
+         * {@link #COMMIT} if unset.
+         */
+        public static Sync fromProperty() {
+            String value = System.getProperty("vosstt.journal.sync", "commit");
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                LOG.warning("Unknown journal sync policy " + value + ", using commit");
+                return COMMIT;
+            }
+        }
+    }
+
+    /** Segments read back from a journal file. */
+    public static final class Contents {
+        private final List<Segment> segments;
+        private final boolean closed;
+        private final long validLength;
+
+        private Contents(List<Segment> segments, boolean closed, long validLength) {
+            this.segments = segments;
+            this.closed = closed;
+            this.validLength = validLength;
+        }
+
+        public List<Segment> getSegments() {
+            return segments;
+        }
+
+        /** Whether the journal ends with the marker written by {@link #close()}. */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /** Length of the intact prefix of the file. */
+        public long getValidLength() {
+            return validLength;
+        }
+    }
+
+    /** A queued segment and the capture time of its audio, 0 if untraced. */
+    private static final class Pending {
+        final Segment segment;
+        final long captureNanos;
+
+        Pending(Segment segment, long captureNanos) {
+            this.segment = segment;
+            this.captureNanos = captureNanos;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Sync sync;
+    private final long syncIntervalNanos;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    private volatile IOException failure;
+    private boolean closed;
+    private int appended;
+    private volatile LatencyTrace trace;
+
+    // Writer thread statistics, read after it has finished.
+    private long records;
+    private long commits;
+    private long syncs;
+    private int maxBatch;
+    private long commitNanosTotal;
+    private long commitNanosMax;
+
+    /** Create a new journal, replacing any existing file, with the policy from the system property. */
+    public TranscriptJournal(Path file) throws IOException {
+        this(file, Sync.fromProperty(), Long.getLong("vosstt.journal.syncIntervalMs", 1000));
+    }
+
+    /**
+     * Create a new journal, replacing any existing file. Call {@link #recover(Path)}
+     * first if the file may hold an interrupted session.
+     *
+     * @param syncIntervalMs minimum time between syncs for {@link Sync#INTERVAL}
+     */
+    public TranscriptJournal(Path file, Sync sync, long syncIntervalMs) throws IOException {
+        this.file = file;
+        this.sync = sync;
+        this.syncIntervalNanos = Math.max(0, syncIntervalMs) * 1_000_000L;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(0, MAGIC);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue one segment for writing. Never blocks; fails only if the writer
+     * has already failed, in which case the segment is not recorded.
+     */
+    public void append(long startMs, long endMs, String text) throws IOException {
+        append(startMs, endMs, text, 0);
+    }
+
+    /**
+     * Queue one segment whose audio was captured at {@code captureNanos}. Once
+     * it is written, and synced if the policy syncs the group, the time since
+     * capture is recorded in the {@link #setLatencyTrace trace}.
+     */
+    public void append(long startMs, long endMs, String text, long captureNanos) throws IOException {
+        IOException f = failure;
+        if (f != null) {
+            throw new IOException("Journal writer failed", f);
+        }
+        queue.add(new Pending(new Segment(startMs, endMs, text), captureNanos));
+        appended++;
+    }
+
+    /** Record the {@link LatencyTrace.Stage#DISK} stage of traced segments in {@code trace}. */
+    public void setLatencyTrace(LatencyTrace trace) {
+        this.trace = trace;
+    }
+
+    /** Number of segments appended by the caller so far. */
+    public int getSegmentCount() {
+        return appended;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Segments queued but not yet written. */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Write the remaining segments and the end marker, sync and close the
+     * file. Waits for the writer even if the calling thread is interrupted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        queue.add(END);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        LOG.info(this::toString);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean done = false;
+        while (!done) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch);
+            if (failure != null) {
+                done = batch.contains(END);
+                batch.clear();
+                continue;
+            }
+            long t0 = System.nanoTime();
+            PipelineEvents.TranscriptWrite event = new PipelineEvents.TranscriptWrite();
+            event.begin();
+            boolean synced = false;
+            try {
+                buffer.clear();
+                for (Pending p : batch) {
+                    if (p == END) {
+                        done = true;
+                        encode(TYPE_CLOSE, 0, 0, "");
+                    } else {
+                        Segment s = p.segment;
+                        encode(TYPE_SEGMENT, s.getStartMs(), s.getEndMs(), s.getText());
+                        records++;
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                long now = System.nanoTime();
+                if (done || sync == Sync.COMMIT || (sync == Sync.INTERVAL && now - lastSync >= syncIntervalNanos)) {
+                    if (sync != Sync.NONE) {
+                        channel.force(false);
+                        synced = true;
+                        syncs++;
+                        lastSync = System.nanoTime();
+                    }
+                }
+                LatencyTrace t = trace;
+                if (t != null) {
+                    for (Pending p : batch) {
+                        t.record(LatencyTrace.Stage.DISK, p.captureNanos);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Failed writing transcript journal " + file, e);
+                failure = e;
+            }
+            long elapsed = System.nanoTime() - t0;
+            RecognitionMetrics.get().recordWrite(elapsed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.segments = batch.size();
+                event.bytes = buffer.limit();
+                event.synced = synced;
+                event.commit();
+            }
+            commits++;
+            commitNanosTotal += elapsed;
+            commitNanosMax = Math.max(commitNanosMax, elapsed);
+            maxBatch = Math.max(maxBatch, batch.size());
+            batch.clear();
+        }
+    }
+
+    private void encode(byte type, long startMs, long endMs, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        int payload = SEGMENT_HEADER + utf8.length;
+        if (buffer.remaining() < RECORD_HEADER + payload) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + RECORD_HEADER + payload));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        int start = buffer.position();
+        buffer.putInt(payload);
+        buffer.putInt(0);
+        buffer.put(type).putLong(startMs).putLong(endMs).put(utf8);
+        crc.reset();
+        crc.update(buffer.array(), start + RECORD_HEADER, payload);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Journal %s: %d segments in %d commits (max batch %d, %d syncs), "
+                        + "commit mean %.2f ms, max %.2f ms",
+                file.getFileName(), records, commits, maxBatch, syncs,
+                commits == 0 ? 0.0 : commitNanosTotal / 1e6 / commits, commitNanosMax / 1e6);
+    }
+
+    // ---- reading and recovery ----
+
+    /** Read the intact records of a journal, stopping at the first torn or corrupt one. */
+    public static Contents read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<Segment> segments = new ArrayList<>();
+        if (in.remaining() < 4 || in.getInt() != MAGIC) {
+            return new Contents(segments, false, 0);
+        }
+        CRC32 crc = new CRC32();
+        boolean closed = false;
+        long valid = in.position();
+        while (!closed && in.remaining() >= RECORD_HEADER) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < SEGMENT_HEADER || length > in.remaining()) break;
+            crc.reset();
+            crc.update(in.array(), in.position(), length);
+            if ((int) crc.getValue() != checksum) break;
+            byte type = in.get();
+            long startMs = in.getLong();
+            long endMs = in.getLong();
+            int textLength = length - SEGMENT_HEADER;
+            String text = new String(in.array(), in.position(), textLength, StandardCharsets.UTF_8);
+            in.position(in.position() + textLength);
+            if (type == TYPE_SEGMENT) {
+                segments.add(new Segment(startMs, endMs, text));
+            } else if (type == TYPE_CLOSE) {
+                closed = true;
+            }
+            valid = in.position();
+        }
+        return new Contents(segments, closed, valid);
+    }
+
+    /** Write the SRT and WebVTT files for a closed journal next to it. */
+    public static void render(Path file) throws IOException {
+        render(read(file).getSegments(), file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Write {@link #SRT_NAME} and {@link #VTT_NAME} into {@code dir}, and the
+     * {@link SrtIndex} sidecar of the SRT file. Each file is written to a
+     * temporary name and moved into place, so a subtitle file that exists is
+     * always complete.
+     */
+    public static void render(List<Segment> segments, Path dir) throws IOException {
+        Path srt = dir.resolve(SRT_NAME + ".tmp");
+        SrtIndex.Builder index = new SrtIndex.Builder();
+        try (SrtWriter out = new SrtWriter(Files.newBufferedWriter(srt, StandardCharsets.UTF_8))) {
+            for (Segment s : segments) {
+                index.add(s.getStartMs(), out.getByteOffset());
+                out.write(s.getStartMs(), s.getEndMs(), s.getText());
+            }
+        }
+        long srtSize = Files.size(srt);
+        Path vtt = dir.resolve(VTT_NAME + ".tmp");
+        try (VttWriter out = new VttWriter(Files.newBufferedWriter(vtt, StandardCharsets.UTF_8))) {
+            for (Segment s : segments) {
+                out.write(s.getStartMs(), s.getEndMs(), s.getText());
+            }
+        }
+        move(srt, dir.resolve(SRT_NAME));
+        move(vtt, dir.resolve(VTT_NAME));
+        index.write(SrtIndex.sidecarOf(dir.resolve(SRT_NAME)), srtSize);
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Complete a journal left by an interrupted session: drop a torn tail,
+     * append the end marker and render the subtitles. Returns false if the
+     * session had already finished normally.
+     */
+    public static boolean recover(Path file) throws IOException {
+        Contents contents = read(file);
+        Path dir = file.toAbsolutePath().getParent();
+        if (contents.isClosed() && Files.exists(dir.resolve(SRT_NAME))) {
+            return false;
+        }
+        if (!contents.isClosed()) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(contents.getValidLength());
+                ch.position(contents.getValidLength());
+                ByteBuffer out = ByteBuffer.allocate(RECORD_HEADER + SEGMENT_HEADER);
+                if (contents.getValidLength() == 0) {
+                    out = ByteBuffer.allocate(4 + RECORD_HEADER + SEGMENT_HEADER).putInt(MAGIC);
+                }
+                int start = out.position();
+                out.putInt(SEGMENT_HEADER).putInt(0).put(TYPE_CLOSE).putLong(0).putLong(0);
+                CRC32 crc = new CRC32();
+                crc.update(out.array(), start + RECORD_HEADER, SEGMENT_HEADER);
+                out.putInt(start + 4, (int) crc.getValue());
+                out.flip();
+                while (out.hasRemaining()) {
+                    ch.write(out);
+                }
+                ch.force(false);
+            }
+        }
+        render(contents.getSegments(), dir);
+        LOG.info(() -> "Recovered " + contents.getSegments().size() + " segments from " + file);
+        return true;
+    }
+
+    /**
+     * Recover every interrupted session below {@code sessionsDir}, one
+     * directory per session, including the tracks of multi-device sessions.
+     * Returns the number of sessions recovered.
+     */
+    public static int recoverSessions(Path sessionsDir) {
+        if (!Files.isDirectory(sessionsDir)) return 0;
+        int recovered = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(sessionsDir, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                boolean any = recoverIn(dir);
+                try (DirectoryStream<Path> tracks = Files.newDirectoryStream(dir, MultiStreamSession.TRACK_PREFIX + "*")) {
+                    for (Path track : tracks) {
+                        if (Files.isDirectory(track)) any |= recoverIn(track);
+                    }
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Failed to scan " + dir, e);
+                }
+                if (any) recovered++;
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to scan " + sessionsDir, e);
+        }
+        return recovered;
+    }
+
+    private static boolean recoverIn(Path dir) {
+        Path journal = dir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(journal)) return false;
+        try {
+            return recover(journal);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to recover " + journal, e);
+            return false;
+        }
+    }
+}
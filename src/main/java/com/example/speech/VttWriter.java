@@ -0,0 +1,48 @@
+package com.example.speech;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/** Writes subtitle cues in WebVTT format. */
+public class VttWriter implements Closeable, Flushable {
+    private final BufferedWriter out;
+
+    /** Create a writer and emit the {@code WEBVTT} file header. */
+    public VttWriter(Writer out) throws IOException {
+        this.out = out instanceof BufferedWriter ? (BufferedWriter) out : new BufferedWriter(out);
+        this.out.write("WEBVTT");
+        this.out.newLine();
+        this.out.newLine();
+    }
+
+    /** Append one cue spanning the given session times. */
+    public void write(long startMs, long endMs, String text) throws IOException {
+        out.write(formatTime(startMs) + " --> " + formatTime(endMs));
+        out.newLine();
+        out.write(text);
+        out.newLine();
+        out.newLine();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /** Format the given milliseconds in WebVTT timestamp format. */
+    public static String formatTime(long ms) {
+        long h = ms / 3_600_000;
+        long m = (ms % 3_600_000) / 60_000;
+        long s = (ms % 60_000) / 1000;
+        long milli = ms % 1000;
+        return String.format("%02d:%02d:%02d.%03d", h, m, s, milli);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.speech;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Unpacks a zip archive on several threads. Entries are read through
+ * {@link ZipFile}'s random access, so each worker inflates its own entries;
+ * the largest are started first so one big file does not finish last alone.
+ * Every file is preallocated to its final size and written with positional
+ * {@link FileChannel} writes from a large per-worker buffer, and its CRC is
+ * checked. Entries that would land outside the target directory are rejected
+ * before anything is written.
+ */
+public final class ZipExtractor {
+    private static final Logger LOG = Logger.getLogger(ZipExtractor.class.getName());
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long REPORT_INTERVAL_MS = 250;
+
+    /** Receives progress on the thread calling {@link #extract}. */
+    public interface Listener {
+        void progress(long extracted, long total);
+    }
+
+    private ZipExtractor() {
+    }
+
+    /** Unpack {@code zip} into {@code targetDir} using one thread per core. */
+    public static long extract(Path zip, Path targetDir, Listener listener) throws IOException, InterruptedException {
+        return extract(zip, targetDir, Runtime.getRuntime().availableProcessors(), listener);
+    }
+
+    /**
+     * Unpack {@code zip} into {@code targetDir} on {@code threads} threads.
+     * Returns the number of bytes written.
+     */
+    public static long extract(Path zip, Path targetDir, int threads, Listener listener)
+            throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        Path root = targetDir.toAbsolutePath().normalize();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            List<ZipEntry> files = new ArrayList<>();
+            List<Path> dirs = new ArrayList<>();
+            long total = 0;
+            // Check every name before creating anything.
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                Path out = resolve(root, entry);
+                if (entry.isDirectory()) {
+                    dirs.add(out);
+                } else {
+                    files.add(entry);
+                    total += Math.max(0, entry.getSize());
+                }
+            }
+            Files.createDirectories(root);
+            for (Path dir : dirs) {
+                Files.createDirectories(dir);
+            }
+            files.sort(Comparator.comparingLong(ZipEntry::getSize).reversed());
+
+            AtomicLong extracted = new AtomicLong();
+            AtomicInteger next = new AtomicInteger();
+            int workers = Math.max(1, Math.min(threads, files.size()));
+            ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "unzip");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    tasks.add(pool.submit(() -> {
+                        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                        byte[] chunk = new byte[BUFFER_SIZE];
+                        int n;
+                        while ((n = next.getAndIncrement()) < files.size()) {
+                            ZipEntry entry = files.get(n);
+                            extractEntry(zipFile, entry, resolve(root, entry), buf, chunk, extracted);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    while (true) {
+                        try {
+                            task.get(REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                            break;
+                        } catch (TimeoutException e) {
+                            if (listener != null) listener.progress(extracted.get(), total);
+                        }
+                    }
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) throw io;
+                throw new IOException("Failed to unpack " + zip, cause);
+            } finally {
+                pool.shutdownNow();
+            }
+            if (listener != null) listener.progress(extracted.get(), total);
+            long bytes = extracted.get();
+            double sec = (System.nanoTime() - t0) / 1e9;
+            LOG.info(() -> String.format("Unpacked %d files, %d MB in %.1f s (%.0f MB/s) on %d threads",
+                    files.size(), bytes / (1024 * 1024), sec, bytes / (1024.0 * 1024.0) / sec, workers));
+            return bytes;
+        }
+    }
+
+    /** Where {@code entry} goes below {@code root}; throws for names that escape it. */
+    private static Path resolve(Path root, ZipEntry entry) throws ZipException {
+        Path out = root.resolve(entry.getName()).normalize();
+        if (!out.startsWith(root) || out.equals(root)) {
+            throw new ZipException("Archive entry outside the target directory: " + entry.getName());
+        }
+        return out;
+    }
+
+    private static void extractEntry(ZipFile zipFile, ZipEntry entry, Path out, ByteBuffer buf, byte[] chunk,
+                                     AtomicLong extracted) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Unpacking interrupted");
+        }
+        Files.createDirectories(out.getParent());
+        CRC32 crc = new CRC32();
+        long pos = 0;
+        try (InputStream in = zipFile.getInputStream(entry);
+             FileChannel ch = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (entry.getSize() > 0) {
+                // Reserve the final length up front rather than growing the file write by write.
+                ch.write(ByteBuffer.allocate(1), entry.getSize() - 1);
+            }
+            int n;
+            while ((n = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+                crc.update(chunk, 0, n);
+                buf.clear();
+                buf.put(chunk, 0, n).flip();
+                while (buf.hasRemaining()) {
+                    pos += ch.write(buf, pos);
+                }
+                extracted.addAndGet(n);
+            }
+            if (entry.getSize() >= 0 && pos != entry.getSize()) {
+                throw new ZipException("Entry " + entry.getName() + " has " + pos + " bytes, expected "
+                        + entry.getSize());
+            }
+        }
+        if (entry.getCrc() != -1 && crc.getValue() != entry.getCrc()) {
+            throw new ZipException("CRC mismatch in " + entry.getName());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.ui;
+
+import com.example.metrics.LatencyTrace;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hand-off of recognition output from the decode thread to the UI thread.
+ * <p>
+ * The decode thread publishes into atomic slots instead of posting a runnable
+ * per chunk: a newer partial or level simply replaces one the UI has not
+ * picked up yet. Final results are queued since every one of them must be
+ * shown. The UI thread drains the mailbox once per frame, so a busy UI thread
+ * sees the latest state rather than a growing backlog of stale updates.
+ * <p>
+ * One producer and one consumer. Render lag, the time from publishing to the
+ * UI taking an update, is recorded by the consumer. Updates published with
+ * the capture time of their audio also record the capture-to-screen latency
+ * in the mailbox's {@link LatencyTrace}, if it has one.
+ */
+public final class DisplayMailbox {
+    /** A published text together with the time it was published. */
+    public static final class Update {
+        private final String text;
+        private final long publishedNanos;
+        private final long captureNanos;
+
+        private Update(String text, long captureNanos) {
+            this.text = text;
+            this.publishedNanos = System.nanoTime();
+            this.captureNanos = captureNanos;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getPublishedNanos() {
+            return publishedNanos;
+        }
+
+        /** Capture time of the audio the text came from, 0 if untraced. */
+        public long getCaptureNanos() {
+            return captureNanos;
+        }
+    }
+
+    private final LatencyTrace trace;
+
+    private final AtomicReference<Update> partial = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<Update> finals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingFinals = new AtomicInteger();
+    private final AtomicInteger level = new AtomicInteger(-1);
+
+    private final AtomicLong partialsPublished = new AtomicLong();
+    private final AtomicLong partialsCoalesced = new AtomicLong();
+    private final AtomicLong finalsPublished = new AtomicLong();
+    private final AtomicLong maxFinalBacklog = new AtomicLong();
+
+    // Consumer side statistics.
+    private long updatesApplied;
+    private long lagTotalNanos;
+    private long lagMaxNanos;
+
+    /** A mailbox that does not trace latency. */
+    public DisplayMailbox() {
+        this(null);
+    }
+
+    /** A mailbox recording the display stages of traced updates in {@code trace}. */
+    public DisplayMailbox(LatencyTrace trace) {
+        this.trace = trace;
+    }
+
+    // ---- producer side ----
+
+    /** Replace the pending partial result. */
+    public void publishPartial(String text) {
+        publishPartial(text, 0);
+    }
+
+    /** Replace the pending partial result, decoded from audio captured at {@code captureNanos}. */
+    public void publishPartial(String text, long captureNanos) {
+        partialsPublished.incrementAndGet();
+        if (partial.getAndSet(new Update(text, captureNanos)) != null) {
+            partialsCoalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Queue a final result. A pending partial is discarded, since the final
+     * result supersedes it.
+     */
+    public void publishFinal(String text) {
+        publishFinal(text, 0);
+    }
+
+    /** Queue a final result completed by audio captured at {@code captureNanos}. */
+    public void publishFinal(String text, long captureNanos) {
+        finalsPublished.incrementAndGet();
+        if (partial.getAndSet(null) != null) {
+            partialsCoalesced.incrementAndGet();
+        }
+        finals.add(new Update(text, captureNanos));
+        int backlog = pendingFinals.incrementAndGet();
+        maxFinalBacklog.accumulateAndGet(backlog, Math::max);
+    }
+
+    /** Replace the pending input level, 0-100. */
+    public void publishLevel(int value) {
+        level.set(value);
+    }
+
+    // ---- consumer side ----
+
+    /** Take the next queued final result, or {@code null} if there is none. */
+    public String pollFinal() {
+        Update u = finals.poll();
+        if (u == null) return null;
+        pendingFinals.decrementAndGet();
+        recordLag(u, LatencyTrace.Stage.DISPLAY);
+        return u.getText();
+    }
+
+    /** Take the pending partial result, or {@code null} if it has not changed. */
+    public String takePartial() {
+        Update u = partial.getAndSet(null);
+        if (u == null) return null;
+        recordLag(u, LatencyTrace.Stage.PARTIAL);
+        return u.getText();
+    }
+
+    /** Take the pending input level, or -1 if none was published since the last call. */
+    public int takeLevel() {
+        return level.getAndSet(-1);
+    }
+
+    /** Final results published but not yet taken by the UI. */
+    public int getQueueDepth() {
+        return pendingFinals.get();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxFinalBacklog.get();
+    }
+
+    /** Partials replaced before the UI got to show them. */
+    public long getCoalescedPartials() {
+        return partialsCoalesced.get();
+    }
+
+    /** Mean time in milliseconds from publishing to the UI taking an update. */
+    public double getMeanLagMillis() {
+        return updatesApplied == 0 ? 0.0 : lagTotalNanos / 1e6 / updatesApplied;
+    }
+
+    public double getMaxLagMillis() {
+        return lagMaxNanos / 1e6;
+    }
+
+    private void recordLag(Update u, LatencyTrace.Stage stage) {
+        long lag = System.nanoTime() - u.getPublishedNanos();
+        updatesApplied++;
+        lagTotalNanos += lag;
+        if (lag > lagMaxNanos) lagMaxNanos = lag;
+        if (trace != null) {
+            trace.record(stage, u.getCaptureNanos());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("partials %d (%d coalesced), finals %d (max backlog %d), "
+                        + "render lag mean %.1f ms, max %.1f ms",
+                partialsPublished.get(), partialsCoalesced.get(), finalsPublished.get(),
+                maxFinalBacklog.get(), getMeanLagMillis(), getMaxLagMillis());
+    }
+}
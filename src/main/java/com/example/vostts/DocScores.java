@@ -0,0 +1,94 @@
+package com.example.vostts;
+
+import java.util.Arrays;
+
+/**
+ * Scores of the segments of one {@link IndexRun} matching a query, keyed by
+ * doc id in an open-addressing table. Its size follows the number of matches,
+ * not the size of the run, and {@link #clear()} only visits the entries used,
+ * so one instance is reused across the runs of a query. Not thread safe.
+ */
+final class DocScores {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private float[] values;
+    /** 32 minus log2 of the table size, for Fibonacci hashing. */
+    private int shift = 26;
+    /** Slots in use, in the order their doc ids were first seen. */
+    private int[] used;
+    private int size;
+
+    DocScores() {
+        keys = new int[64];
+        Arrays.fill(keys, EMPTY);
+        values = new float[64];
+        used = new int[32];
+    }
+
+    /** Add {@code score} to the score of {@code doc}. */
+    void add(int doc, float score) {
+        int slot = find(doc);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = doc;
+            if (size == used.length) {
+                used = Arrays.copyOf(used, size * 2);
+            }
+            used[size++] = slot;
+            if (size * 2 > keys.length) {
+                grow();
+                slot = find(doc);
+            }
+        }
+        values[slot] += score;
+    }
+
+    /** Number of docs with a score. */
+    int size() {
+        return size;
+    }
+
+    /** Doc id of the {@code i}-th doc scored. */
+    int doc(int i) {
+        return keys[used[i]];
+    }
+
+    /** Score of the {@code i}-th doc scored. */
+    float score(int i) {
+        return values[used[i]];
+    }
+
+    /** Forget all scores. */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[used[i]] = EMPTY;
+            values[used[i]] = 0;
+        }
+        size = 0;
+    }
+
+    private int find(int doc) {
+        int mask = keys.length - 1;
+        int slot = (doc * 0x9E3779B9) >>> shift;
+        while (keys[slot] != EMPTY && keys[slot] != doc) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        float[] oldValues = values;
+        int[] oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        shift--;
+        Arrays.fill(keys, EMPTY);
+        values = new float[keys.length];
+        for (int i = 0; i < size; i++) {
+            int slot = find(oldKeys[oldUsed[i]]);
+            keys[slot] = oldKeys[oldUsed[i]];
+            values[slot] = oldValues[oldUsed[i]];
+            used[i] = slot;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.vostts;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One immutable file of the {@link SearchIndex}: the segments of a set of
+ * complete sessions and the inverted index over their words.
+ * <p>
+ * The term dictionary and per-segment lengths are loaded into memory when the
+ * run is opened; postings and segment texts are read from the memory-mapped
+ * file. All reads use absolute positions, so a run can be searched by several
+ * threads at once. Sessions deleted after the run was written are only
+ * marked, and their segments skipped, until the run is merged away.
+ * <pre>
+ * postings   per term: (doc id delta, term frequency) as varints
+ * docs       per doc: session, track, segment, start ms, end ms, text
+ * doc index  per doc: offset in docs, length in tokens
+ * sessions   names of the sessions in this run
+ * terms      per term, sorted: term, document frequency, postings offset
+ * footer     section offsets, counts, total tokens, magic
+ * </pre>
+ */
+final class IndexRun {
+    /** "VSX2" */
+    private static final int MAGIC = 0x56535832;
+    /** "VSX1", runs written before segments carried their track. */
+    private static final int MAGIC_V1 = 0x56535831;
+    private static final int FOOTER = 7 * 4 + 8;
+
+    /** One indexed segment. */
+    static final class Doc {
+        final String session;
+        /** Track of the segment, {@link SessionMetadata#MAIN_TRACK} for the selected device. */
+        final int track;
+        final int segment;
+        final long startMs;
+        final long endMs;
+        final String text;
+
+        Doc(String session, int track, int segment, long startMs, long endMs, String text) {
+            this.session = session;
+            this.track = track;
+            this.segment = segment;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.text = text;
+        }
+    }
+
+    private final Path file;
+    private final MappedByteBuffer buf;
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int[] postingOffsets;
+    private final int[] docOffsets;
+    private final int[] docLengths;
+    private final List<String> sessions;
+    private final long totalTokens;
+    /** Ids of deleted sessions; replaced, never modified. */
+    private volatile BitSet deleted = new BitSet();
+
+    private IndexRun(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        int end = buf.capacity();
+        if (end >= FOOTER && buf.getInt(end - 4) == MAGIC_V1) {
+            throw new IOException("Search index run of an earlier format: " + file);
+        }
+        if (end < FOOTER || buf.getInt(end - 4) != MAGIC) {
+            throw new IOException("Not a search index run: " + file);
+        }
+        int f = end - FOOTER;
+        int docsStart = buf.getInt(f);
+        int docIndexStart = buf.getInt(f + 4);
+        int sessionsStart = buf.getInt(f + 8);
+        int termsStart = buf.getInt(f + 12);
+        int docCount = buf.getInt(f + 16);
+        int termCount = buf.getInt(f + 20);
+        totalTokens = buf.getLong(f + 24);
+
+        docOffsets = new int[docCount];
+        docLengths = new int[docCount];
+        int p = docIndexStart;
+        for (int i = 0; i < docCount; i++) {
+            docOffsets[i] = docsStart + buf.getInt(p);
+            docLengths[i] = buf.getInt(p + 4);
+            p += 8;
+        }
+        p = sessionsStart;
+        int sessionCount = buf.getInt(p);
+        p += 4;
+        sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            int len = buf.getInt(p);
+            sessions.add(string(p + 4, len));
+            p += 4 + len;
+        }
+        terms = new String[termCount];
+        docFreqs = new int[termCount];
+        postingOffsets = new int[termCount];
+        p = termsStart;
+        for (int i = 0; i < termCount; i++) {
+            int len = buf.getInt(p);
+            terms[i] = string(p + 4, len);
+            p += 4 + len;
+            docFreqs[i] = buf.getInt(p);
+            postingOffsets[i] = buf.getInt(p + 4);
+            p += 8;
+        }
+    }
+
+    static IndexRun open(Path file) throws IOException {
+        return new IndexRun(file);
+    }
+
+    /**
+     * Write {@code docs}, which must all belong to {@code sessionNames}, to a
+     * new run file and open it. {@code docs} is iterated twice, once for the
+     * postings and once for the texts, and must yield the same segments both
+     * times; it is never held in memory as a whole.
+     */
+    static IndexRun write(Path file, Iterable<Doc> docs, Collection<String> sessionNames) throws IOException {
+        Map<String, Integer> sessionIds = new HashMap<>();
+        List<String> names = new ArrayList<>(sessionNames);
+        for (int i = 0; i < names.size(); i++) {
+            sessionIds.put(names.get(i), i);
+        }
+        TreeMap<String, Postings> postings = new TreeMap<>();
+        int[] lengths = new int[1024];
+        int count = 0;
+        long total = 0;
+        for (Doc doc : docs) {
+            List<String> tokens = SearchIndex.tokenize(doc.text);
+            if (count == lengths.length) {
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            lengths[count] = tokens.size();
+            total += tokens.size();
+            Map<String, Integer> tf = new HashMap<>();
+            for (String t : tokens) {
+                tf.merge(t, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(count, e.getValue());
+            }
+            count++;
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 65536))) {
+            int[] termOffsets = new int[postings.size()];
+            int t = 0;
+            for (Postings list : postings.values()) {
+                termOffsets[t++] = out.size();
+                int prev = 0;
+                for (int i = 0; i < list.size; i += 2) {
+                    writeVarint(out, list.data[i] - prev);
+                    writeVarint(out, list.data[i + 1]);
+                    prev = list.data[i];
+                }
+            }
+            int docsStart = out.size();
+            int[] offsets = new int[count];
+            int d = 0;
+            for (Doc doc : docs) {
+                if (d == count) {
+                    throw new IllegalStateException("Segments changed while writing " + file);
+                }
+                offsets[d++] = out.size() - docsStart;
+                Integer sid = sessionIds.get(doc.session);
+                if (sid == null) {
+                    throw new IllegalArgumentException("Segment of unlisted session " + doc.session);
+                }
+                out.writeInt(sid);
+                out.writeInt(doc.track);
+                out.writeInt(doc.segment);
+                out.writeLong(doc.startMs);
+                out.writeLong(doc.endMs);
+                writeString(out, doc.text);
+                if (out.size() == Integer.MAX_VALUE) {
+                    // DataOutputStream stops counting there; offsets are ints.
+                    throw new IOException("Search index run over 2 GB: " + file);
+                }
+            }
+            if (d != count) {
+                throw new IllegalStateException("Segments changed while writing " + file);
+            }
+            int docIndexStart = out.size();
+            for (d = 0; d < count; d++) {
+                out.writeInt(offsets[d]);
+                out.writeInt(lengths[d]);
+            }
+            int sessionsStart = out.size();
+            out.writeInt(names.size());
+            for (String name : names) {
+                writeString(out, name);
+            }
+            int termsStart = out.size();
+            t = 0;
+            for (Map.Entry<String, Postings> e : postings.entrySet()) {
+                writeString(out, e.getKey());
+                out.writeInt(e.getValue().size / 2);
+                out.writeInt(termOffsets[t++]);
+            }
+            out.writeInt(docsStart);
+            out.writeInt(docIndexStart);
+            out.writeInt(sessionsStart);
+            out.writeInt(termsStart);
+            out.writeInt(count);
+            out.writeInt(postings.size());
+            out.writeLong(total);
+            out.writeInt(MAGIC);
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int getDocCount() {
+        return docOffsets.length;
+    }
+
+    /** Size of the run file in bytes. */
+    long getSize() {
+        return buf.capacity();
+    }
+
+    long getTotalTokens() {
+        return totalTokens;
+    }
+
+    /** Sessions whose segments are all in this run. */
+    List<String> getSessions() {
+        return sessions;
+    }
+
+    /** Sessions in this run that have not been {@link #delete deleted}. */
+    List<String> getLiveSessions() {
+        BitSet d = deleted;
+        if (d.isEmpty()) return sessions;
+        List<String> live = new ArrayList<>(sessions.size() - d.cardinality());
+        for (int i = 0; i < sessions.size(); i++) {
+            if (!d.get(i)) live.add(sessions.get(i));
+        }
+        return live;
+    }
+
+    /** Skip the segments of {@code session} from now on. Returns false if it is not in this run. */
+    synchronized boolean delete(String session) {
+        int id = sessions.indexOf(session);
+        if (id < 0) return false;
+        BitSet d = (BitSet) deleted.clone();
+        d.set(id);
+        deleted = d;
+        return true;
+    }
+
+    /** Whether segment {@code id} belongs to a deleted session. */
+    boolean isDeleted(int id) {
+        BitSet d = deleted;
+        return !d.isEmpty() && d.get(buf.getInt(docOffsets[id]));
+    }
+
+    /** Number of segments containing {@code term}. */
+    int docFrequency(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        return i >= 0 ? docFreqs[i] : 0;
+    }
+
+    /** Add the BM25 contribution of {@code term} to {@code scores}, keyed by doc id. */
+    void score(String term, double idf, double avgLength, DocScores scores) {
+        int i = Arrays.binarySearch(terms, term);
+        if (i < 0) return;
+        int p = postingOffsets[i];
+        int doc = 0;
+        for (int n = 0; n < docFreqs[i]; n++) {
+            int v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get(p++);
+                v |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += v;
+            int tf = 0;
+            shift = 0;
+            do {
+                b = buf.get(p++);
+                tf |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            scores.add(doc, (float) SearchIndex.bm25(idf, tf, docLengths[doc], avgLength));
+        }
+    }
+
+    Doc doc(int id) {
+        int p = docOffsets[id];
+        String session = sessions.get(buf.getInt(p));
+        int track = buf.getInt(p + 4);
+        int segment = buf.getInt(p + 8);
+        long start = buf.getLong(p + 12);
+        long end = buf.getLong(p + 20);
+        int len = buf.getInt(p + 28);
+        return new Doc(session, track, segment, start, end, string(p + 32, len));
+    }
+
+    private String string(int offset, int len) {
+        byte[] bytes = new byte[len];
+        buf.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Growable list of (doc id, term frequency) pairs for one term. */
+    private static final class Postings {
+        int[] data = new int[4];
+        int size;
+
+        void add(int doc, int tf) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = doc;
+            data[size++] = tf;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarint(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7f) != 0) {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+}
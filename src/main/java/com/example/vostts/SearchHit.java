@@ -0,0 +1,48 @@
+package com.example.vostts;
+
+/** A transcript segment matching a search, with its relevance score. */
+public class SearchHit {
+    private final String session;
+    private final int track;
+    private final int segment;
+    private final long startMs;
+    private final String text;
+    private final double score;
+
+    public SearchHit(String session, int track, int segment, long startMs, String text, double score) {
+        this.session = session;
+        this.track = track;
+        this.segment = segment;
+        this.startMs = startMs;
+        this.text = text;
+        this.score = score;
+    }
+
+    /** Directory name of the session containing the segment. */
+    public String getSession() {
+        return session;
+    }
+
+    /** Track of the segment, {@link SessionMetadata#MAIN_TRACK} for the selected device. */
+    public int getTrack() {
+        return track;
+    }
+
+    /** Position of the segment in its track, starting at 0. */
+    public int getSegment() {
+        return segment;
+    }
+
+    /** Start of the segment in milliseconds since the session started. */
+    public long getStartMs() {
+        return startMs;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
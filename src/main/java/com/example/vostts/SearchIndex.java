@@ -0,0 +1,527 @@
+package com.example.vostts;
+
+import com.example.speech.Segment;
+import com.example.speech.SrtReader;
+import com.example.speech.TranscriptJournal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Full-text index over the transcripts of all sessions.
+ * <p>
+ * Segments are {@link #add added} while a session records and kept in memory,
+ * where they are already searchable. When the session is
+ * {@link #commit committed} they are written as a new immutable
+ * {@link IndexRun}. Runs only ever hold complete sessions, so after a crash
+ * the sessions missing from the index are simply backfilled from the
+ * journal or SRT file of each of their tracks at the next start. Runs are
+ * merged size-tiered: once {@link #MERGE_FACTOR} runs of a similar size
+ * exist they are merged into one, dropping deleted sessions, so each segment
+ * is rewritten about once per tier rather than once per merge. The list of
+ * live runs is kept in a manifest that is replaced atomically.
+ * <p>
+ * Queries are scored with BM25 over all runs and the in-memory segments and
+ * only touch the postings of the query terms, so their cost grows with the
+ * number of matches rather than with the size of the archive. Segments of
+ * deleted sessions are skipped while scoring until a merge drops them.
+ */
+public final class SearchIndex {
+    private static final Logger LOG = Logger.getLogger(SearchIndex.class.getName());
+    private static final String MANIFEST = "manifest";
+    /** Number of runs of one size tier that are merged together. */
+    private static final int MERGE_FACTOR = 4;
+    /** Runs up to this size form the smallest tier; each tier above is {@link #MERGE_FACTOR} times larger. */
+    private static final long MIN_TIER_BYTES = 1L << 20;
+    /** Runs are not merged beyond this, well below the 2 GB limit of a run's int offsets. */
+    private static final long MAX_RUN_BYTES = 1L << 30;
+    /** Segments per run written while backfilling. */
+    private static final int BACKFILL_BATCH = 20_000;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static SearchIndex instance;
+
+    private final Path dir;
+    private final Path sessionsDir;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-index");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Live runs; replaced on every change. */
+    private volatile List<IndexRun> runs = Collections.emptyList();
+    /** Segments of sessions not committed yet, by session. Guarded by itself. */
+    private final Map<String, List<IndexRun.Doc>> pending = new HashMap<>();
+    /** Sessions deleted while the index is open, marked in runs written or merged later too. */
+    private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+    /** Sessions contained in the runs. Index thread only. */
+    private final Set<String> indexed = new HashSet<>();
+    private int nextRun;
+
+    private SearchIndex(Path dir, Path sessionsDir) {
+        this.dir = dir;
+        this.sessionsDir = sessionsDir;
+    }
+
+    /** Directory holding the index files. */
+    public static Path indexDir() {
+        return Paths.get(System.getProperty("user.home"), "vos-stt", "search");
+    }
+
+    /**
+     * The shared index over {@link SessionIndex#sessionsDir()}. On first use
+     * the runs are opened and sessions missing from the index are backfilled
+     * in the background.
+     */
+    public static synchronized SearchIndex get() {
+        if (instance == null) {
+            instance = new SearchIndex(indexDir(), SessionIndex.sessionsDir());
+            instance.worker.execute(instance::startup);
+        }
+        return instance;
+    }
+
+    /** Mark a session as being recorded so the backfill leaves it alone. */
+    public void begin(String session) {
+        deleted.remove(session);
+        synchronized (pending) {
+            pending.putIfAbsent(session, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Add one recognised segment of {@code track} of a session being recorded.
+     * Never blocks on I/O; may be called from the decode thread of every track.
+     */
+    public void add(String session, int track, int segment, long startMs, long endMs, String text) {
+        IndexRun.Doc doc = new IndexRun.Doc(session, track, segment, startMs, endMs, text);
+        synchronized (pending) {
+            pending.computeIfAbsent(session, k -> new ArrayList<>()).add(doc);
+        }
+    }
+
+    /** Write the segments of a finished session to disk in the background. */
+    public void commit(String session) {
+        worker.execute(() -> {
+            List<IndexRun.Doc> docs;
+            synchronized (pending) {
+                docs = pending.get(session);
+            }
+            if (docs == null) return;
+            try {
+                writeRun(new ArrayList<>(docs), List.of(session));
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Failed to index session " + session + ", it will be backfilled", e);
+            }
+            // Removed only once the run is live, so the segments stay searchable.
+            synchronized (pending) {
+                pending.remove(session);
+            }
+        });
+    }
+
+    /** Stop returning segments of a deleted session; they are dropped from disk at the next merge. */
+    public void remove(String session) {
+        deleted.add(session);
+        synchronized (pending) {
+            pending.remove(session);
+        }
+        for (IndexRun run : runs) {
+            if (run.delete(session) && run.getLiveSessions().isEmpty()) {
+                worker.execute(this::dropEmptyRuns);
+            }
+        }
+    }
+
+    // ---- searching ----
+
+    /** Best {@code limit} segments for {@code query}, highest score first. */
+    public List<SearchHit> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) return Collections.emptyList();
+        List<IndexRun> rs = runs;
+        List<IndexRun.Doc> mem = new ArrayList<>();
+        synchronized (pending) {
+            for (List<IndexRun.Doc> docs : pending.values()) {
+                mem.addAll(docs);
+            }
+        }
+        List<List<String>> memTokens = new ArrayList<>(mem.size());
+        long docCount = mem.size();
+        long totalTokens = 0;
+        for (IndexRun.Doc d : mem) {
+            List<String> tokens = tokenize(d.text);
+            memTokens.add(tokens);
+            totalTokens += tokens.size();
+        }
+        for (IndexRun run : rs) {
+            docCount += run.getDocCount();
+            totalTokens += run.getTotalTokens();
+        }
+        if (docCount == 0) return Collections.emptyList();
+        double avgLength = Math.max(1.0, (double) totalTokens / docCount);
+        double[] idf = new double[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            long df = 0;
+            for (IndexRun run : rs) {
+                df += run.docFrequency(terms.get(t));
+            }
+            for (List<String> tokens : memTokens) {
+                if (tokens.contains(terms.get(t))) df++;
+            }
+            idf[t] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+        }
+
+        PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(c -> c.score));
+        DocScores scores = new DocScores();
+        for (int r = 0; r < rs.size(); r++) {
+            IndexRun run = rs.get(r);
+            for (int t = 0; t < terms.size(); t++) {
+                run.score(terms.get(t), idf[t], avgLength, scores);
+            }
+            for (int i = 0; i < scores.size(); i++) {
+                if (!run.isDeleted(scores.doc(i))) {
+                    offer(top, limit, scores.score(i), r, scores.doc(i));
+                }
+            }
+            scores.clear();
+        }
+        for (int m = 0; m < mem.size(); m++) {
+            List<String> tokens = memTokens.get(m);
+            double score = 0;
+            for (int t = 0; t < terms.size(); t++) {
+                int tf = Collections.frequency(tokens, terms.get(t));
+                if (tf > 0) score += bm25(idf[t], tf, tokens.size(), avgLength);
+            }
+            if (score > 0) offer(top, limit, score, -1, m);
+        }
+
+        List<Candidate> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingDouble((Candidate c) -> c.score).reversed());
+        List<SearchHit> hits = new ArrayList<>();
+        boolean stale = false;
+        for (Candidate c : ranked) {
+            IndexRun.Doc d = c.run >= 0 ? rs.get(c.run).doc(c.doc) : mem.get(c.doc);
+            if (!Files.isDirectory(sessionsDir.resolve(d.session))) {
+                // Deleted behind the index's back; forget it and rank again.
+                remove(d.session);
+                stale = true;
+                continue;
+            }
+            hits.add(new SearchHit(d.session, d.track, d.segment, d.startMs, d.text, c.score));
+        }
+        return stale ? search(query, limit) : hits;
+    }
+
+    private static void offer(PriorityQueue<Candidate> top, int keep, double score, int run, int doc) {
+        if (top.size() < keep) {
+            top.add(new Candidate(score, run, doc));
+        } else if (score > top.peek().score) {
+            top.poll();
+            top.add(new Candidate(score, run, doc));
+        }
+    }
+
+    private static final class Candidate {
+        final double score;
+        final int run;
+        final int doc;
+
+        Candidate(double score, int run, int doc) {
+            this.score = score;
+            this.run = run;
+            this.doc = doc;
+        }
+    }
+
+    static double bm25(double idf, int tf, int length, double avgLength) {
+        return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+    }
+
+    /** Lower-case words of {@code text}; apostrophes inside words are kept. */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        int n = text.length();
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            boolean word = Character.isLetterOrDigit(c)
+                    || (c == '\'' && start >= 0 && i + 1 < n && Character.isLetterOrDigit(text.charAt(i + 1)));
+            if (word) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // ---- maintenance, index thread only ----
+
+    private void startup() {
+        long t0 = System.nanoTime();
+        try {
+            Files.createDirectories(dir);
+            openRuns();
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Search index unavailable", e);
+            return;
+        }
+        LOG.fine(() -> "Opened " + runs.size() + " search index runs in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        backfill();
+    }
+
+    private void openRuns() throws IOException {
+        Set<String> live = new HashSet<>();
+        List<IndexRun> opened = new ArrayList<>();
+        Path manifest = dir.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (String name : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (name.isBlank()) continue;
+                try {
+                    IndexRun run = IndexRun.open(dir.resolve(name));
+                    opened.add(run);
+                    indexed.addAll(run.getSessions());
+                    for (String session : run.getSessions()) {
+                        if (!Files.isDirectory(sessionsDir.resolve(session))) run.delete(session);
+                    }
+                    live.add(name);
+                    nextRun = Math.max(nextRun, runNumber(name) + 1);
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Dropping unreadable search index run " + name, e);
+                }
+            }
+        }
+        runs = Collections.unmodifiableList(opened);
+        // Left over from a crash or from a merge whose files could not be deleted.
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "run-*")) {
+            for (Path f : files) {
+                if (!live.contains(f.getFileName().toString())) {
+                    Files.deleteIfExists(f);
+                }
+            }
+        }
+    }
+
+    private void backfill() {
+        if (!Files.isDirectory(sessionsDir)) return;
+        long t0 = System.nanoTime();
+        List<IndexRun.Doc> batch = new ArrayList<>();
+        List<String> sessions = new ArrayList<>();
+        int total = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(sessionsDir, Files::isDirectory)) {
+            for (Path d : dirs) {
+                String session = d.getFileName().toString();
+                if (indexed.contains(session)) continue;
+                synchronized (pending) {
+                    if (pending.containsKey(session)) continue;
+                }
+                for (Map.Entry<Integer, Path> track : SessionMetadata.tracks(d).entrySet()) {
+                    List<Segment> segments = readTranscript(track.getValue());
+                    for (int i = 0; i < segments.size(); i++) {
+                        Segment s = segments.get(i);
+                        batch.add(new IndexRun.Doc(session, track.getKey(), i, s.getStartMs(), s.getEndMs(),
+                                s.getText()));
+                    }
+                }
+                sessions.add(session);
+                if (batch.size() >= BACKFILL_BATCH) {
+                    writeRun(batch, sessions);
+                    total += sessions.size();
+                    batch = new ArrayList<>();
+                    sessions = new ArrayList<>();
+                }
+            }
+            if (!sessions.isEmpty()) {
+                writeRun(batch, sessions);
+                total += sessions.size();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Search index backfill stopped", e);
+        }
+        if (total > 0) {
+            int n = total;
+            LOG.info(() -> "Indexed " + n + " earlier sessions in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        }
+    }
+
+    /** Segments of the track in {@code trackDir}, from its journal or else its SRT file. */
+    private static List<Segment> readTranscript(Path trackDir) {
+        try {
+            Path journal = trackDir.resolve(TranscriptJournal.FILE_NAME);
+            if (Files.exists(journal)) {
+                return TranscriptJournal.read(journal).getSegments();
+            }
+            Path srt = trackDir.resolve(TranscriptJournal.SRT_NAME);
+            if (Files.exists(srt)) {
+                return SrtReader.read(srt);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Cannot read transcript of " + trackDir, e);
+        }
+        return Collections.emptyList();
+    }
+
+    private void writeRun(List<IndexRun.Doc> docs, List<String> sessions) throws IOException {
+        IndexRun run = IndexRun.write(dir.resolve(String.format("run-%06d.idx", nextRun++)), docs, sessions);
+        markDeleted(run);
+        List<IndexRun> updated = new ArrayList<>(runs);
+        updated.add(run);
+        saveManifest(updated);
+        runs = Collections.unmodifiableList(updated);
+        indexed.addAll(sessions);
+        List<IndexRun> group;
+        while ((group = mergeCandidates(runs)) != null) {
+            merge(group);
+        }
+    }
+
+    /**
+     * {@link #MERGE_FACTOR} runs of the smallest size tier that has that many
+     * and whose merge stays below {@link #MAX_RUN_BYTES}, or {@code null}.
+     */
+    private static List<IndexRun> mergeCandidates(List<IndexRun> rs) {
+        Map<Integer, List<IndexRun>> tiers = new TreeMap<>();
+        for (IndexRun run : rs) {
+            tiers.computeIfAbsent(tier(run.getSize()), k -> new ArrayList<>()).add(run);
+        }
+        for (List<IndexRun> tier : tiers.values()) {
+            if (tier.size() < MERGE_FACTOR) continue;
+            List<IndexRun> group = tier.subList(0, MERGE_FACTOR);
+            long bytes = 0;
+            for (IndexRun run : group) {
+                bytes += run.getSize();
+            }
+            if (bytes <= MAX_RUN_BYTES) return group;
+        }
+        return null;
+    }
+
+    private static int tier(long bytes) {
+        int tier = 0;
+        for (long limit = MIN_TIER_BYTES; limit < bytes; limit *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Merge {@code group} into one run, leaving out sessions that have been
+     * deleted. The segments are read from the mapped runs as they are
+     * written rather than collected first.
+     */
+    private void merge(List<IndexRun> group) throws IOException {
+        long t0 = System.nanoTime();
+        Set<String> sessions = new LinkedHashSet<>();
+        Set<String> dropped = new HashSet<>();
+        for (IndexRun run : group) {
+            for (String s : run.getLiveSessions()) {
+                if (Files.isDirectory(sessionsDir.resolve(s))) sessions.add(s);
+            }
+            dropped.addAll(run.getSessions());
+        }
+        dropped.removeAll(sessions);
+        Iterable<IndexRun.Doc> docs = () -> group.stream()
+                .flatMap(run -> IntStream.range(0, run.getDocCount()).mapToObj(run::doc))
+                .filter(d -> sessions.contains(d.session))
+                .iterator();
+        IndexRun merged = IndexRun.write(dir.resolve(String.format("run-%06d.idx", nextRun++)), docs, sessions);
+        markDeleted(merged);
+        List<IndexRun> updated = new ArrayList<>(runs);
+        updated.removeAll(group);
+        updated.add(merged);
+        saveManifest(updated);
+        runs = Collections.unmodifiableList(updated);
+        indexed.removeAll(dropped);
+        for (IndexRun run : group) {
+            try {
+                Files.deleteIfExists(run.getFile());
+            } catch (IOException e) {
+                // Still mapped on some platforms; removed on the next start.
+            }
+        }
+        LOG.fine(() -> "Merged " + group.size() + " search index runs into " + merged.getDocCount()
+                + " segments, " + merged.getSize() / 1024 + " KB, in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+    }
+
+    /** Drop runs whose sessions have all been deleted without waiting for their tier to merge. */
+    private void dropEmptyRuns() {
+        List<IndexRun> empty = new ArrayList<>();
+        for (IndexRun run : runs) {
+            if (run.getLiveSessions().isEmpty()) empty.add(run);
+        }
+        if (empty.isEmpty()) return;
+        List<IndexRun> updated = new ArrayList<>(runs);
+        updated.removeAll(empty);
+        try {
+            saveManifest(updated);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to drop deleted sessions from the search index", e);
+            return;
+        }
+        runs = Collections.unmodifiableList(updated);
+        for (IndexRun run : empty) {
+            indexed.removeAll(run.getSessions());
+            try {
+                Files.deleteIfExists(run.getFile());
+            } catch (IOException e) {
+                // Still mapped on some platforms; removed on the next start.
+            }
+        }
+    }
+
+    /** Mark sessions deleted while {@code run} was being written. */
+    private void markDeleted(IndexRun run) {
+        for (String session : deleted) {
+            run.delete(session);
+        }
+    }
+
+    private void saveManifest(List<IndexRun> list) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (IndexRun run : list) {
+            names.add(run.getFile().getFileName().toString());
+        }
+        Path tmp = dir.resolve(MANIFEST + ".tmp");
+        Files.write(tmp, names, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int runNumber(String name) {
+        try {
+            return Integer.parseInt(name.substring(4, name.indexOf('.')));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.vostts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory index of all stored sessions, persisted to a compact binary file
+ * in the sessions directory so that the browser never has to open every
+ * session's {@code metadata.json}.
+ * <p>
+ * The index is loaded once in the background and then reconciled with the
+ * directory listing. It is kept current by the recording path, which
+ * {@link #put(SessionMetadata) puts} an entry when a session starts and ends,
+ * and by a {@link WatchService} on the sessions directory which picks up
+ * sessions created or deleted by other means. Readers get sorted
+ * {@link #page(int, int) pages} of an immutable snapshot, so showing the
+ * browser costs the same regardless of how many sessions exist.
+ */
+public final class SessionIndex {
+    private static final Logger LOG = Logger.getLogger(SessionIndex.class.getName());
+    private static final String INDEX_FILE = ".index";
+    /** "VSI" + format version. */
+    private static final int MAGIC = 0x56534901;
+    private static final long SAVE_DELAY_MS = 2000;
+
+    private static SessionIndex instance;
+
+    private final Path dir;
+    private final Path indexFile;
+    private final Map<String, SessionMetadata> entries = new HashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "session-index");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Sessions sorted newest first; replaced on every change. */
+    private volatile List<SessionMetadata> snapshot = Collections.emptyList();
+    private volatile boolean loaded;
+    private boolean saveScheduled;
+    private WatchService watcher;
+
+    private SessionIndex(Path dir) {
+        this.dir = dir;
+        this.indexFile = dir.resolve(INDEX_FILE);
+    }
+
+    /** Directory holding one sub-directory per session. */
+    public static Path sessionsDir() {
+        return Paths.get(System.getProperty("user.home"), "vos-stt", "sessions");
+    }
+
+    /** The shared index of {@link #sessionsDir()}, loading it in the background on first use. */
+    public static synchronized SessionIndex get() {
+        if (instance == null) {
+            instance = new SessionIndex(sessionsDir());
+            instance.start();
+        }
+        return instance;
+    }
+
+    private void start() {
+        worker.execute(() -> {
+            long t0 = System.nanoTime();
+            boolean fromFile = readIndex();
+            publish();
+            LOG.fine(() -> "Session index with " + snapshot.size() + " entries "
+                    + (fromFile ? "read" : "not found") + " in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+            // Watch before scanning so no session created meanwhile is missed.
+            startWatcher();
+            reconcile(true);
+            loaded = true;
+            publish();
+        });
+    }
+
+    /** Whether the initial load and reconciliation have finished. */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Number of indexed sessions. */
+    public int size() {
+        return snapshot.size();
+    }
+
+    /** Sessions {@code page * pageSize} to {@code (page + 1) * pageSize}, newest first. */
+    public List<SessionMetadata> page(int page, int pageSize) {
+        List<SessionMetadata> s = snapshot;
+        int from = Math.min(s.size(), page * pageSize);
+        int to = Math.min(s.size(), from + pageSize);
+        return s.subList(from, to);
+    }
+
+    /** Entry for the session stored in directory {@code dirName}, or {@code null}. */
+    public SessionMetadata find(String dirName) {
+        synchronized (entries) {
+            return entries.get(dirName);
+        }
+    }
+
+    /** Run {@code listener} on the index thread whenever the contents change. */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /** Add or replace the entry for a session. */
+    public void put(SessionMetadata session) {
+        synchronized (entries) {
+            entries.put(session.getDirectory().getFileName().toString(), session);
+        }
+        changed();
+    }
+
+    /** Remove the entry for the session stored in directory {@code dirName}. */
+    public void remove(String dirName) {
+        boolean removed;
+        synchronized (entries) {
+            removed = entries.remove(dirName) != null;
+        }
+        if (removed) changed();
+    }
+
+    /** Compare the index with the sessions directory again, in the background. */
+    public void rescan() {
+        worker.execute(() -> reconcile(false));
+    }
+
+    private void changed() {
+        worker.execute(() -> {
+            publish();
+            scheduleSave();
+        });
+    }
+
+    /** Rebuild the sorted snapshot and notify listeners. Index thread only. */
+    private void publish() {
+        List<SessionMetadata> list;
+        synchronized (entries) {
+            list = new ArrayList<>(entries.values());
+        }
+        list.sort(Comparator.comparing((SessionMetadata m) -> m.getDirectory().getFileName().toString()).reversed());
+        snapshot = Collections.unmodifiableList(list);
+        for (Runnable l : listeners) {
+            try {
+                l.run();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Session index listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Add sessions missing from the index and drop those whose directory is
+     * gone. Interrupted sessions are reloaded in case they have been
+     * recovered since; at startup, sessions indexed as recording were cut
+     * short and are reloaded too. Index thread only.
+     */
+    private void reconcile(boolean startup) {
+        if (!Files.isDirectory(dir)) return;
+        Set<String> present = new HashSet<>();
+        int loadedCount = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path d : dirs) {
+                String key = d.getFileName().toString();
+                present.add(key);
+                SessionMetadata existing;
+                synchronized (entries) {
+                    existing = entries.get(key);
+                }
+                if (existing == null || needsReload(existing.getStatus(), startup)) {
+                    if (load(d)) loadedCount++;
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to scan " + dir, e);
+            return;
+        }
+        boolean removed;
+        synchronized (entries) {
+            removed = entries.keySet().retainAll(present);
+        }
+        if (loadedCount > 0 || removed) {
+            publish();
+            scheduleSave();
+        }
+    }
+
+    private static boolean needsReload(String status, boolean startup) {
+        return SessionMetadata.STATUS_INTERRUPTED.equals(status)
+                || (startup && SessionMetadata.STATUS_RECORDING.equals(status));
+    }
+
+    private boolean load(Path sessionDir) {
+        try {
+            SessionMetadata m = SessionMetadata.load(sessionDir);
+            synchronized (entries) {
+                entries.put(sessionDir.getFileName().toString(), m);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.FINE, "Skipping unreadable session " + sessionDir, e);
+            return false;
+        }
+    }
+
+    // ---- persistence ----
+
+    private boolean readIndex() {
+        if (!Files.exists(indexFile)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC) return false;
+            int count = in.readInt();
+            Map<String, SessionMetadata> read = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                read.put(key, new SessionMetadata(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                        in.readInt(), in.readLong(), dir.resolve(key)));
+            }
+            synchronized (entries) {
+                entries.putAll(read);
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Ignoring unreadable session index " + indexFile, e);
+            return false;
+        }
+    }
+
+    /** Write pending changes now and wait briefly for it. Called on application exit. */
+    public void flush() {
+        try {
+            worker.submit(this::save).get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.log(Level.WARNING, "Session index not saved on exit", e);
+        }
+    }
+
+    /** Write the index a little later, so a burst of changes costs one write. */
+    private void scheduleSave() {
+        if (saveScheduled) return;
+        saveScheduled = true;
+        worker.schedule(() -> {
+            saveScheduled = false;
+            save();
+        }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void save() {
+        List<SessionMetadata> list = snapshot;
+        Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(list.size());
+                for (SessionMetadata m : list) {
+                    out.writeUTF(m.getDirectory().getFileName().toString());
+                    out.writeUTF(m.getName());
+                    out.writeUTF(m.getDate());
+                    out.writeUTF(m.getDuration());
+                    out.writeUTF(m.getStatus());
+                    out.writeInt(m.getSegments());
+                    out.writeLong(m.getSize());
+                }
+            }
+            try {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOG.fine(() -> "Saved session index with " + list.size() + " entries");
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to save session index", e);
+        }
+    }
+
+    // ---- watching ----
+
+    private void startWatcher() {
+        try {
+            Files.createDirectories(dir);
+            watcher = dir.getFileSystem().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot watch " + dir + ", index updates only on rescan", e);
+            return;
+        }
+        Thread t = new Thread(this::watchLoop, "session-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan();
+                        continue;
+                    }
+                    Path name = (Path) event.context();
+                    if (name.toString().startsWith(".")) continue;
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        remove(name.toString());
+                    } else {
+                        Path sessionDir = dir.resolve(name);
+                        worker.execute(() -> {
+                            boolean known;
+                            synchronized (entries) {
+                                known = entries.containsKey(name.toString());
+                            }
+                            if (!known && Files.isDirectory(sessionDir) && load(sessionDir)) {
+                                publish();
+                                scheduleSave();
+                            }
+                        });
+                    }
+                }
+                if (!key.reset()) {
+                    LOG.warning("Sessions directory no longer watchable: " + dir);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+}
@@ -1,26 +1,52 @@
 package com.example.vostts;
 
+import com.example.speech.MultiStreamSession;
+import com.example.speech.Segment;
+import com.example.speech.TranscriptJournal;
+
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /** Model representing a stored transcription session. */
 public class SessionMetadata {
+    public static final String FILE_NAME = "metadata.json";
+    public static final String STATUS_RECORDING = "Recording";
+    public static final String STATUS_COMPLETE = "Complete";
+    public static final String STATUS_RECOVERED = "Recovered";
+    public static final String STATUS_INTERRUPTED = "Interrupted";
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    /** Track of the selected device, kept in the session directory itself. */
+    public static final int MAIN_TRACK = 1;
+
     private final String name;
     private final String date;
     private final String duration;
     private final String status;
+    private final int segments;
+    private final long size;
     private final Path directory;
 
     public SessionMetadata(String name, String date, String duration, String status, Path directory) {
+        this(name, date, duration, status, 0, 0, directory);
+    }
+
+    public SessionMetadata(String name, String date, String duration, String status,
+                           int segments, long size, Path directory) {
         this.name = name;
         this.date = date;
         this.duration = duration;
         this.status = status;
+        this.segments = segments;
+        this.size = size;
         this.directory = directory;
     }
 
@@ -40,19 +66,50 @@ public class SessionMetadata {
         return status;
     }
 
+    /** Number of recognised segments in the transcript, over all tracks. */
+    public int getSegments() {
+        return segments;
+    }
+
+    /** Total size of the session files in bytes. */
+    public long getSize() {
+        return size;
+    }
+
+    /** Size formatted for display. */
+    public String getSizeText() {
+        if (size < 1024) return size + " B";
+        if (size < 1024 * 1024) return (size / 1024) + " KB";
+        return String.format("%.1f MB", size / (1024.0 * 1024.0));
+    }
+
     public Path getDirectory() {
         return directory;
     }
 
+    /** Write this metadata to {@code metadata.json} in the session directory. */
+    public void save() throws IOException {
+        JSONObject obj = new JSONObject();
+        obj.put("name", name);
+        obj.put("date", date);
+        obj.put("duration", duration);
+        obj.put("status", status);
+        obj.put("segments", segments);
+        obj.put("size", size);
+        Files.writeString(directory.resolve(FILE_NAME), obj.toString(2));
+    }
+
     /**
      * Load session metadata from the given session directory.
      */
     public static SessionMetadata load(Path dir) throws IOException {
-        Path metaFile = dir.resolve("metadata.json");
+        Path metaFile = dir.resolve(FILE_NAME);
         String name = dir.getFileName().toString();
         String date = "";
         String duration = "";
         String status = "";
+        int segments = 0;
+        long size = -1;
         if (Files.exists(metaFile)) {
             String json = Files.readString(metaFile);
             JSONObject obj = new JSONObject(json);
@@ -60,12 +117,92 @@ public class SessionMetadata {
             date = obj.optString("date", date);
             duration = obj.optString("duration", duration);
             status = obj.optString("status", status);
+            segments = obj.optInt("segments", segments);
+            size = obj.optLong("size", size);
+        } else {
+            // No metadata: the session predates it or was cut short. The
+            // journal, if present, still knows what was recognised.
+            Path journal = dir.resolve(TranscriptJournal.FILE_NAME);
+            if (Files.exists(journal)) {
+                TranscriptJournal.Contents contents = TranscriptJournal.read(journal);
+                List<Segment> list = contents.getSegments();
+                segments = list.size();
+                if (!list.isEmpty()) {
+                    duration = formatDuration(list.get(list.size() - 1).getEndMs());
+                }
+                status = contents.isClosed() && Files.exists(dir.resolve(TranscriptJournal.SRT_NAME))
+                        ? STATUS_RECOVERED : STATUS_INTERRUPTED;
+                for (Path track : tracks(dir).tailMap(MAIN_TRACK + 1).values()) {
+                    Path trackJournal = track.resolve(TranscriptJournal.FILE_NAME);
+                    if (Files.exists(trackJournal)) {
+                        segments += TranscriptJournal.read(trackJournal).getSegments().size();
+                    }
+                }
+            }
+        }
+        if (size < 0) {
+            size = directorySize(dir);
         }
         // fallback formatting if date missing
         if (date.isEmpty()) {
             LocalDateTime time = LocalDateTime.ofInstant(Files.getLastModifiedTime(dir).toInstant(), java.time.ZoneId.systemDefault());
-            date = time.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+            date = time.format(DATE_FORMAT);
         }
-        return new SessionMetadata(name, date, duration, status, dir);
+        return new SessionMetadata(name, date, duration, status, segments, size, dir);
+    }
+
+    /** Sum of the sizes of the regular files directly inside {@code dir} and its track directories. */
+    public static long directorySize(Path dir) throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                if (Files.isRegularFile(f)) {
+                    total += Files.size(f);
+                } else if (trackNumber(f) > MAIN_TRACK) {
+                    total += directorySize(f);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Directories of the tracks of the session in {@code dir} by track
+     * number: {@link #MAIN_TRACK} is {@code dir} itself, the tracks of
+     * further devices are its {@link MultiStreamSession#trackDirectory track
+     * directories}.
+     */
+    public static SortedMap<Integer, Path> tracks(Path dir) throws IOException {
+        SortedMap<Integer, Path> tracks = new TreeMap<>();
+        tracks.put(MAIN_TRACK, dir);
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(dir, MultiStreamSession.TRACK_PREFIX + "*")) {
+            for (Path d : dirs) {
+                int n = trackNumber(d);
+                if (n > MAIN_TRACK && Files.isDirectory(d)) tracks.put(n, d);
+            }
+        }
+        return tracks;
+    }
+
+    /** Directory of track {@code track} of the session in {@code dir}. */
+    public static Path trackDirectory(Path dir, int track) {
+        return track == MAIN_TRACK ? dir : MultiStreamSession.trackDirectory(dir, track);
+    }
+
+    /** Number of the track directory {@code dir}, or -1 if it is not one. */
+    private static int trackNumber(Path dir) {
+        String name = dir.getFileName().toString();
+        if (!name.startsWith(MultiStreamSession.TRACK_PREFIX)) return -1;
+        try {
+            return Integer.parseInt(name.substring(MultiStreamSession.TRACK_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Format milliseconds as {@code HH:mm:ss}. */
+    public static String formatDuration(long ms) {
+        long secs = ms / 1000;
+        return String.format("%02d:%02d:%02d", secs / 3600, (secs % 3600) / 60, secs % 60);
     }
 }
@@ -3,31 +3,87 @@ package com.example.vostts;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 
+import com.example.audio.CaptureSettings;
+
 import javax.sound.sampled.Mixer;
+import java.util.ArrayList;
+import java.util.List;
 
 /** Controller for the settings window. */
 public class SettingsController {
     @FXML private TextField wrapField;
     @FXML private TextField timeoutField;
     @FXML private ComboBox<Mixer.Info> deviceCombo;
+    @FXML private ListView<Mixer.Info> extraDeviceList;
+    @FXML private ComboBox<String> presetCombo;
+    @FXML private TextField chunkField;
+    @FXML private TextField lineBufferField;
+    @FXML private Label latencyLabel;
     @FXML private Button closeButton;
 
+    private static final String CUSTOM = "Custom";
+
     private VosTtsController parent;
+    /** Set while fields are filled from a preset, so the edits do not switch to Custom. */
+    private boolean applyingPreset;
+
+    @FXML
+    private void initialize() {
+        for (CaptureSettings.Preset p : CaptureSettings.Preset.values()) {
+            presetCombo.getItems().add(p.toString());
+        }
+        presetCombo.getItems().add(CUSTOM);
+        extraDeviceList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        presetCombo.setOnAction(e -> {
+            int i = presetCombo.getSelectionModel().getSelectedIndex();
+            if (i >= 0 && i < CaptureSettings.Preset.values().length) {
+                showCapture(CaptureSettings.Preset.values()[i].getSettings());
+            }
+        });
+        chunkField.textProperty().addListener((obs, old, text) -> markCustom());
+        lineBufferField.textProperty().addListener((obs, old, text) -> markCustom());
+    }
 
     public void setParent(VosTtsController controller) {
         this.parent = controller;
         wrapField.setText(Integer.toString(controller.getWrapChars()));
         timeoutField.setText(Integer.toString(controller.getTimeoutSeconds()));
-        deviceCombo.getItems().setAll(VosTtsController.listInputDevices());
+        List<Mixer.Info> devices = VosTtsController.listInputDevices();
+        deviceCombo.getItems().setAll(devices);
         Mixer.Info sel = controller.getSelectedDevice();
         if (sel != null) {
             deviceCombo.getSelectionModel().select(sel);
         } else if (!deviceCombo.getItems().isEmpty()) {
             deviceCombo.getSelectionModel().selectFirst();
         }
+        extraDeviceList.getItems().setAll(devices);
+        for (Mixer.Info extra : controller.getExtraDevices()) {
+            extraDeviceList.getSelectionModel().select(extra);
+        }
+        showCapture(controller.getCaptureSettings());
+        String latency = controller.getLatencySummary();
+        latencyLabel.setText(latency.isEmpty() ? "" : "Last session capture-to-partial latency: " + latency);
+    }
+
+    private void showCapture(CaptureSettings settings) {
+        applyingPreset = true;
+        chunkField.setText(Integer.toString(settings.getChunkMs()));
+        lineBufferField.setText(settings.getLineBufferMs() > 0 ? Integer.toString(settings.getLineBufferMs()) : "");
+        CaptureSettings.Preset preset = settings.getPreset();
+        presetCombo.getSelectionModel().select(preset != null ? preset.toString() : CUSTOM);
+        applyingPreset = false;
+    }
+
+    private void markCustom() {
+        if (!applyingPreset) {
+            presetCombo.getSelectionModel().select(CUSTOM);
+        }
     }
 
     @FXML
@@ -42,6 +98,14 @@ public class SettingsController {
         } catch (NumberFormatException ignored) {}
         Mixer.Info sel = deviceCombo.getSelectionModel().getSelectedItem();
         parent.setSelectedDevice(sel);
+        List<Mixer.Info> extras = new ArrayList<>(extraDeviceList.getSelectionModel().getSelectedItems());
+        extras.remove(sel);
+        parent.setExtraDevices(extras);
+        try {
+            String buffer = lineBufferField.getText().trim();
+            parent.setCaptureSettings(new CaptureSettings(Integer.parseInt(chunkField.getText().trim()),
+                    buffer.isEmpty() ? 0 : Integer.parseInt(buffer)));
+        } catch (NumberFormatException ignored) {}
         onClose();
     }
 
@@ -0,0 +1,31 @@
+package com.example.vostts;
+
+/** Line wrapping for the large transcript display. */
+public final class TextWrap {
+    private TextWrap() {}
+
+    /**
+     * Wrap the provided text so that no line exceeds {@code wrapChars}
+     * characters, breaking at spaces where possible.
+     */
+    public static String wrap(String text, int wrapChars) {
+        if (text.length() <= wrapChars) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(start + wrapChars, text.length());
+            int space = text.lastIndexOf(' ', end);
+            if (space > start && space < end) {
+                end = space + 1;
+            }
+            sb.append(text, start, end).append('\n');
+            start = end;
+        }
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) == '\n') {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+}
@@ -1,36 +1,196 @@
 package com.example.vostts;
 
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
+
+import com.example.speech.MappedSrt;
+import com.example.speech.Segment;
+import com.example.speech.SrtWriter;
+import com.example.speech.TranscriptJournal;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
-/** Controller for the modal transcript viewer. */
+/**
+ * Controller for the modal transcript viewer. The transcript is memory-mapped
+ * and shown in a virtualized list whose items are entry numbers, so only the
+ * visible entries are ever decoded. Sessions captioned from several devices
+ * show one track at a time, picked from a choice box.
+ */
 public class TranscriptViewerController {
     @FXML private Label nameLabel;
     @FXML private Label dateLabel;
-    @FXML private TextArea textArea;
+    @FXML private ListView<Integer> entryList;
+    @FXML private ChoiceBox<Integer> trackChoice;
     @FXML private Button closeButton;
 
     private SessionMetadata session;
+    /** Subtitle files of the session's tracks by track number. */
+    private SortedMap<Integer, Path> trackFiles = new TreeMap<>();
+    private MappedSrt srt;
+
+    @FXML
+    private void initialize() {
+        entryList.setCellFactory(list -> new EntryCell());
+        entryList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        trackChoice.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Integer track) {
+                return track == null ? "" : "Track " + track;
+            }
+
+            @Override
+            public Integer fromString(String text) {
+                return Integer.valueOf(text.substring("Track ".length()));
+            }
+        });
+        trackChoice.getSelectionModel().selectedItemProperty().addListener((obs, old, track) -> {
+            if (track != null) showTrack(track);
+        });
+        entryList.addEventHandler(KeyEvent.KEY_PRESSED, e -> {
+            if (e.isShortcutDown() && e.getCode() == KeyCode.C) {
+                copySelection();
+                e.consume();
+            }
+        });
+    }
 
     public void loadSession(SessionMetadata session) {
+        loadSession(session, SessionMetadata.MAIN_TRACK);
+    }
+
+    /** Show {@code track} of {@code session}; the other tracks can be picked from the choice box. */
+    public void loadSession(SessionMetadata session, int track) {
         this.session = session;
         nameLabel.setText(session.getName());
         dateLabel.setText(session.getDate());
-        Path file = session.getDirectory().resolve("transcript.srt");
+        trackFiles = new TreeMap<>();
         try {
-            String content = Files.exists(file) ? Files.readString(file) : "";
-            textArea.setText(content);
+            for (Map.Entry<Integer, Path> e : SessionMetadata.tracks(session.getDirectory()).entrySet()) {
+                Path file = e.getValue().resolve(TranscriptJournal.SRT_NAME);
+                if (e.getKey() == SessionMetadata.MAIN_TRACK || Files.exists(file)) {
+                    trackFiles.put(e.getKey(), file);
+                }
+            }
+        } catch (IOException e) {
+            showError("Failed to list tracks: " + e.getMessage());
+            trackFiles.put(SessionMetadata.MAIN_TRACK,
+                    session.getDirectory().resolve(TranscriptJournal.SRT_NAME));
+        }
+        boolean several = trackFiles.size() > 1;
+        trackChoice.setVisible(several);
+        trackChoice.setManaged(several);
+        trackChoice.getItems().setAll(trackFiles.keySet());
+        Integer shown = trackFiles.containsKey(track) ? track : SessionMetadata.MAIN_TRACK;
+        if (shown.equals(trackChoice.getValue())) {
+            showTrack(shown);
+        } else {
+            // Shown by the selection listener.
+            trackChoice.setValue(shown);
+        }
+    }
+
+    /** Map and list the subtitle file of {@code track}. */
+    private void showTrack(int track) {
+        Path file = trackFiles.get(track);
+        srt = null;
+        entryList.setPlaceholder(new Label("No transcript"));
+        try {
+            if (file != null && Files.exists(file)) {
+                srt = MappedSrt.open(file);
+            }
         } catch (IOException e) {
             showError("Failed to load transcript: " + e.getMessage());
         }
+        entryList.setItems(FXCollections.observableList(entries(srt == null ? 0 : srt.size())));
+    }
+
+    /** Select the subtitle entry playing at {@code ms} and scroll it into view. */
+    public void showTime(long ms) {
+        if (srt == null || srt.size() == 0) return;
+        int i = srt.find(ms);
+        entryList.getSelectionModel().clearAndSelect(i);
+        entryList.scrollTo(i);
+        entryList.requestFocus();
+    }
+
+    /** The numbers 0 to {@code n - 1}, without storing them. */
+    private static List<Integer> entries(int n) {
+        if (n == 0) return Collections.emptyList();
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return n;
+            }
+        };
+    }
+
+    private void copySelection() {
+        StringBuilder sb = new StringBuilder();
+        for (Integer i : entryList.getSelectionModel().getSelectedIndices()) {
+            Segment s = srt.get(i);
+            sb.append(i + 1).append('\n')
+                    .append(SrtWriter.formatTime(s.getStartMs())).append(" --> ")
+                    .append(SrtWriter.formatTime(s.getEndMs())).append('\n')
+                    .append(s.getText()).append("\n\n");
+        }
+        if (sb.length() == 0) return;
+        ClipboardContent content = new ClipboardContent();
+        content.putString(sb.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    /** Decodes its entry from the mapped file each time it is reused. */
+    private final class EntryCell extends ListCell<Integer> {
+        private final Label time = new Label();
+        private final Label text = new Label();
+        private final VBox box = new VBox(2, time, text);
+
+        EntryCell() {
+            text.setWrapText(true);
+            text.maxWidthProperty().bind(entryList.widthProperty().subtract(40));
+            time.setStyle("-fx-opacity: 0.7;");
+        }
+
+        @Override
+        protected void updateItem(Integer item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null || srt == null) {
+                setGraphic(null);
+                return;
+            }
+            Segment s = srt.get(item);
+            time.setText(s.getStartMs() < 0 ? String.valueOf(item + 1)
+                    : SrtWriter.formatTime(s.getStartMs()) + " --> " + SrtWriter.formatTime(s.getEndMs()));
+            text.setText(s.getText());
+            setGraphic(box);
+        }
     }
 
     @FXML
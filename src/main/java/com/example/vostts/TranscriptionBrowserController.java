@@ -1,38 +1,86 @@
 package com.example.vostts;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Hyperlink;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.Parent;
+import javafx.util.Duration;
 
 import com.example.vostts.ThemeManager;
 import com.example.vostts.DragUtil;
+import com.example.speech.SrtWriter;
 
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-/** Controller for the Transcription Browser window. */
+/**
+ * Controller for the Transcription Browser window. Sessions come from the
+ * shared {@link SessionIndex} one page at a time, so opening the browser does
+ * not touch the session directories.
+ */
 public class TranscriptionBrowserController {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_HITS = 100;
+    /** Runs queries off the FX thread; only the newest query's results are shown. */
+    private static final ExecutorService SEARCH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-query");
+        t.setDaemon(true);
+        return t;
+    });
+
     @FXML private TableView<SessionMetadata> table;
     @FXML private TableColumn<SessionMetadata, String> nameColumn;
     @FXML private TableColumn<SessionMetadata, String> dateColumn;
     @FXML private TableColumn<SessionMetadata, String> durationColumn;
     @FXML private TableColumn<SessionMetadata, String> statusColumn;
+    @FXML private TableColumn<SessionMetadata, Integer> segmentsColumn;
+    @FXML private TableColumn<SessionMetadata, String> sizeColumn;
+    @FXML private Label pageLabel;
+    @FXML private Button prevButton;
+    @FXML private Button nextButton;
+    @FXML private TextField searchField;
+    @FXML private Label searchStatus;
+    @FXML private ListView<SearchHit> resultsList;
 
     private final ObservableList<SessionMetadata> sessions = FXCollections.observableArrayList();
+    private final SessionIndex index = SessionIndex.get();
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    /** Called on the index thread; coalesces changes into one page update. */
+    private final Runnable indexListener = () -> {
+        if (updatePending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                updatePending.set(false);
+                showPage();
+            });
+        }
+    };
+    private int page;
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(150));
+    private int searchSeq;
 
     @FXML
     private void initialize() {
@@ -40,35 +88,111 @@ public class TranscriptionBrowserController {
         dateColumn.setCellValueFactory(new PropertyValueFactory<>("date"));
         durationColumn.setCellValueFactory(new PropertyValueFactory<>("duration"));
         statusColumn.setCellValueFactory(new PropertyValueFactory<>("status"));
+        if (segmentsColumn != null) {
+            segmentsColumn.setCellValueFactory(new PropertyValueFactory<>("segments"));
+        }
+        if (sizeColumn != null) {
+            sizeColumn.setCellValueFactory(new PropertyValueFactory<>("sizeText"));
+        }
         table.setItems(sessions);
-        refresh();
+        index.addListener(indexListener);
+        showPage();
+        if (searchField != null) {
+            resultsList.setCellFactory(list -> new HitCell());
+            searchDelay.setOnFinished(e -> runSearch(searchField.getText()));
+            searchField.textProperty().addListener((obs, old, text) -> searchDelay.playFromStart());
+        }
+    }
+
+    /** Query the transcript index in the background and show ranked hits. */
+    private void runSearch(String query) {
+        int seq = ++searchSeq;
+        if (query == null || query.isBlank()) {
+            resultsList.getItems().clear();
+            resultsList.setVisible(false);
+            table.setVisible(true);
+            searchStatus.setText("");
+            return;
+        }
+        SearchIndex search = SearchIndex.get();
+        long t0 = System.nanoTime();
+        CompletableFuture.supplyAsync(() -> search.search(query, MAX_HITS), SEARCH).thenAccept(hits -> {
+            double ms = (System.nanoTime() - t0) / 1e6;
+            Platform.runLater(() -> {
+                if (seq != searchSeq) return;
+                resultsList.getItems().setAll(hits);
+                resultsList.setPlaceholder(new Label("No matches"));
+                resultsList.setVisible(true);
+                table.setVisible(false);
+                searchStatus.setText(String.format("%d hits in %.1f ms", hits.size(), ms));
+            });
+        });
+    }
+
+    /** A search hit: time link, session and the matching text. */
+    private final class HitCell extends ListCell<SearchHit> {
+        @Override
+        protected void updateItem(SearchHit hit, boolean empty) {
+            super.updateItem(hit, empty);
+            if (empty || hit == null) {
+                setGraphic(null);
+                return;
+            }
+            SessionMetadata meta = index.find(hit.getSession());
+            Hyperlink time = new Hyperlink(SrtWriter.formatTime(hit.getStartMs()).substring(0, 8));
+            time.setOnAction(e -> {
+                try {
+                    openSession(meta != null ? meta : SessionMetadata.load(SessionIndex.sessionsDir().resolve(hit.getSession())),
+                            hit.getTrack(), hit.getStartMs());
+                } catch (IOException ex) {
+                    showError("Failed to open session: " + ex.getMessage());
+                }
+            });
+            String name = meta != null ? meta.getName() + "  " + meta.getDate() : hit.getSession();
+            if (hit.getTrack() != SessionMetadata.MAIN_TRACK) {
+                name += "  Track " + hit.getTrack();
+            }
+            Label session = new Label(name);
+            Label text = new Label(hit.getText());
+            text.setWrapText(true);
+            setGraphic(new VBox(2, new HBox(8, time, session), text));
+        }
     }
 
     @FXML
     private void onRefresh() {
-        refresh();
+        index.rescan();
     }
 
-    private void refresh() {
-        sessions.clear();
-        Path base = Paths.get(System.getProperty("user.home"), "vos-stt", "sessions");
-        if (Files.isDirectory(base)) {
-            try {
-                List<SessionMetadata> list = Files.list(base)
-                        .filter(Files::isDirectory)
-                        .map(p -> {
-                            try {
-                                return SessionMetadata.load(p);
-                            } catch (IOException e) {
-                                return null;
-                            }
-                        })
-                        .filter(m -> m != null)
-                        .collect(Collectors.toList());
-                sessions.addAll(list);
-            } catch (IOException e) {
-                showError("Failed to read sessions: " + e.getMessage());
-            }
+    @FXML
+    private void onPrevPage() {
+        if (page > 0) {
+            page--;
+            showPage();
+        }
+    }
+
+    @FXML
+    private void onNextPage() {
+        page++;
+        showPage();
+    }
+
+    /** Show the current page of the index snapshot. */
+    private void showPage() {
+        int total = index.size();
+        int pages = Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.min(page, pages - 1);
+        sessions.setAll(index.page(page, PAGE_SIZE));
+        table.setPlaceholder(new Label(index.isLoaded() ? "No sessions" : "Loading sessions..."));
+        if (pageLabel != null) {
+            pageLabel.setText("Page " + (page + 1) + " of " + pages + " (" + total + " sessions)");
+        }
+        if (prevButton != null) {
+            prevButton.setDisable(page == 0);
+        }
+        if (nextButton != null) {
+            nextButton.setDisable(page >= pages - 1);
         }
     }
 
@@ -76,11 +200,19 @@ public class TranscriptionBrowserController {
     private void onOpen() {
         SessionMetadata selected = table.getSelectionModel().getSelectedItem();
         if (selected == null) return;
+        openSession(selected, SessionMetadata.MAIN_TRACK, -1);
+    }
+
+    /** Show {@code track} of a session in the viewer, scrolled to {@code atMs} if not negative. */
+    private void openSession(SessionMetadata session, int track, long atMs) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vostts/viewer.fxml"));
             Parent root = loader.load();
             TranscriptViewerController controller = loader.getController();
-            controller.loadSession(selected);
+            controller.loadSession(session, track);
+            if (atMs >= 0) {
+                controller.showTime(atMs);
+            }
             Stage stage = new Stage();
             stage.initModality(Modality.APPLICATION_MODAL);
             stage.initStyle(StageStyle.UNDECORATED);
@@ -104,7 +236,9 @@ public class TranscriptionBrowserController {
                 .forEach(p -> {
                     try { Files.deleteIfExists(p); } catch (IOException ignored) {}
                 });
-            refresh();
+            String name = selected.getDirectory().getFileName().toString();
+            index.remove(name);
+            SearchIndex.get().remove(name);
         } catch (IOException e) {
             showError("Failed to delete session: " + e.getMessage());
         }
@@ -118,6 +252,7 @@ public class TranscriptionBrowserController {
 
     @FXML
     private void onClose() {
+        index.removeListener(indexListener);
         Stage stage = (Stage) table.getScene().getWindow();
         stage.close();
     }
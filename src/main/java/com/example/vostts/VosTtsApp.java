@@ -16,6 +16,9 @@ import com.example.vostts.ThemeManager;
 import com.example.vostts.DragUtil;
 
 import com.example.logging.LoggingConfig;
+import com.example.metrics.MetricsEndpoint;
+import com.example.speech.ModelHolder;
+import com.example.speech.TranscriptJournal;
 
 import java.util.logging.Logger;
 
@@ -29,6 +32,7 @@ public class VosTtsApp extends Application {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vostts/app.fxml"));
         Parent root = loader.load();
         VosTtsController controller = loader.getController();
+        recoverSessions();
 
         File modelDir = new File("models/vosk-model-en-us-0.22");
         controller.setModelDir(modelDir);
@@ -38,6 +42,7 @@ public class VosTtsApp extends Application {
 
         if (VosTtsController.isModelValid(modelDir)) {
             LOG.info("Speech model found");
+            controller.preloadModel();
             controller.setModelReady(true);
             Scene scene = new Scene(root, 400, 300);
             ThemeManager.apply(scene);
@@ -65,6 +70,7 @@ public class VosTtsApp extends Application {
             speedLabel.textProperty().bind(task.messageProperty());
             task.setOnSucceeded(e -> {
                 controller.setModelDir(modelDir);
+                controller.preloadModel();
                 controller.setModelReady(true);
                 LOG.info("Speech model ready");
                 Scene scene = new Scene(root, 400, 300);
@@ -78,9 +84,35 @@ public class VosTtsApp extends Application {
         }
     }
 
+    /**
+     * Start loading the session index and finish sessions interrupted by a
+     * crash, off the FX thread. The search index is opened afterwards so its
+     * backfill sees the recovered transcripts.
+     */
+    private static void recoverSessions() {
+        SessionIndex index = SessionIndex.get();
+        Thread t = new Thread(() -> {
+            int n = TranscriptJournal.recoverSessions(SessionIndex.sessionsDir());
+            if (n > 0) {
+                LOG.info("Recovered " + n + " interrupted sessions");
+                index.rescan();
+            }
+            SearchIndex.get();
+        }, "session-recovery");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public void stop() {
+        SessionIndex.get().flush();
+        ModelHolder.release();
+    }
+
     public static void main(String[] args) {
         LoggingConfig.configure();
         LOG.info("Launching application");
+        MetricsEndpoint.startFromProperty();
         launch(args);
     }
 }
@@ -6,6 +6,7 @@ import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.animation.AnimationTimer;
 import javafx.animation.FadeTransition;
 import javafx.animation.Timeline;
 import javafx.animation.KeyFrame;
@@ -19,26 +20,44 @@ import javafx.stage.StageStyle;
 
 import org.vosk.Model;
 import org.vosk.Recognizer;
-import org.json.JSONObject;
 
 import com.example.vostts.SettingsController;
 import com.example.vostts.ThemeManager;
 import com.example.vostts.DragUtil;
+import com.example.speech.ModelDownloader;
+import com.example.speech.ModelHolder;
+import com.example.speech.MultiStreamSession;
+import com.example.speech.NativeWaveform;
+import com.example.speech.RecognitionStream;
+import com.example.speech.SampleClock;
+import com.example.speech.Segment;
+import com.example.speech.TranscriptJournal;
+import com.example.speech.ResultExtractor;
+import com.example.audio.AudioCapture;
+import com.example.audio.AudioDevices;
+import com.example.audio.AudioRing;
+import com.example.audio.CaptureSettings;
+import com.example.audio.SignalConditioner;
+import com.example.audio.VoiceGate;
+import com.example.metrics.LatencyHistogram;
+import com.example.metrics.LatencyTrace;
+import com.example.metrics.PipelineEvents;
+import com.example.metrics.RecognitionMetrics;
+import com.example.ui.DisplayMailbox;
 
 import javax.sound.sampled.*;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.file.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,11 +68,15 @@ public class VosTtsController {
     @FXML private Button pauseButton; // may be null in new UI
     @FXML private Label timerLabel;
     @FXML private Label partialLabel;
+    @FXML private ProgressBar levelMeter; // may be null in old UI
     @FXML private VBox transcriptBox;
     @FXML private Button settingsButton;
 
     private Mixer.Info selectedDevice;
+    /** Further devices captioned alongside the selected one, each into its own track. */
+    private java.util.List<Mixer.Info> extraDevices = java.util.List.of();
     private int timeoutSeconds = 0;
+    private CaptureSettings captureSettings = CaptureSettings.fromProperties();
     private Timeline autoStop;
     
     private Stage browserStage;
@@ -62,7 +85,7 @@ public class VosTtsController {
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private Future<?> transcriptionTask;
     private boolean running = false;
-    private BufferedWriter writer;
+    private TranscriptJournal journal;
     private File modelDir;
     private boolean modelReady = false;
     private String currentSessionId = "-";
@@ -71,12 +94,39 @@ public class VosTtsController {
     private long startTime;
     private long pauseAccum;
     private long pauseStarted;
-    /** Timestamp in ms marking the start of the current subtitle segment. */
-    private long lastSegmentTime;
-    /** Subtitle index counter for SRT output. */
-    private int srtIndex;
+    /** Places final results on the session timeline. Recognition thread only. */
+    private SampleClock clock;
     /** Maximum characters before inserting a line break. */
     private int wrapChars = 35;
+    /** {@link System#nanoTime()} when Start was pressed for the current session. */
+    private volatile long startRequestedNanos;
+    /** Whether the first recognised text of the session has been logged. */
+    private boolean firstTextSeen;
+    /** Capture time of the chunk being decoded, the trace tag of its results. Recognition thread only. */
+    private long decodingCaptureNanos;
+    /** Per-stage latency from capture of the current session. */
+    private volatile LatencyTrace trace = new LatencyTrace();
+    /** Capture-to-partial latency of the last session, for the settings window. */
+    private volatile String latencySummary = "";
+    /** Tracks of the extra devices in the current session, or {@code null}. */
+    private volatile MultiStreamSession extraTracks;
+    /** Prepended to shown text when several devices are captioned. Recognition thread only. */
+    private String displayPrefix = "";
+    /** Result parser owned by the recognition thread of the current session. */
+    private ResultExtractor results;
+    /** Recognition output of the current session waiting to be shown. */
+    private volatile DisplayMailbox display = new DisplayMailbox();
+    /** Output of the extra devices' tracks, one mailbox per track so each has a single producer. */
+    private volatile java.util.List<DisplayMailbox> trackDisplays = java.util.List.of();
+    /** Partial line shown per track, the selected device's first. UI thread only. */
+    private String[] shownPartials = new String[1];
+    /** Applies pending display updates once per rendered frame. */
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyDisplayUpdates(display, trackDisplays);
+        }
+    };
 
     @FXML
     private void initialize() {
@@ -138,7 +188,7 @@ public class VosTtsController {
             Stage stage = new Stage();
             stage.initModality(Modality.APPLICATION_MODAL);
             stage.initStyle(StageStyle.UNDECORATED);
-            Scene scene = new Scene(root, 300, 200);
+            Scene scene = new Scene(root, 340, 400);
             ThemeManager.apply(scene);
             DragUtil.makeDraggable(stage, root);
             stage.setScene(scene);
@@ -173,11 +223,15 @@ public class VosTtsController {
             pauseAccum += System.currentTimeMillis() - pauseStarted;
             paused = false;
             running = true;
+            MultiStreamSession extras = extraTracks;
+            if (extras != null) extras.setPaused(false);
             if (timer != null) timer.play();
             pauseButton.setText("Paused");
         } else {
             paused = true;
             running = false;
+            MultiStreamSession extras = extraTracks;
+            if (extras != null) extras.setPaused(true);
             pauseStarted = System.currentTimeMillis();
             if (timer != null) timer.pause();
             pauseButton.setText("Resume");
@@ -212,15 +266,15 @@ public class VosTtsController {
         running = true;
         paused = false;
         pauseAccum = 0;
+        startRequestedNanos = System.nanoTime();
         startTime = System.currentTimeMillis();
-        lastSegmentTime = 0;
-        srtIndex = 1;
         if (timerLabel != null) {
             timerLabel.setText("00:00:00");
             timer = new Timeline(new KeyFrame(Duration.seconds(1), e -> updateTimer()));
             timer.setCycleCount(Timeline.INDEFINITE);
             timer.play();
         }
+        shownPartials = new String[1];
         if (partialLabel != null) {
             partialLabel.setText("");
         }
@@ -229,6 +283,9 @@ public class VosTtsController {
             autoStop.setCycleCount(1);
             autoStop.play();
         }
+        trace = new LatencyTrace();
+        display = new DisplayMailbox(trace);
+        frameTimer.start();
         LOG.info("Transcription started");
         transcriptionTask = executor.submit(this::runRecognition);
     }
@@ -239,10 +296,10 @@ public class VosTtsController {
         if (transcriptionTask != null) {
             transcriptionTask.cancel(true);
         }
-        // Writer is closed in the recognition thread's try-with-resources block.
-        // Clearing the reference here avoids further writes until a new session
-        // starts but prevents closing the stream while it may still be in use.
-        writer = null;
+        // The journal is closed in the recognition thread's try-with-resources
+        // block. Clearing the reference here avoids further writes until a new
+        // session starts but prevents closing it while it may still be in use.
+        journal = null;
         startButton.setText("Start");
         if (pauseButton != null) {
             pauseButton.setText("Paused");
@@ -274,47 +331,48 @@ public class VosTtsController {
     }
 
     private void runRecognition() {
-        Path base = Paths.get(System.getProperty("user.home"), "vos-stt", "sessions", currentSessionId);
+        Path base = SessionIndex.sessionsDir().resolve(currentSessionId);
+        // Indexed before the directory exists so the index watcher finds it known.
+        SessionIndex.get().put(new SessionMetadata(currentSessionId, formatStartDate(), "",
+                SessionMetadata.STATUS_RECORDING, base));
+        SearchIndex.get().begin(currentSessionId);
         base.toFile().mkdirs();
-        File outFile = base.resolve("transcript.srt").toFile();
-        LOG.fine(() -> "Writing transcript to " + outFile.getAbsolutePath());
-        try (Model model = new Model(locateModelPath(modelDir).getAbsolutePath());
-             BufferedWriter bw = new BufferedWriter(new FileWriter(outFile))) {
-            writer = bw;
-            Recognizer recognizer = new Recognizer(model, 16000.0f);
-            AudioFormat format = new AudioFormat(16000.0f, 16, 1, true, false);
-            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-            Mixer.Info selected = selectedDevice;
-            TargetDataLine line;
-            if (selected != null) {
-                Mixer mixer = AudioSystem.getMixer(selected);
-                line = (TargetDataLine) mixer.getLine(info);
-            } else {
-                line = (TargetDataLine) AudioSystem.getLine(info);
-            }
-            line.open(format);
-            line.start();
-            byte[] buffer = new byte[4096];
-            LOG.fine("Recognition loop started");
-            while (!Thread.currentThread().isInterrupted()) {
-                int n = line.read(buffer, 0, buffer.length);
-                if (n < 0) break;
-                if (running) {
-                    if (recognizer.acceptWaveForm(buffer, n)) {
-                        String result = recognizer.getResult();
-                        handleResult(result);
-                    } else {
-                        String partial = recognizer.getPartialResult();
-                        handlePartial(partial);
-                    }
-                }
-            }
-            line.stop();
-            line.close();
+        Path journalFile = base.resolve(TranscriptJournal.FILE_NAME);
+        LOG.fine(() -> "Writing transcript journal to " + journalFile.toAbsolutePath());
+        firstTextSeen = false;
+        results = new ResultExtractor();
+        DisplayMailbox mailbox = display;
+        int segments = -1;
+        PipelineEvents.Session session = new PipelineEvents.Session();
+        session.begin();
+        try {
+            Model model = ModelHolder.get(modelDir);
+            LOG.fine(() -> "Model available " + sinceStartMillis() + " ms after start");
+            segments = recognize(model, journalFile);
         } catch (Exception ex) {
             LOG.log(Level.SEVERE, "Recognition error", ex);
         } finally {
+            finishSession(base, journalFile, segments);
+            session.end();
+            if (session.shouldCommit()) {
+                session.id = base.getFileName().toString();
+                session.segments = Math.max(0, segments);
+                session.commit();
+            }
+            java.util.List<DisplayMailbox> tracks = trackDisplays;
             Platform.runLater(() -> {
+                applyDisplayUpdates(mailbox, tracks);
+                if (display == mailbox) {
+                    frameTimer.stop();
+                }
+                LOG.info("Display updates: " + mailbox);
+                for (int i = 0; i < tracks.size(); i++) {
+                    LOG.fine("Display updates of " + trackLabel(SessionMetadata.MAIN_TRACK + 1 + i) + ": "
+                            + tracks.get(i));
+                }
+                if (levelMeter != null) {
+                    levelMeter.setProgress(0);
+                }
                 running = false;
                 startButton.setText("Start");
                 if (pauseButton != null) {
@@ -324,33 +382,253 @@ public class VosTtsController {
                     settingsButton.setDisable(false);
                 }
             });
-            // Ensure the writer reference is cleared after the session ends.
-            writer = null;
+            // Ensure the journal reference is cleared after the session ends.
+            journal = null;
+            extraTracks = null;
             LOG.fine("Recognition loop finished");
         }
     }
 
+    /** Decode until stopped. Returns the number of segments recognised on all tracks. */
+    private int recognize(Model model, Path journalFile) throws Exception {
+        try (Recognizer recognizer = new Recognizer(model, 16000.0f);
+             NativeWaveform waveform = new NativeWaveform(recognizer);
+             TranscriptJournal j = new TranscriptJournal(journalFile)) {
+            recognizer.setWords(true);
+            journal = j;
+            LatencyTrace sessionTrace = trace;
+            j.setLatencyTrace(sessionTrace);
+            AudioFormat format = AudioDevices.TARGET_FORMAT;
+            CaptureSettings settings = captureSettings;
+            TargetDataLine line = AudioDevices.openLine(selectedDevice, settings);
+            LOG.fine(() -> "Capture " + settings + ", line buffer " + line.getBufferSize() + " bytes in "
+                    + line.getFormat());
+            AudioRing ring = new AudioRing(settings.getRingChunks(), settings.getChunkBytes(format),
+                    format.getFrameSize());
+            SignalConditioner dsp = new SignalConditioner(format.getSampleRate());
+            VoiceGate gate = new VoiceGate(format.getSampleRate());
+            clock = new SampleClock(format.getSampleRate());
+            VoiceGate.Sink decoder = (pcm, length) -> {
+                clock.fed(gate.getFeedOffset(), length);
+                PipelineEvents.Decode event = new PipelineEvents.Decode();
+                event.begin();
+                boolean complete = waveform.accept(pcm, length);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.bytes = length;
+                    event.complete = complete;
+                    event.commit();
+                }
+                sessionTrace.record(LatencyTrace.Stage.DECODE, decodingCaptureNanos);
+                if (complete) {
+                    handleResult(recognizer.getResult());
+                    return true;
+                }
+                handlePartial(recognizer.getPartialResult());
+                return false;
+            };
+            MultiStreamSession extras = startExtraTracks(model, settings, journalFile.getParent());
+            try (AudioCapture capture = new AudioCapture(line, ring, format);
+                 RecognitionMetrics.Session metrics = RecognitionMetrics.get()
+                         .openSession(trackLabel(SessionMetadata.MAIN_TRACK), format.getSampleRate() * format.getFrameSize())) {
+                capture.start();
+                LOG.fine("Recognition loop started");
+                while (!Thread.currentThread().isInterrupted() && !ring.isDrained()) {
+                    AudioRing.Chunk chunk = ring.poll(100, TimeUnit.MILLISECONDS);
+                    if (chunk == null) continue;
+                    try {
+                        if (running) {
+                            decodingCaptureNanos = chunk.getCaptureNanos();
+                            long t0 = System.nanoTime();
+                            dsp.process(chunk.getData(), chunk.getLength());
+                            gate.process(chunk.getData(), chunk.getLength(), decoder);
+                            metrics.chunk(chunk.getLength(), System.nanoTime() - t0, ring.size() - 1,
+                                    ring.getDroppedFrames());
+                            display.publishLevel(dsp.getLevel());
+                        }
+                    } finally {
+                        ring.release();
+                    }
+                }
+                LOG.info("Capture statistics: " + capture);
+                LOG.info("Voice gate: " + gate);
+                LOG.info("Signal conditioner: " + dsp);
+                LOG.info(String.format("%s real-time factor %.2f", metrics.getLabel(), metrics.getRealTimeFactor()));
+                LatencyHistogram partials = sessionTrace.get(LatencyTrace.Stage.PARTIAL);
+                if (partials.getCount() > 0) {
+                    latencySummary = String.format("p50 %d ms, p99 %d ms, max %d ms (%d partials, %s)",
+                            partials.getPercentileNanos(50) / 1_000_000, partials.getPercentileNanos(99) / 1_000_000,
+                            partials.getMaxNanos() / 1_000_000, partials.getCount(), settings);
+                    LOG.info("Capture-to-partial latency: " + latencySummary);
+                }
+            } finally {
+                if (extras != null) {
+                    extras.close();
+                }
+            }
+            return j.getSegmentCount() + (extras != null ? extras.getSegmentCount() : 0);
+        }
+    }
+
+    private static String trackLabel(int number) {
+        return "Track " + number;
+    }
+
+    /**
+     * Start captioning the extra devices into track directories of the
+     * session, sharing {@code model}. Returns {@code null} without extra
+     * devices. Each track's text is shown prefixed with the track name, as is
+     * the selected device's, and added to the search index under the session.
+     * Devices that cannot be opened are left out; the caller closes the
+     * returned session.
+     */
+    private MultiStreamSession startExtraTracks(Model model, CaptureSettings settings, Path sessionDir) {
+        java.util.List<Mixer.Info> devices = extraDevices;
+        displayPrefix = "";
+        trackDisplays = java.util.List.of();
+        if (devices.isEmpty()) return null;
+        String sessionId = sessionDir.getFileName().toString();
+        // Indexed by device, so a device that fails to open leaves its mailbox unused.
+        java.util.List<DisplayMailbox> mailboxes = new java.util.ArrayList<>();
+        java.util.Map<String, Integer> tracks = new java.util.concurrent.ConcurrentHashMap<>();
+        for (int i = 0; i < devices.size(); i++) {
+            mailboxes.add(new DisplayMailbox());
+            tracks.put(trackLabel(SessionMetadata.MAIN_TRACK + 1 + i), SessionMetadata.MAIN_TRACK + 1 + i);
+        }
+        MultiStreamSession extras = new MultiStreamSession(model, settings, new RecognitionStream.Listener() {
+            @Override
+            public void partial(RecognitionStream stream, String text, long captureNanos) {
+                mailbox(stream).publishPartial(stream.getLabel() + ": " + text);
+            }
+
+            @Override
+            public void result(RecognitionStream stream, Segment segment, long captureNanos) {
+                mailbox(stream).publishFinal(stream.getLabel() + ": " + segment.getText());
+                SearchIndex.get().add(sessionId, tracks.get(stream.getLabel()), stream.getSegmentCount() - 1,
+                        segment.getStartMs(), segment.getEndMs(), segment.getText());
+            }
+
+            private DisplayMailbox mailbox(RecognitionStream stream) {
+                return mailboxes.get(tracks.get(stream.getLabel()) - SessionMetadata.MAIN_TRACK - 1);
+            }
+        }, Runtime.getRuntime().availableProcessors() - 1);
+        trackDisplays = java.util.List.copyOf(mailboxes);
+        try {
+            for (int i = 0; i < devices.size(); i++) {
+                int track = SessionMetadata.MAIN_TRACK + 1 + i;
+                extras.add(trackLabel(track), devices.get(i), MultiStreamSession.trackDirectory(sessionDir, track));
+            }
+        } catch (RuntimeException e) {
+            extras.close();
+            throw e;
+        }
+        if (!extras.getStreams().isEmpty()) {
+            displayPrefix = trackLabel(SessionMetadata.MAIN_TRACK) + ": ";
+        }
+        extraTracks = extras;
+        return extras;
+    }
+
+    /**
+     * Render SRT and WebVTT from the closed journal, write {@code metadata.json}
+     * and update the session and search indexes. Stopping interrupts this thread, which
+     * would close the file channels used here, so the interrupt is held back
+     * until the files are written.
+     *
+     * @param segments segments recognised, or -1 if the session failed
+     */
+    private void finishSession(Path dir, Path journalFile, int segments) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (Files.exists(journalFile)) {
+                TranscriptJournal.render(journalFile);
+            }
+            writeLatency(dir);
+            SessionMetadata meta;
+            if (segments >= 0) {
+                meta = new SessionMetadata(dir.getFileName().toString(), formatStartDate(),
+                        SessionMetadata.formatDuration(getElapsedMillis()), SessionMetadata.STATUS_COMPLETE,
+                        segments, SessionMetadata.directorySize(dir), dir);
+                meta.save();
+            } else {
+                meta = SessionMetadata.load(dir);
+            }
+            SessionIndex.get().put(meta);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to finish session, it will be recovered on next start", e);
+        } finally {
+            SearchIndex.get().commit(dir.getFileName().toString());
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Log the session's latency percentiles and write them to {@link LatencyTrace#FILE_NAME}. */
+    private void writeLatency(Path dir) {
+        LatencyTrace t = trace;
+        if (t.get(LatencyTrace.Stage.DECODE).getCount() == 0) return;
+        String summary = t.summary();
+        LOG.info(() -> "Latency from capture, ms:\n" + summary);
+        try {
+            t.write(dir);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to write latency summary", e);
+        }
+    }
+
+    private String formatStartDate() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(startTime), ZoneId.systemDefault())
+                .format(SessionMetadata.DATE_FORMAT);
+    }
+
     private void handleResult(String json) throws IOException {
-        JSONObject obj = new JSONObject(json);
-        String text = obj.optString("text");
-        if (!text.isEmpty()) {
+        if (parse(json, true)) {
+            String text = results.text();
             LOG.fine(() -> "Recognised: " + text);
-            writeLine(text);
+            trace.record(LatencyTrace.Stage.RESULT, decodingCaptureNanos);
+            markFirstText();
+            writeLine(clock.segment(results));
+        }
+    }
+
+    private void handlePartial(String json) {
+        if (partialLabel == null && firstTextSeen) return;
+        // Unchanged partials (most chunks) are dropped without allocating.
+        if (parse(json, false) && !results.isEmpty()) {
+            markFirstText();
             if (partialLabel != null) {
-                Platform.runLater(() -> partialLabel.setText(wrapDisplay(text)));
+                display.publishPartial(displayPrefix + results.text(), decodingCaptureNanos);
             }
         }
     }
 
-    private void handlePartial(String json) {
-        if (partialLabel == null) return;
-        JSONObject obj = new JSONObject(json);
-        String partial = obj.optString("partial");
-        if (!partial.isEmpty()) {
-            Platform.runLater(() -> partialLabel.setText(wrapDisplay(partial)));
+    /** Parse a final or partial result; true if it has new text. */
+    private boolean parse(String json, boolean finalResult) {
+        PipelineEvents.ResultParse event = new PipelineEvents.ResultParse();
+        event.begin();
+        boolean changed = finalResult ? results.parseResult(json) : results.parsePartial(json);
+        event.end();
+        if (event.shouldCommit()) {
+            event.finalResult = finalResult;
+            event.changed = changed;
+            event.commit();
+        }
+        return changed;
+    }
+
+    /** Log the start-to-first-text latency once per session. */
+    private void markFirstText() {
+        if (!firstTextSeen) {
+            firstTextSeen = true;
+            LOG.info(() -> "First partial result " + sinceStartMillis() + " ms after start");
         }
     }
 
+    private long sinceStartMillis() {
+        return (System.nanoTime() - startRequestedNanos) / 1_000_000;
+    }
+
     private void updateTimer() {
         if (timerLabel == null) return;
         long now = System.currentTimeMillis();
@@ -368,80 +646,111 @@ public class VosTtsController {
         return now - startTime - pauseAccum - (paused ? (now - pauseStarted) : 0);
     }
 
-    /** Format the given milliseconds in SRT timestamp format. */
-    private static String formatSrtTime(long ms) {
-        long h = ms / 3_600_000;
-        long m = (ms % 3_600_000) / 60_000;
-        long s = (ms % 60_000) / 1000;
-        long milli = ms % 1000;
-        return String.format("%02d:%02d:%02d,%03d", h, m, s, milli);
-    }
-
     /**
      * Wrap the provided text so that no line exceeds {@code wrapChars} characters.
      */
     private String wrapDisplay(String text) {
-        if (text.length() <= wrapChars) {
-            return text;
-        }
-        StringBuilder sb = new StringBuilder();
-        int start = 0;
-        while (start < text.length()) {
-            int end = Math.min(start + wrapChars, text.length());
-            int space = text.lastIndexOf(' ', end);
-            if (space > start && space < end) {
-                end = space + 1;
+        return TextWrap.wrap(text, wrapChars);
+    }
+
+    /**
+     * Show everything the recognition threads published since the last frame.
+     * Finals are appended in order, track by track; the partial label shows
+     * one line per track with its newest text.
+     */
+    private void applyDisplayUpdates(DisplayMailbox mailbox, java.util.List<DisplayMailbox> tracks) {
+        PipelineEvents.UiDispatch event = new PipelineEvents.UiDispatch();
+        event.begin();
+        if (shownPartials.length != tracks.size() + 1) {
+            shownPartials = java.util.Arrays.copyOf(shownPartials, tracks.size() + 1);
+        }
+        int finals = 0;
+        boolean partials = false;
+        boolean changed = false;
+        for (int i = 0; i < shownPartials.length; i++) {
+            DisplayMailbox m = i == 0 ? mailbox : tracks.get(i - 1);
+            String last = null;
+            String text;
+            while ((text = m.pollFinal()) != null) {
+                appendTranscript(text);
+                last = text;
+                finals++;
             }
-            sb.append(text, start, end).append('\n');
-            start = end;
-        }
-        if (sb.length() > 0 && sb.charAt(sb.length() - 1) == '\n') {
-            sb.setLength(sb.length() - 1);
-        }
-        return sb.toString();
-    }
-
-    private void writeLine(String text) {
-        String[] parts = wrapDisplay(text).split("\n");
-        Platform.runLater(() -> {
-            for (String p : parts) {
-                Label line = new Label(p);
-                line.setWrapText(true);
-                line.setAlignment(Pos.CENTER);
-                line.setMaxWidth(Double.MAX_VALUE);
-                line.getStyleClass().add("transcript-new");
-                transcriptBox.getChildren().add(line);
-                FadeTransition ft = new FadeTransition(Duration.millis(300), line);
-                ft.setFromValue(0);
-                ft.setToValue(1);
-                ft.play();
-                lines.addLast(line);
+            String partial = m.takePartial();
+            if (partial != null) {
+                shownPartials[i] = partial;
+                partials = true;
+                changed = true;
+            } else if (last != null) {
+                shownPartials[i] = last;
+                changed = true;
             }
-            while (lines.size() > 3) {
-                Label old = lines.removeFirst();
-                transcriptBox.getChildren().remove(old);
+        }
+        if (changed && partialLabel != null) {
+            StringBuilder shown = new StringBuilder();
+            for (String line : shownPartials) {
+                if (line == null || line.isEmpty()) continue;
+                if (shown.length() > 0) shown.append('\n');
+                shown.append(wrapDisplay(line));
             }
-            Label[] arr = lines.toArray(new Label[0]);
-            for (int i = 0; i < arr.length; i++) {
-                if (i == arr.length - 1) {
-                    arr[i].getStyleClass().setAll("transcript-new");
-                } else {
-                    arr[i].getStyleClass().setAll("transcript-old");
-                }
+            partialLabel.setText(shown.toString());
+        }
+        int level = mailbox.takeLevel();
+        if (level >= 0 && levelMeter != null) {
+            levelMeter.setProgress(level / 100.0);
+        }
+        event.end();
+        // Most frames have nothing to show; only record those that did.
+        if ((finals > 0 || partials) && event.shouldCommit()) {
+            event.finals = finals;
+            event.partial = partials;
+            event.commit();
+        }
+    }
+
+    private void appendTranscript(String text) {
+        for (String p : wrapDisplay(text).split("\n")) {
+            Label line = new Label(p);
+            line.setWrapText(true);
+            line.setAlignment(Pos.CENTER);
+            line.setMaxWidth(Double.MAX_VALUE);
+            line.getStyleClass().add("transcript-new");
+            transcriptBox.getChildren().add(line);
+            FadeTransition ft = new FadeTransition(Duration.millis(300), line);
+            ft.setFromValue(0);
+            ft.setToValue(1);
+            ft.play();
+            lines.addLast(line);
+        }
+        while (lines.size() > 3) {
+            Label old = lines.removeFirst();
+            transcriptBox.getChildren().remove(old);
+        }
+        Label[] arr = lines.toArray(new Label[0]);
+        for (int i = 0; i < arr.length; i++) {
+            if (i == arr.length - 1) {
+                arr[i].getStyleClass().setAll("transcript-new");
+            } else {
+                arr[i].getStyleClass().setAll("transcript-old");
             }
-        });
-        if (writer != null) {
+        }
+    }
+
+    /**
+     * Show and journal a final result. Both carry the capture time of the
+     * chunk that completed the utterance, so the trace measures the delay
+     * after the speaker stopped rather than since the first word. The
+     * segment's times come from its words, however far decoding is behind.
+     */
+    private void writeLine(Segment segment) {
+        String text = segment.getText();
+        display.publishFinal(displayPrefix + text, decodingCaptureNanos);
+        TranscriptJournal j = journal;
+        if (j != null) {
             try {
-                long end = getElapsedMillis();
-                writer.write(Integer.toString(srtIndex++));
-                writer.newLine();
-                writer.write(formatSrtTime(lastSegmentTime) + " --> " + formatSrtTime(end));
-                writer.newLine();
-                writer.write(text);
-                writer.newLine();
-                writer.newLine();
-                writer.flush();
-                lastSegmentTime = end;
+                j.append(segment.getStartMs(), segment.getEndMs(), text, decodingCaptureNanos);
+                SearchIndex.get().add(currentSessionId, SessionMetadata.MAIN_TRACK, j.getSegmentCount() - 1,
+                        segment.getStartMs(), segment.getEndMs(), text);
             } catch (IOException e) {
                 LOG.log(Level.WARNING, "Failed writing line", e);
             }
@@ -451,58 +760,48 @@ public class VosTtsController {
 
     /** Return a list of available 16-bit input devices. */
     public static java.util.List<Mixer.Info> listInputDevices() {
-        java.util.List<Mixer.Info> list = new java.util.ArrayList<>();
-        AudioFormat format = new AudioFormat(16000.0f, 16, 1, true, false);
-        DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-        for (Mixer.Info mi : AudioSystem.getMixerInfo()) {
-            Mixer mixer = AudioSystem.getMixer(mi);
-            if (mixer.isLineSupported(info)) {
-                list.add(mi);
-            }
-        }
-        return list;
+        return RecognitionStream.listInputDevices();
     }
 
     /**
      * Create a download task for the Vosk model. The task updates its progress
-     * as bytes are downloaded and unzipped.
+     * and download rate while the archive is fetched and unpacked; a cancelled
+     * or failed download resumes from the chunks already fetched.
      */
     public Task<Void> createModelDownloadTask(File targetDir) {
         return new Task<>() {
             @Override
             protected Void call() throws Exception {
-                String url = "https://alphacephei.com/vosk/models/vosk-model-en-us-0.22.zip";
-                LOG.info("Downloading model from " + url);
-                targetDir.getParentFile().mkdirs();
-                Path zipPath = targetDir.toPath().resolveSibling("vosk-model-en-us-0.22.zip");
-                HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-                int length = conn.getContentLength();
+                ModelDownloader downloader = ModelDownloader.forDefaultModel(
+                        "https://alphacephei.com/vosk/models/vosk-model-en-us-0.22.zip", targetDir.toPath());
                 updateMessage("0 MB/s");
-                try (InputStream in = conn.getInputStream();
-                     FileOutputStream out = new FileOutputStream(zipPath.toFile())) {
-                    byte[] buffer = new byte[4096];
-                    int bytesRead;
-                    long total = 0;
-                    long lastTotal = 0;
-                    long lastTime = System.nanoTime();
-                    while ((bytesRead = in.read(buffer)) != -1) {
-                        out.write(buffer, 0, bytesRead);
-                        total += bytesRead;
-                        if (length > 0) {
-                            updateProgress(total, length);
+                long[] last = {System.nanoTime(), 0};
+                downloader.setListener(new ModelDownloader.Listener() {
+                    @Override
+                    public void progress(long downloaded, long total) {
+                        report(downloaded, total, "");
+                    }
+
+                    @Override
+                    public void unpacking(long extracted, long total) {
+                        report(extracted, total, "Unpacking ");
+                    }
+
+                    private void report(long bytes, long total, String prefix) {
+                        if (total > 0) {
+                            updateProgress(bytes, total);
                         }
                         long now = System.nanoTime();
-                        if (now - lastTime > 1_000_000_000L) {
-                            double mb = (total - lastTotal) / (1024.0 * 1024.0);
-                            double mbps = mb / ((now - lastTime) / 1_000_000_000.0);
-                            updateMessage(String.format("%.1f MB/s", mbps));
-                            lastTime = now;
-                            lastTotal = total;
+                        if (now - last[0] > 1_000_000_000L) {
+                            double mb = (bytes - last[1]) / (1024.0 * 1024.0);
+                            double mbps = mb / ((now - last[0]) / 1_000_000_000.0);
+                            updateMessage(String.format("%s%.1f MB/s", prefix, mbps));
+                            last[0] = now;
+                            last[1] = bytes;
                         }
                     }
-                }
-                unzip(zipPath.toFile(), targetDir);
-                Files.delete(zipPath);
+                });
+                downloader.download();
                 if (!isModelValid(targetDir)) {
                     throw new IOException("Downloaded model is invalid");
                 }
@@ -512,55 +811,24 @@ public class VosTtsController {
         };
     }
 
-    public static void unzip(File zipFile, File targetDir) throws IOException {
-        targetDir.mkdirs();
-        LOG.fine(() -> "Unzipping " + zipFile + " to " + targetDir);
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-            ZipEntry entry;
-            byte[] buffer = new byte[4096];
-            while ((entry = zis.getNextEntry()) != null) {
-                File newFile = new File(targetDir, entry.getName());
-                if (entry.isDirectory()) {
-                    newFile.mkdirs();
-                } else {
-                    newFile.getParentFile().mkdirs();
-                    try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
-                        }
-                    }
-                }
-                zis.closeEntry();
-            }
-        }
-    }
-
-    private static File locateModelPath(File dir) {
-        if (new File(dir, "am").exists()) {
-            return dir;
-        }
-        File[] subDirs = dir.listFiles(File::isDirectory);
-        if (subDirs != null && subDirs.length == 1) {
-            File candidate = subDirs[0];
-            if (new File(candidate, "am").exists()) {
-                return candidate;
-            }
-        }
-        return dir;
-    }
-
     public static boolean isModelValid(File dir) {
-        File path = locateModelPath(dir);
+        File path = ModelHolder.locateModelPath(dir);
         return new File(path, "am").exists();
     }
 
     /** Set the directory containing the speech model. */
     public void setModelDir(File dir) {
-        this.modelDir = locateModelPath(dir);
+        this.modelDir = ModelHolder.locateModelPath(dir);
         LOG.fine(() -> "Model directory set to " + this.modelDir);
     }
 
+    /** Begin loading the speech model in the background so Start is instant. */
+    public void preloadModel() {
+        if (modelDir != null) {
+            ModelHolder.preload(modelDir);
+        }
+    }
+
     /**
      * Mark the speech model as ready and enable the start button accordingly.
      */
@@ -584,10 +852,33 @@ public class VosTtsController {
         return selectedDevice;
     }
 
+    public java.util.List<Mixer.Info> getExtraDevices() {
+        return extraDevices;
+    }
+
+    /** Devices to caption alongside the selected one, each into its own track. */
+    public void setExtraDevices(java.util.List<Mixer.Info> devices) {
+        this.extraDevices = java.util.List.copyOf(devices);
+    }
+
     public void setSelectedDevice(Mixer.Info info) {
         this.selectedDevice = info;
     }
 
+    public CaptureSettings getCaptureSettings() {
+        return captureSettings;
+    }
+
+    /** Settings used from the next session on. */
+    public void setCaptureSettings(CaptureSettings settings) {
+        this.captureSettings = settings;
+    }
+
+    /** Capture-to-partial latency measured in the last session, or an empty string. */
+    public String getLatencySummary() {
+        return latencySummary;
+    }
+
     public int getTimeoutSeconds() {
         return timeoutSeconds;
     }
@@ -0,0 +1,102 @@
+package com.example.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Runs the scalar and Vector API kernels over the same PCM. Surefire adds
+ * {@code jdk.incubator.vector}, so both kernels run here.
+ */
+class DspKernelTest {
+    /** Sample counts around and between whole vectors of any width. */
+    private static final int[] LENGTHS = {1, 3, 8, 17, 160, 1601, 4099};
+
+    @Test
+    void createsVectorKernelWhenModuleIsLoaded() {
+        assertInstanceOf(VectorDspKernel.class, DspKernel.create(true));
+        assertInstanceOf(ScalarDspKernel.class, DspKernel.create(false));
+    }
+
+    @Test
+    void kernelsAgreeWhileGainRamps() {
+        Random random = new Random(3);
+        for (int samples : LENGTHS) {
+            byte[] pcm = noise(random, samples, 12000);
+            float step = (7.5f - 1.25f) / samples;
+            assertSameOutput(pcm, samples, 41.5f, 1.25f, step);
+            assertSameOutput(pcm, samples, -12.75f, 3f, -2f / samples);
+        }
+    }
+
+    @Test
+    void kernelsAgreeWithConstantGain() {
+        Random random = new Random(5);
+        for (int samples : LENGTHS) {
+            assertSameOutput(noise(random, samples, 30000), samples, 3.5f, 2.4f, 0);
+        }
+    }
+
+    @Test
+    void saturatesToSixteenBits() {
+        for (DspKernel kernel : new DspKernel[] {new ScalarDspKernel(), new VectorDspKernel()}) {
+            int samples = 64;
+            byte[] pcm = new byte[2 * samples];
+            for (int i = 0; i < samples; i++) {
+                put(pcm, i, i % 2 == 0 ? 20000 : -20000);
+            }
+            kernel.process(pcm, samples, 0, 4, 0, new float[3]);
+            for (int i = 0; i < samples; i++) {
+                assertEquals(i % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE, get(pcm, i), kernel.describe());
+            }
+        }
+    }
+
+    @Test
+    void unityGainWithoutOffsetKeepsSamples() {
+        Random random = new Random(9);
+        for (DspKernel kernel : new DspKernel[] {new ScalarDspKernel(), new VectorDspKernel()}) {
+            byte[] pcm = noise(random, 1601, 32767);
+            byte[] out = pcm.clone();
+            kernel.process(out, 1601, 0, 1, 0, new float[3]);
+            assertArrayEquals(pcm, out, kernel.describe());
+        }
+    }
+
+    private static void assertSameOutput(byte[] pcm, int samples, float dc, float gain, float step) {
+        byte[] scalar = pcm.clone();
+        byte[] vector = pcm.clone();
+        float[] scalarStats = new float[3];
+        float[] vectorStats = new float[3];
+        new ScalarDspKernel().process(scalar, samples, dc, gain, step, scalarStats);
+        new VectorDspKernel().process(vector, samples, dc, gain, step, vectorStats);
+
+        String what = samples + " samples, gain " + gain + " step " + step;
+        assertArrayEquals(scalar, vector, what);
+        // The scalar kernel sums exactly, the vector one in float lanes.
+        for (int k = 0; k < 3; k++) {
+            assertEquals(scalarStats[k], vectorStats[k], 1e-4 * Math.abs(scalarStats[k]) + 1e-2, what);
+        }
+    }
+
+    private static byte[] noise(Random random, int samples, int amplitude) {
+        byte[] pcm = new byte[2 * samples];
+        for (int i = 0; i < samples; i++) {
+            put(pcm, i, random.nextInt(2 * amplitude + 1) - amplitude);
+        }
+        return pcm;
+    }
+
+    private static void put(byte[] pcm, int i, int v) {
+        pcm[2 * i] = (byte) v;
+        pcm[2 * i + 1] = (byte) (v >> 8);
+    }
+
+    private static int get(byte[] pcm, int i) {
+        return (short) ((pcm[2 * i] & 0xff) | (pcm[2 * i + 1] << 8));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.audio;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Resamples generated stereo sines to 16 kHz mono with {@link Resampler}. */
+class ResamplerTest {
+    private static final float OUT_RATE = 16000;
+    private static final double AMPLITUDE = 10000;
+    /** Input frames per call, cycled: single frames, odd sizes and more than a chunk. */
+    private static final int[] SPLITS = {1, 7, 480, 1, 13, 4410, 2, 999, 1, 1, 160};
+    /** Outputs skipped while the filter fills with signal. */
+    private static final int SETTLE = 200;
+
+    @Test
+    void splitCallsMatchOneShotAt48kHz() {
+        assertSplitMatchesOneShot(48000);
+    }
+
+    @Test
+    void splitCallsMatchOneShotAt44kHz() {
+        assertSplitMatchesOneShot(44100);
+    }
+
+    @Test
+    void outputThatDoesNotFitComesWithTheNextCall() {
+        for (int rate : new int[] {48000, 44100}) {
+            byte[] in = stereoSine(rate, 1000, 0.5);
+            byte[] expected = oneShot(rate, in);
+
+            // Room for three samples per call, so input piles up and is worked off later.
+            Resampler r = resampler(rate);
+            byte[] out = new byte[6];
+            ByteArrayOutputStream got = new ByteArrayOutputStream();
+            int frame = 4;
+            for (int pos = 0, s = 0; pos < in.length; s++) {
+                int length = Math.min(SPLITS[s % SPLITS.length] * frame, in.length - pos);
+                got.write(out, 0, r.process(Arrays.copyOfRange(in, pos, pos + length), length, out));
+                pos += length;
+            }
+            int n;
+            while ((n = r.process(new byte[0], 0, out)) > 0) {
+                got.write(out, 0, n);
+            }
+            assertArrayEquals(expected, got.toByteArray(), rate + " Hz");
+        }
+    }
+
+    @Test
+    void passesSpeechBandAtUnityGain() {
+        for (int rate : new int[] {48000, 44100}) {
+            for (double hz : new double[] {100, 1000, 3000, 6000}) {
+                short[] out = samples(oneShot(rate, stereoSine(rate, hz, 0.5)));
+                double[] fit = fitSine(out, hz);
+                double gainDb = 20 * Math.log10(fit[0] / AMPLITUDE);
+                assertEquals(0, gainDb, 0.01, rate + " Hz input, " + hz + " Hz tone");
+                // Within rounding of a clean sine throughout: no clicks, gaps or repeated samples.
+                assertTrue(fit[1] < 2, rate + " Hz input, " + hz + " Hz tone: residual " + fit[1]);
+            }
+        }
+    }
+
+    @Test
+    void attenuatesAboveOutputNyquist() {
+        for (int rate : new int[] {48000, 44100}) {
+            for (double hz : new double[] {9000, 12000, 20000}) {
+                short[] out = samples(oneShot(rate, stereoSine(rate, hz, 0.5)));
+                double rms = rms(out, SETTLE, out.length);
+                double db = 20 * Math.log10(rms * Math.sqrt(2) / AMPLITUDE);
+                assertTrue(db < -70, rate + " Hz input, " + hz + " Hz tone at " + db + " dB");
+            }
+        }
+    }
+
+    @Test
+    void producesOneOutputPerRatioOfInputs() {
+        for (int rate : new int[] {48000, 44100}) {
+            byte[] in = stereoSine(rate, 1000, 1);
+            int outputs = oneShot(rate, in).length / 2;
+            assertEquals(16000, outputs, 1, rate + " Hz");
+        }
+    }
+
+    private static void assertSplitMatchesOneShot(int rate) {
+        byte[] in = stereoSine(rate, 1000, 0.5);
+        byte[] expected = oneShot(rate, in);
+
+        Resampler r = resampler(rate);
+        byte[] out = new byte[8192];
+        ByteArrayOutputStream got = new ByteArrayOutputStream();
+        int frame = 4;
+        for (int pos = 0, s = 0; pos < in.length; s++) {
+            int length = Math.min(SPLITS[s % SPLITS.length] * frame, in.length - pos);
+            got.write(out, 0, r.process(Arrays.copyOfRange(in, pos, pos + length), length, out));
+            pos += length;
+        }
+        assertArrayEquals(expected, got.toByteArray(), rate + " Hz");
+    }
+
+    private static Resampler resampler(int rate) {
+        return new Resampler(new AudioFormat(rate, 16, 2, true, false), OUT_RATE, 3200);
+    }
+
+    private static byte[] oneShot(int rate, byte[] in) {
+        byte[] out = new byte[in.length];
+        int n = resampler(rate).process(in, in.length, out);
+        return Arrays.copyOf(out, n);
+    }
+
+    /** A tone whose channels differ but average to {@link #AMPLITUDE}. */
+    private static byte[] stereoSine(int rate, double hz, double seconds) {
+        int frames = (int) (rate * seconds);
+        byte[] pcm = new byte[frames * 4];
+        for (int f = 0; f < frames; f++) {
+            double s = Math.sin(2 * Math.PI * hz * f / rate);
+            put(pcm, 2 * f, (int) Math.round(0.6 * AMPLITUDE * s));
+            put(pcm, 2 * f + 1, (int) Math.round(1.4 * AMPLITUDE * s));
+        }
+        return pcm;
+    }
+
+    /**
+     * Least-squares fit of a sine at {@code hz} to the settled output; returns
+     * its amplitude and the largest deviation from it.
+     */
+    private static double[] fitSine(short[] out, double hz) {
+        double ss = 0, sc = 0, cc = 0, ys = 0, yc = 0;
+        for (int i = SETTLE; i < out.length; i++) {
+            double s = Math.sin(2 * Math.PI * hz * i / OUT_RATE);
+            double c = Math.cos(2 * Math.PI * hz * i / OUT_RATE);
+            ss += s * s;
+            sc += s * c;
+            cc += c * c;
+            ys += out[i] * s;
+            yc += out[i] * c;
+        }
+        double det = ss * cc - sc * sc;
+        double a = (ys * cc - yc * sc) / det;
+        double b = (yc * ss - ys * sc) / det;
+        double residual = 0;
+        for (int i = SETTLE; i < out.length; i++) {
+            double fitted = a * Math.sin(2 * Math.PI * hz * i / OUT_RATE) + b * Math.cos(2 * Math.PI * hz * i / OUT_RATE);
+            residual = Math.max(residual, Math.abs(out[i] - fitted));
+        }
+        return new double[] {Math.hypot(a, b), residual};
+    }
+
+    private static double rms(short[] samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        return Math.sqrt(sum / (to - from));
+    }
+
+    private static short[] samples(byte[] pcm) {
+        short[] s = new short[pcm.length / 2];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = (short) ((pcm[2 * i] & 0xff) | (pcm[2 * i + 1] << 8));
+        }
+        return s;
+    }
+
+    private static void put(byte[] pcm, int i, int v) {
+        pcm[2 * i] = (byte) v;
+        pcm[2 * i + 1] = (byte) (v >> 8);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link VoiceGate} over synthetic 16 kHz audio of faint noise and
+ * tones, recording what reaches the sink and at which feed offset.
+ */
+class VoiceGateTest {
+    private static final float RATE = 16000;
+    /** Bytes per millisecond at {@link #RATE}. */
+    private static final int MS = 32;
+    private static final int PRE_ROLL = 300 * MS;
+    private static final int HANGOVER = 500 * MS;
+    private static final int MAX_TAIL = 1500 * MS;
+    /** 50 ms chunks. */
+    private static final int CHUNK = 50 * MS;
+
+    private final Random random = new Random(11);
+
+    @Test
+    void feedsPreRollThenChunksAtTheirOffsets() throws Exception {
+        byte[] input = concat(silence(1000), tone(250), silence(1700), tone(100));
+        VoiceGate gate = new VoiceGate(RATE, true);
+        Recorder sink = new Recorder(gate, offset -> false);
+
+        feed(gate, input, sink, CHUNK);
+
+        sink.assertMatches(input);
+        // First utterance: a full pre-roll ending at the onset, then contiguous chunks.
+        int onset = 1000 * MS;
+        assertEquals(onset - PRE_ROLL, sink.offsets.get(0));
+        assertEquals(PRE_ROLL, sink.lengths.get(0));
+        assertEquals(onset, sink.offsets.get(1));
+        // Without a final, the tail runs to the maximum, then the gate closes.
+        int closed = onset + 250 * MS + MAX_TAIL;
+        assertEquals(closed, sink.end(sink.indexOf(closed - CHUNK)));
+        // Second utterance: the pre-roll only holds what was skipped since.
+        int second = 2950 * MS;
+        int pre = sink.indexOf(second) - 1;
+        assertEquals(closed, sink.offsets.get(pre));
+        assertEquals(second - closed, sink.lengths.get(pre));
+        assertEquals(2, gate.getUtterances());
+    }
+
+    @Test
+    void preRollIsContiguousWhenChunksExceedIt() throws Exception {
+        byte[] input = concat(silence(1000), tone(300));
+        VoiceGate gate = new VoiceGate(RATE, true);
+        Recorder sink = new Recorder(gate, offset -> false);
+
+        // 500 ms chunks, each larger than the 300 ms pre-roll.
+        feed(gate, input, sink, 500 * MS);
+
+        sink.assertMatches(input);
+        assertEquals(1000 * MS - PRE_ROLL, sink.offsets.get(0));
+        assertEquals(PRE_ROLL, sink.lengths.get(0));
+        assertEquals(1000 * MS, sink.offsets.get(1));
+    }
+
+    @Test
+    void preRollWrapsAroundOverUnevenChunks() throws Exception {
+        byte[] input = concat(silence(1000), tone(300));
+        VoiceGate gate = new VoiceGate(RATE, true);
+        Recorder sink = new Recorder(gate, offset -> false);
+
+        // Chunks that start the buffer at different points on each lap.
+        feed(gate, input, sink, 7000, 130, 4480, 9000, 2, 3202);
+
+        sink.assertMatches(input);
+        assertEquals(PRE_ROLL, sink.lengths.get(0));
+        assertEquals(sink.offsets.get(1) - PRE_ROLL, sink.offsets.get(0));
+    }
+
+    @Test
+    void closesAfterHangoverOnceFinal() throws Exception {
+        int onset = 1000 * MS;
+        int speechEnd = onset + 300 * MS;
+        byte[] input = concat(silence(1000), tone(300), silence(3000));
+        VoiceGate gate = new VoiceGate(RATE, true);
+        // The recognizer finalizes on the first silent chunk.
+        Recorder sink = new Recorder(gate, offset -> offset >= speechEnd);
+
+        feed(gate, input, sink, CHUNK);
+
+        sink.assertMatches(input);
+        assertEquals(speechEnd + HANGOVER, sink.end(sink.offsets.size() - 1));
+        assertFalse(gate.isOpen());
+    }
+
+    @Test
+    void finalAfterHangoverClosesAtOnce() throws Exception {
+        int onset = 1000 * MS;
+        int speechEnd = onset + 300 * MS;
+        int finalAt = speechEnd + 800 * MS;
+        byte[] input = concat(silence(1000), tone(300), silence(3000));
+        VoiceGate gate = new VoiceGate(RATE, true);
+        Recorder sink = new Recorder(gate, offset -> offset == finalAt);
+
+        feed(gate, input, sink, CHUNK);
+
+        sink.assertMatches(input);
+        assertEquals(finalAt + CHUNK, sink.end(sink.offsets.size() - 1));
+    }
+
+    @Test
+    void voiceAfterFinalKeepsGateOpen() throws Exception {
+        int onset = 1000 * MS;
+        int speechEnd = onset + 300 * MS;
+        int resumed = speechEnd + 200 * MS;
+        byte[] input = concat(silence(1000), tone(300), silence(200), tone(300), silence(3000));
+        VoiceGate gate = new VoiceGate(RATE, true);
+        // A final for the first phrase only; the second never gets one.
+        Recorder sink = new Recorder(gate, offset -> offset == speechEnd);
+
+        feed(gate, input, sink, CHUNK);
+
+        sink.assertMatches(input);
+        assertEquals(1, gate.getUtterances());
+        assertEquals(resumed + 300 * MS + MAX_TAIL, sink.end(sink.offsets.size() - 1));
+    }
+
+    @Test
+    void disabledGateFeedsEverything() throws Exception {
+        byte[] input = concat(silence(500), tone(100), silence(3000));
+        VoiceGate gate = new VoiceGate(RATE, false);
+        Recorder sink = new Recorder(gate, offset -> false);
+
+        feed(gate, input, sink, CHUNK, 333);
+
+        sink.assertMatches(input);
+        assertEquals(0, sink.offsets.get(0));
+        assertEquals(input.length, sink.end(sink.offsets.size() - 1));
+        assertEquals(input.length, sink.fed.size());
+        assertEquals(0, gate.getSkippedFraction(), 1e-9);
+    }
+
+    // ---- helpers ----
+
+    /** Records each call with the gate's feed offset; {@code isFinal} decides the return value by offset. */
+    private static final class Recorder implements VoiceGate.Sink {
+        final VoiceGate gate;
+        final LongPredicate isFinal;
+        final List<Long> offsets = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+        final ByteArrayOutputStream fed = new ByteArrayOutputStream();
+        final List<byte[]> chunks = new ArrayList<>();
+
+        Recorder(VoiceGate gate, LongPredicate isFinal) {
+            this.gate = gate;
+            this.isFinal = isFinal;
+        }
+
+        @Override
+        public boolean accept(byte[] pcm, int length) {
+            long offset = gate.getFeedOffset();
+            offsets.add(offset);
+            lengths.add(length);
+            chunks.add(Arrays.copyOf(pcm, length));
+            fed.write(pcm, 0, length);
+            return isFinal.test(offset);
+        }
+
+        /** Each call passed the input bytes at its feed offset, and offsets never go back. */
+        void assertMatches(byte[] input) {
+            assertFalse(offsets.isEmpty());
+            for (int i = 0; i < offsets.size(); i++) {
+                int from = Math.toIntExact(offsets.get(i));
+                assertArrayEquals(Arrays.copyOfRange(input, from, from + lengths.get(i)), chunks.get(i),
+                        "call " + i + " at " + from);
+                if (i > 0) assertTrue(from >= end(i - 1), "call " + i + " overlaps the one before");
+            }
+        }
+
+        long end(int i) {
+            return offsets.get(i) + lengths.get(i);
+        }
+
+        int indexOf(long offset) {
+            int i = offsets.indexOf(offset);
+            assertTrue(i >= 0, "nothing fed at " + offset + ": " + offsets);
+            return i;
+        }
+    }
+
+    /** Pass {@code input} to the gate in chunks of the given sizes, repeating the last. */
+    private static void feed(VoiceGate gate, byte[] input, VoiceGate.Sink sink, int... sizes) throws Exception {
+        for (int pos = 0, i = 0; pos < input.length; i++) {
+            int n = Math.min(sizes[Math.min(i, sizes.length - 1)], input.length - pos);
+            // A fresh array each time, as the gate must not keep references to it.
+            gate.process(Arrays.copyOfRange(input, pos, pos + n), n, sink);
+            pos += n;
+        }
+    }
+
+    /** Faint noise well below the voice threshold, different everywhere. */
+    private byte[] silence(int ms) {
+        byte[] pcm = new byte[ms * MS];
+        for (int i = 0; i < pcm.length; i += 2) {
+            put(pcm, i, random.nextInt(61) - 30);
+        }
+        return pcm;
+    }
+
+    /** A 440 Hz tone at about -16 dBFS, with a little noise so no two chunks are alike. */
+    private byte[] tone(int ms) {
+        byte[] pcm = new byte[ms * MS];
+        for (int i = 0; i < pcm.length; i += 2) {
+            put(pcm, i, (int) (5000 * Math.sin(2 * Math.PI * 440 * i / 2 / RATE)) + random.nextInt(21) - 10);
+        }
+        return pcm;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] p : parts) out.writeBytes(p);
+        return out.toByteArray();
+    }
+
+    private static void put(byte[] pcm, int i, int v) {
+        pcm[i] = (byte) v;
+        pcm[i + 1] = (byte) (v >> 8);
+    }
+}
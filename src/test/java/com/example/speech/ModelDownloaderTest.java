@@ -0,0 +1,230 @@
+package com.example.speech;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link ModelDownloader} against a local HTTP stand-in serving a
+ * generated model archive, with the server's range support and failures
+ * switched per test.
+ */
+class ModelDownloaderTest {
+    /** Size of the downloader's range requests. */
+    private static final int CHUNK = 8 * 1024 * 1024;
+    private static final String ETAG = "\"model-1\"";
+
+    @TempDir
+    Path tmp;
+
+    private HttpServer server;
+    private URI uri;
+    private byte[] archive;
+    private byte[] weights;
+    /** Range header of each request, or "" for none. */
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private boolean ranges = true;
+    private boolean unknownTotal;
+    /** Ranges starting at or after this offset fail with 503. */
+    private long failFrom = Long.MAX_VALUE;
+
+    @BeforeEach
+    void start() throws IOException {
+        // Incompressible, so the archive spans three chunks.
+        weights = new byte[18 * 1024 * 1024];
+        new Random(42).nextBytes(weights);
+        archive = zip(new Entry("model/am/final.mdl", weights),
+                new Entry("model/conf/model.conf", "--sample-frequency=16000\n".getBytes(StandardCharsets.UTF_8)));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/model.zip", this::serve);
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/model.zip");
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void downloadsInParallelRanges() throws Exception {
+        Path target = tmp.resolve("model");
+        new ModelDownloader(uri, target, sha256(archive)).setConnections(3).download();
+
+        assertUnpacked(target);
+        for (int c = 0; c < 3; c++) {
+            assertTrue(requests.contains(range(c)), "requested chunk " + c);
+        }
+        assertLeftNoFiles();
+    }
+
+    @Test
+    void resumesFromPartFile() throws Exception {
+        Path target = tmp.resolve("model");
+        failFrom = CHUNK;
+        assertThrows(IOException.class, () -> new ModelDownloader(uri, target, null).setConnections(1).download());
+        assertTrue(Files.exists(tmp.resolve("model.zip.part")));
+        assertTrue(Files.exists(tmp.resolve("model.zip.state")));
+        assertFalse(Files.exists(target));
+
+        failFrom = Long.MAX_VALUE;
+        requests.clear();
+        new ModelDownloader(uri, target, sha256(archive)).setConnections(2).download();
+
+        assertUnpacked(target);
+        assertFalse(requests.contains(range(0)), "chunk 0 was fetched again: " + requests);
+        assertTrue(requests.contains(range(1)));
+        assertLeftNoFiles();
+    }
+
+    @Test
+    void readsWholeArchiveWithoutRangeSupport() throws Exception {
+        ranges = false;
+        Path target = tmp.resolve("model");
+        new ModelDownloader(uri, target, sha256(archive)).download();
+
+        assertUnpacked(target);
+        // The probe's answer is the whole archive.
+        assertEquals(List.of("bytes=0-0"), requests);
+        assertLeftNoFiles();
+    }
+
+    @Test
+    void refetchesWholeArchiveWhenTotalIsUnknown() throws Exception {
+        unknownTotal = true;
+        Path target = tmp.resolve("model");
+        new ModelDownloader(uri, target, sha256(archive)).download();
+
+        assertUnpacked(target);
+        assertEquals(List.of("bytes=0-0", ""), requests);
+        assertLeftNoFiles();
+    }
+
+    @Test
+    void rejectsChecksumMismatch() {
+        Path target = tmp.resolve("model");
+        IOException e = assertThrows(IOException.class,
+                () -> new ModelDownloader(uri, target, "00".repeat(32)).download());
+
+        assertTrue(e.getMessage().contains("Checksum mismatch"), e.getMessage());
+        assertFalse(Files.exists(target));
+        assertLeftNoFiles();
+    }
+
+    @Test
+    void rejectsEntryOutsideModelDirectory() throws Exception {
+        archive = zip(new Entry("../escaped.txt", "x".getBytes(StandardCharsets.UTF_8)),
+                new Entry("model/am/final.mdl", weights));
+        Path target = tmp.resolve("model");
+        IOException e = assertThrows(IOException.class,
+                () -> new ModelDownloader(uri, target, null).setConnections(1).download());
+
+        assertTrue(e.getMessage().contains("outside the model directory"), e.getMessage());
+        assertFalse(requests.contains(range(2)), "kept downloading a rejected archive: " + requests);
+        assertFalse(Files.exists(tmp.resolve("escaped.txt")));
+        assertFalse(Files.exists(target));
+        assertLeftNoFiles();
+    }
+
+    private void assertUnpacked(Path target) throws IOException {
+        assertArrayEquals(weights, Files.readAllBytes(target.resolve("model/am/final.mdl")));
+        assertEquals("--sample-frequency=16000\n", Files.readString(target.resolve("model/conf/model.conf")));
+    }
+
+    private void assertLeftNoFiles() {
+        assertFalse(Files.exists(tmp.resolve("model.zip.part")));
+        assertFalse(Files.exists(tmp.resolve("model.zip.state")));
+        assertFalse(Files.exists(tmp.resolve("model.extracting")));
+    }
+
+    private String range(int chunk) {
+        long start = (long) chunk * CHUNK;
+        return "bytes=" + start + "-" + (Math.min(archive.length, start + CHUNK) - 1);
+    }
+
+    // ---- stand-in server ----
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            requests.add(range != null ? range : "");
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (range == null || !ranges) {
+                send(exchange, 200, 0, archive.length);
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            long start = Long.parseLong(bounds[0]);
+            long end = Math.min(archive.length - 1, Long.parseLong(bounds[1]));
+            if (start >= failFrom) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + start + "-" + end + "/" + (unknownTotal ? "*" : archive.length));
+            send(exchange, 206, (int) start, (int) (end + 1 - start));
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, int offset, int length) throws IOException {
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(archive, offset, length);
+        }
+    }
+
+    // ---- archives ----
+
+    private static final class Entry {
+        final String name;
+        final byte[] data;
+
+        Entry(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static byte[] zip(Entry... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Entry e : entries) {
+                zip.putNextEntry(new ZipEntry(e.name));
+                zip.write(e.data);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
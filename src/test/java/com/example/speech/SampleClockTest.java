@@ -0,0 +1,164 @@
+package com.example.speech;
+
+import com.example.audio.VoiceGate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Maps word times of hand-made recognizer results through a
+ * {@link SampleClock} fed the way the voice gate feeds the recognizer.
+ */
+class SampleClockTest {
+    private static final float RATE = 16000;
+    /** Bytes per millisecond at {@link #RATE}. */
+    private static final int MS = 32;
+    private static final int PRE_ROLL = 300 * MS;
+    private static final int CHUNK = 50 * MS;
+
+    @Test
+    void continuousAudioKeepsFedTime() {
+        SampleClock clock = new SampleClock(RATE);
+        for (int offset = 0; offset < 3000 * MS; offset += CHUNK) {
+            clock.fed(offset, CHUNK);
+        }
+
+        assertSegment(500, 1250, "hello world", clock.segment(result("hello", 0.5, 0.9, "world", 1.0, 1.25)));
+        assertEquals(3000, clock.getFedEndMillis());
+    }
+
+    @Test
+    void gatedGapsArePutBack() {
+        SampleClock clock = new SampleClock(RATE);
+        // Two utterances at 10 s and 20 s, each fed with its pre-roll first.
+        utterance(clock, 10_000, 2000);
+        utterance(clock, 20_000, 1000);
+
+        // Fed audio: 0.3 s pre-roll, 2 s, 0.3 s pre-roll, 1 s.
+        assertEquals(9_700, clock.toSessionMillis(0));
+        assertEquals(10_000, clock.toSessionMillis(0.3));
+        assertSegment(10_000, 11_000, "hello world", clock.segment(result("hello", 0.3, 0.8, "world", 0.9, 1.3)));
+        assertSegment(19_800, 20_500, "again", clock.segment(result("again", 2.4, 3.1)));
+        assertEquals(21_000, clock.getFedEndMillis());
+    }
+
+    @Test
+    void keepsEveryUtteranceBeyondInitialCapacity() {
+        SampleClock clock = new SampleClock(RATE);
+        // 40 half-second utterances, 3 s apart, and no segment to forget any.
+        for (int k = 0; k < 40; k++) {
+            clock.fed(k * 3000L * MS, 500 * MS);
+        }
+
+        for (int k = 0; k < 40; k++) {
+            assertEquals(k * 3000 + 250, clock.toSessionMillis(k * 0.5 + 0.25), "utterance " + k);
+            assertEquals(k * 3000, clock.toSessionMillis(k * 0.5), "start of utterance " + k);
+        }
+        assertEquals(39 * 3000 + 500, clock.getFedEndMillis());
+    }
+
+    @Test
+    void wordsAfterForgottenSpansStayCorrect() {
+        SampleClock clock = new SampleClock(RATE);
+        for (int k = 0; k < 3; k++) {
+            clock.fed(k * 3000L * MS, 500 * MS);
+        }
+
+        assertSegment(3_100, 3_400, "one", clock.segment(result("one", 0.6, 0.9)));
+        // A word starting before the previous segment's end does not overlap it.
+        assertSegment(3_400, 3_450, "two", clock.segment(result("two", 0.85, 0.95)));
+        assertSegment(6_100, 6_300, "three", clock.segment(result("three", 1.1, 1.3)));
+
+        // More audio after forgetting: extending the kept span, then a new one.
+        clock.fed(6_500 * MS, 500 * MS);
+        clock.fed(9_000 * MS, 500 * MS);
+        assertSegment(6_400, 6_900, "four", clock.segment(result("four", 1.4, 1.9)));
+        assertSegment(9_100, 9_200, "five", clock.segment(result("five", 2.1, 2.2)));
+        assertEquals(9_500, clock.getFedEndMillis());
+    }
+
+    @Test
+    void resultWithoutWordsRunsFromLastSegmentToFedEnd() {
+        SampleClock clock = new SampleClock(RATE);
+        assertSegment(0, 0, "hm", clock.segment(result("hm")));
+
+        clock.fed(0, 1000 * MS);
+        assertSegment(0, 1_000, "hello", clock.segment(result("hello")));
+
+        clock.fed(2_000 * MS, 500 * MS);
+        assertSegment(1_000, 2_500, "there", clock.segment(result("there")));
+
+        clock.fed(2_500 * MS, 500 * MS);
+        assertSegment(2_600, 2_900, "words", clock.segment(result("words", 1.6, 1.9)));
+        assertSegment(2_900, 3_000, "again", clock.segment(result("again")));
+    }
+
+    @Test
+    void followsTheVoiceGatesFeedOffsets() throws Exception {
+        VoiceGate gate = new VoiceGate(RATE, true);
+        SampleClock clock = new SampleClock(RATE);
+        VoiceGate.Sink sink = (pcm, length) -> {
+            clock.fed(gate.getFeedOffset(), length);
+            return false;
+        };
+        byte[] silence = new byte[CHUNK];
+        byte[] tone = new byte[CHUNK];
+        for (int i = 0; i < tone.length; i += 2) {
+            int v = (int) (5000 * Math.sin(2 * Math.PI * 440 * i / 2 / RATE));
+            tone[i] = (byte) v;
+            tone[i + 1] = (byte) (v >> 8);
+        }
+        // 1 s silence, 0.5 s tone, 5 s silence, 0.5 s tone at 6.5 s.
+        for (int i = 0; i < 20; i++) gate.process(silence, CHUNK, sink);
+        for (int i = 0; i < 10; i++) gate.process(tone, CHUNK, sink);
+        for (int i = 0; i < 100; i++) gate.process(silence, CHUNK, sink);
+        for (int i = 0; i < 10; i++) gate.process(tone, CHUNK, sink);
+
+        // The first utterance is fed as 0.3 s pre-roll, 0.5 s tone and a 1.5 s tail.
+        assertEquals(1_000, clock.toSessionMillis(0.3));
+        assertEquals(1_500, clock.toSessionMillis(0.8));
+        // The second follows another 0.3 s pre-roll.
+        double second = 0.3 + 0.5 + 1.5 + 0.3;
+        assertSegment(6_600, 6_900, "tone", clock.segment(result("tone", second + 0.1, second + 0.4)));
+        assertEquals(7_000, clock.getFedEndMillis());
+    }
+
+    /** Feed an utterance at {@code startMs} the way the gate does: pre-roll, then chunks. */
+    private static void utterance(SampleClock clock, int startMs, int lengthMs) {
+        clock.fed((long) startMs * MS - PRE_ROLL, PRE_ROLL);
+        for (int ms = 0; ms < lengthMs; ms += 50) {
+            clock.fed((long) (startMs + ms) * MS, CHUNK);
+        }
+    }
+
+    /** A parsed final result of words with start and end times: word, start, end, ... */
+    private static ResultExtractor result(Object... words) {
+        StringBuilder json = new StringBuilder("{\"result\":[");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i + 2 < words.length; i += 3) {
+            if (i > 0) json.append(',');
+            json.append("{\"conf\":1.0,\"end\":").append(words[i + 2])
+                    .append(",\"start\":").append(words[i + 1])
+                    .append(",\"word\":\"").append(words[i]).append("\"}");
+        }
+        json.append("],\"text\":\"");
+        if (words.length == 1) {
+            text.append(words[0]);
+        }
+        for (int i = 0; i + 2 < words.length; i += 3) {
+            if (text.length() > 0) text.append(' ');
+            text.append(words[i]);
+        }
+        json.append(text).append("\"}");
+        ResultExtractor results = new ResultExtractor();
+        results.parseResult(json.toString());
+        return results;
+    }
+
+    private static void assertSegment(long startMs, long endMs, String text, Segment segment) {
+        assertEquals(text, segment.getText());
+        assertEquals(startMs, segment.getStartMs(), "start of " + text);
+        assertEquals(endMs, segment.getEndMs(), "end of " + text);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.speech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Unpacks generated archives with {@link ZipExtractor}. */
+class ZipExtractorTest {
+    @TempDir
+    Path tmp;
+
+    @Test
+    void extractsFilesAndDirectories() throws Exception {
+        byte[] big = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(big);
+        byte[] small = "--sample-frequency=16000\n".getBytes(StandardCharsets.UTF_8);
+        Path zip = zip("model/", null,
+                "model/am/final.mdl", big,
+                "model/conf/model.conf", small,
+                "model/empty", new byte[0],
+                "model/ivector/", null);
+        Path target = tmp.resolve("out");
+        AtomicLong reported = new AtomicLong();
+
+        long bytes = ZipExtractor.extract(zip, target, 3, (extracted, total) -> {
+            assertEquals(big.length + small.length, total);
+            reported.set(extracted);
+        });
+
+        assertEquals(big.length + small.length, bytes);
+        assertEquals(bytes, reported.get());
+        assertArrayEquals(big, Files.readAllBytes(target.resolve("model/am/final.mdl")));
+        assertArrayEquals(small, Files.readAllBytes(target.resolve("model/conf/model.conf")));
+        assertEquals(0, Files.size(target.resolve("model/empty")));
+        assertTrue(Files.isDirectory(target.resolve("model/ivector")));
+    }
+
+    @Test
+    void rejectsTraversalBeforeCreatingAnything() throws Exception {
+        Path zip = zip("model/", null,
+                "model/am/", null,
+                "model/am/final.mdl", new byte[1024],
+                "model/../../escaped.txt", "x".getBytes(StandardCharsets.UTF_8));
+        Path target = tmp.resolve("out");
+
+        ZipException e = assertThrows(ZipException.class, () -> ZipExtractor.extract(zip, target, 2, null));
+
+        assertTrue(e.getMessage().contains("escaped.txt"), e.getMessage());
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(tmp.resolve("escaped.txt")));
+    }
+
+    @Test
+    void rejectsAbsoluteEntry() throws Exception {
+        Path outside = tmp.resolve("outside.txt").toAbsolutePath();
+        Path zip = zip("model/", null,
+                outside.toString(), "x".getBytes(StandardCharsets.UTF_8));
+        Path target = tmp.resolve("out");
+
+        assertThrows(ZipException.class, () -> ZipExtractor.extract(zip, target, 1, null));
+
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(outside));
+    }
+
+    /** Write a zip of name/data pairs; a null data makes a directory entry. */
+    private Path zip(Object... entries) throws IOException {
+        Path zip = Files.createTempFile(tmp, "archive", ".zip");
+        try (OutputStream out = Files.newOutputStream(zip);
+             ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zos.putNextEntry(new ZipEntry((String) entries[i]));
+                if (entries[i + 1] != null) {
+                    zos.write((byte[]) entries[i + 1]);
+                }
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+}